@@ -0,0 +1,107 @@
+package multi_map;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The operations of {@link MultiDMapBenchmark} on the usual alternatives to a {@link MultiDMap}:
+ * a HashMap keyed by lists of keys, whose keys are wrapped in a list at each call as user code
+ * would, and HashMaps nested one per level.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaselineBenchmark {
+
+    @Benchmark
+    public Object getFlat(MultiDMapState state) {
+        return state.flat.get(Arrays.asList(state.keys[state.next()]));
+    }
+
+    @Benchmark
+    public Object getNested(MultiDMapState state) {
+        return MultiDMapState.getNested(state.nested, state.keys[state.next()]);
+    }
+
+    @Benchmark
+    public Object putFlat(MultiDMapState state) {
+        int i = state.next();
+        return state.flat.put(Arrays.asList(state.keys[i]), state.entries[i][state.dimensions]);
+    }
+
+    @Benchmark
+    public Object putNested(MultiDMapState state) {
+        return MultiDMapState.putNested(state.nested, state.entries[state.next()]);
+    }
+
+    @Benchmark
+    public Object removeAndPutFlat(MultiDMapState state) {
+        int i = state.next();
+        state.flat.remove(Arrays.asList(state.keys[i]));
+        return state.flat.put(Arrays.asList(state.keys[i]), state.entries[i][state.dimensions]);
+    }
+
+    @Benchmark
+    public Object removeAndPutNested(MultiDMapState state) {
+        int i = state.next();
+        MultiDMapState.removeNested(state.nested, state.keys[i], 0);
+        return MultiDMapState.putNested(state.nested, state.entries[i]);
+    }
+
+    @Benchmark
+    public void entriesFlat(MultiDMapState state, Blackhole blackhole) {
+        for (Map.Entry<List<Object>, Object> entry : state.flat.entrySet())
+            blackhole.consume(entry);
+    }
+
+    @Benchmark
+    public void entriesNested(MultiDMapState state, Blackhole blackhole) {
+        consumeNested(state.nested, blackhole);
+    }
+
+    @Benchmark
+    public void filteredEntriesFlat(MultiDMapState state, Blackhole blackhole) {
+        state.flat.entrySet().stream()
+                .filter(entry -> (Integer) entry.getKey().get(0) % 2 == 0)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void filteredEntriesNested(MultiDMapState state, Blackhole blackhole) {
+        for (Map.Entry<Object, Object> entry : state.nested.entrySet()) {
+            if ((Integer) entry.getKey() % 2 != 0)
+                continue;
+            if (entry.getValue() instanceof Map)
+                consumeNested(entry.getValue(), blackhole);
+            else
+                blackhole.consume(entry);
+        }
+    }
+
+    @Benchmark
+    public boolean equalsCopyFlat(MultiDMapState state) {
+        return state.flat.equals(state.flatCopy);
+    }
+
+    @Benchmark
+    public boolean equalsCopyNested(MultiDMapState state) {
+        return state.nested.equals(state.nestedCopy);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void consumeNested(Object node, Blackhole blackhole) {
+        for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) node).entrySet()) {
+            if (entry.getValue() instanceof Map)
+                consumeNested(entry.getValue(), blackhole);
+            else
+                blackhole.consume(entry);
+        }
+    }
+}
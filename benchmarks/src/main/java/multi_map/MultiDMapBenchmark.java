@@ -0,0 +1,84 @@
+package multi_map;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the main operations of {@link MultiDMap1}, {@link MultiDMap2} and {@link MultiDMap3},
+ * see {@link MultiDMapState} for the data.  Operations on single entries use a different entry
+ * of the map at each call, and leave the content of the map unchanged.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiDMapBenchmark {
+
+    @Benchmark
+    public Object get(MultiDMapState state) {
+        return state.map.get(state.keys[state.next()]);
+    }
+
+    /**
+     * Replaces the value of an entry with the same value.
+     */
+    @Benchmark
+    public Object put(MultiDMapState state) {
+        return state.map.put(state.entries[state.next()]);
+    }
+
+    /**
+     * Removes an entry and puts it back, pruning and creating the submaps it is alone in.
+     */
+    @Benchmark
+    public Object removeAndPut(MultiDMapState state) {
+        int i = state.next();
+        state.map.remove(state.keys[i]);
+        return state.map.put(state.entries[i]);
+    }
+
+    /**
+     * Puts every entry of the sample one by one, each walking down from the top level.
+     */
+    @Benchmark
+    public void putAll(MultiDMapState state) {
+        for (Object[] entry : state.entries)
+            state.map.put(entry);
+    }
+
+    /**
+     * Puts the same entries as {@link #putAll} in a {@link MultiDMap.Batch}, which walks down
+     * each inner map once.
+     */
+    @Benchmark
+    public void putAllBatched(MultiDMapState state) {
+        MultiDMap.Batch batch = state.map.batch();
+        for (Object[] entry : state.entries)
+            batch.put(entry);
+        batch.apply();
+    }
+
+    @Benchmark
+    public void entries(MultiDMapState state, Blackhole blackhole) {
+        state.map.entries().forEach(blackhole::consume);
+    }
+
+    /**
+     * Keeps the entries whose first key is even, about half of the map.
+     */
+    @Benchmark
+    public void filteredEntries(MultiDMapState state, Blackhole blackhole) {
+        state.map.filteredEntries(keys -> (Integer) keys[0] % 2 == 0).forEach(blackhole::consume);
+    }
+
+    /**
+     * Compares equal maps, the worst case as every entry has to be compared.
+     */
+    @Benchmark
+    public boolean equalsCopy(MultiDMapState state) {
+        return state.map.equals(state.copy);
+    }
+}
@@ -0,0 +1,136 @@
+package multi_map;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The maps measured by the benchmarks, a {@link MultiDMap} and the same entries held by the
+ * usual alternatives: a HashMap keyed by lists of keys and HashMaps nested one per level.
+ * The data is generated by {@link MultiDFiller}, either every combination of keys or keys
+ * drawn with a Zipf skew.
+ */
+@State(Scope.Benchmark)
+public class MultiDMapState {
+
+    public enum Profile {
+        /** Every key of every level, width^dimensions entries */
+        UNIFORM,
+        /** As many puts as UNIFORM, keys drawn from a Zipf distribution so a few submaps are large */
+        SKEWED
+    }
+
+    // Number of entries the operations are applied to in turn, a power of 2
+    static final int LOOKUPS = 1024;
+
+    @Param({"1", "2", "3"})
+    public int dimensions;
+
+    @Param({"16", "64"})
+    public int width;
+
+    @Param({"UNIFORM", "SKEWED"})
+    public Profile profile;
+
+    MultiDMap map;
+    MultiDMap copy;
+    Map<List<Object>, Object> flat;
+    Map<List<Object>, Object> flatCopy;
+    Map<Object, Object> nested;
+    Map<Object, Object> nestedCopy;
+
+    // Entries of the maps, with their keys alone, picked at random
+    Object[][] entries;
+    Object[][] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        map = newMap(dimensions);
+        if (profile == Profile.UNIFORM)
+            MultiDFiller.completeFill(map, width);
+        else
+            MultiDFiller.skewedFill(map, width, (int) Math.pow(width, dimensions), 1.1, 42);
+
+        copy = newMap(dimensions);
+        flat = new HashMap<>();
+        nested = new HashMap<>();
+        nestedCopy = new HashMap<>();
+        map.entries().forEach(
+                entry -> {
+                    copy.put(entry.clone());
+                    flat.put(Arrays.asList(Arrays.copyOf(entry, dimensions)), entry[dimensions]);
+                    putNested(nested, entry);
+                    putNested(nestedCopy, entry);
+                }
+        );
+        flatCopy = new HashMap<>(flat);
+
+        List<Object[]> all = map.entries().collect(Collectors.toList());
+        Random random = new Random(7);
+        entries = new Object[LOOKUPS][];
+        keys = new Object[LOOKUPS][];
+        for (int i = 0; i < LOOKUPS; ++i) {
+            entries[i] = all.get(random.nextInt(all.size()));
+            keys[i] = Arrays.copyOf(entries[i], dimensions);
+        }
+    }
+
+    /**
+     * @return  the index of the next entry to use
+     */
+    int next() {
+        return next++ & (LOOKUPS - 1);
+    }
+
+    static MultiDMap newMap(int dimensions) {
+        switch (dimensions) {
+            case 1:
+                return new MultiDMap1<>();
+            case 2:
+                return new MultiDMap2<>();
+            case 3:
+                return new MultiDMap3<>();
+            default:
+                throw new IllegalArgumentException("dimensions must be between 1 and 3, got " + dimensions);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object getNested(Map<Object, Object> nested, Object[] keys) {
+        Object node = nested;
+        for (Object key : keys) {
+            node = ((Map<Object, Object>) node).get(key);
+            if (node == null)
+                return null;
+        }
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object putNested(Map<Object, Object> nested, Object[] entry) {
+        Map<Object, Object> node = nested;
+        int last = entry.length - 2;
+        for (int level = 0; level < last; ++level)
+            node = (Map<Object, Object>) node.computeIfAbsent(entry[level], key -> new HashMap<>());
+        return node.put(entry[last], entry[last + 1]);
+    }
+
+    /**
+     * Removes a value, and the maps it leaves empty.
+     */
+    @SuppressWarnings("unchecked")
+    static Object removeNested(Map<Object, Object> node, Object[] keys, int level) {
+        if (level == keys.length - 1)
+            return node.remove(keys[level]);
+
+        Map<Object, Object> inner = (Map<Object, Object>) node.get(keys[level]);
+        if (inner == null)
+            return null;
+        Object removed = removeNested(inner, keys, level + 1);
+        if (inner.isEmpty())
+            node.remove(keys[level]);
+        return removed;
+    }
+}
@@ -0,0 +1,201 @@
+package multi_map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * A multi-level map of bounded weight, for use as a cache.  When a put makes the map heavier than
+ * its maximum weight, entries are evicted until it isn't.  The weight of a value is given by a
+ * weigher, or is 1 without one, in which case the maximum weight is a maximum number of values.
+ *
+ * Entries are evicted either one value at a time or a whole top level key at a time, the weight
+ * of a top level key being that of all the values below it.  The choice of what to evict follows
+ * one of the {@link Policy}s.  The entries live in an ordinary {@link MultiDMap} so sizes are
+ * exact at all times, evicted values included.
+ *
+ * As with {@link MultiDMap}, the submaps returned by the gets given fewer keys than dimensions
+ * are live views: changes made through them are neither weighed nor taken into account for
+ * eviction.  Instances are not thread safe.
+ */
+public abstract class BoundedMultiDMap {
+
+    public enum Policy {
+        /** Evicts the least recently used entries */
+        LRU,
+        /** Evicts the entries least likely to be used again, from their recency and frequency of use */
+        W_TINY_LFU
+    }
+
+    public enum Granularity {
+        /** Evicts one value at a time */
+        LEAF,
+        /** Evicts a top level key and all the values below it at a time */
+        TOP_LEVEL_KEY
+    }
+
+    protected final MultiDMap map;
+    private final Granularity granularity;
+    private final ToLongFunction<Object[]> weigher;
+    private final MultiDEvictor evictor;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param map           Empty map holding the entries
+     * @param maximumWeight Maximum weight of all the values
+     * @param policy        How the entries to evict are chosen
+     * @param granularity   What is evicted at once
+     * @param weigher       Weight of an entry, given as an array holding its keys then its value,
+     *                      or null for every value to weigh 1
+     */
+    protected BoundedMultiDMap(MultiDMap map, long maximumWeight, Policy policy, Granularity granularity,
+                               ToLongFunction<Object[]> weigher) {
+        this.map = map;
+        this.granularity = granularity;
+        this.weigher = weigher;
+        this.evictor = new MultiDEvictor(maximumWeight, policy == Policy.W_TINY_LFU);
+    }
+
+    public int getDimensions() { return map.getDimensions(); }
+
+    /**
+     * The number of values with distinct keys in the instance.
+     * @return  The number of values contained
+     */
+    public int getSize() { return map.getSize(); }
+
+    /**
+     * @return  Total weight of the values held
+     */
+    public long getWeight() { return evictor.getWeight(); }
+
+    public CacheStats stats() {
+        return new CacheStats(hits, misses, evictions);
+    }
+
+    /**
+     * Implementation of internal get logic.  A get finding something counts as a use of what it
+     * found, except of the values below a submap when evicting single values.
+     *
+     * @param keys  Array of keys, at most one for each level of the instance
+     * @return      Value or submap found in innermost map
+     */
+    protected Object get(Object... keys) {
+        Object found = map.get(keys);
+        if (found == null) {
+            ++misses;
+            return null;
+        }
+
+        ++hits;
+        if (granularity == Granularity.TOP_LEVEL_KEY)
+            evictor.touch(keys[0]);
+        else if (keys.length == getDimensions())
+            evictor.touch(Arrays.asList(keys));
+        return found;
+    }
+
+    /**
+     * Implementation of internal put logic, evicting entries if the map becomes too heavy.
+     *
+     * @param   o Array containing keys for each level of the map and the relevant value.
+     * @return  if there was already a value at the specified key, that value is returned, otherwise null
+     */
+    protected Object put(Object... o) {
+        if (o.length != getDimensions() + 1)
+            throw new IllegalArgumentException(
+                    "incorrect number of arguments, must be " + (getDimensions() + 1) + ", got " + o.length);
+
+        long weight = weigh(o);
+        Object old = map.put(o);
+        if (old != null) {
+            Object[] replaced = o.clone();
+            replaced[getDimensions()] = old;
+            weight -= weigh(replaced);
+        }
+
+        Object unit = granularity == Granularity.TOP_LEVEL_KEY ? o[0] : Arrays.asList(Arrays.copyOf(o, getDimensions()));
+        evictor.record(unit, weight);
+
+        for (Object victim; (victim = evictor.nextVictim()) != null; ) {
+            evictions += granularity == Granularity.TOP_LEVEL_KEY
+                    ? map.remove(victim)
+                    : map.remove(((List<?>) victim).toArray());
+        }
+        return old;
+    }
+
+    /**
+     * Removes a value or an entire submap, which isn't counted as an eviction.
+     *
+     * @param keys  Array of keys identifying what is to be deleted
+     * @return      Number of values removed
+     */
+    protected int remove(Object... keys) {
+        Object found = map.get(keys);
+        if (found == null)
+            return 0;
+
+        if (granularity == Granularity.TOP_LEVEL_KEY && keys.length == 1) {
+            evictor.forget(keys[0]);
+            return map.remove(keys);
+        }
+
+        // Collect the values going away, to unweigh them or forget them
+        List<Object[]> removed = new ArrayList<>();
+        if (keys.length == getDimensions()) {
+            Object[] entry = Arrays.copyOf(keys, keys.length + 1);
+            entry[keys.length] = found;
+            removed.add(entry);
+        } else {
+            ((MultiDMap) found).forEachInner(
+                    (k, value) -> {
+                        Object[] entry = Arrays.copyOf(k, k.length + 1);
+                        entry[k.length] = value;
+                        removed.add(entry);
+                        return true;
+                    },
+                    Arrays.copyOf(keys, getDimensions()), keys.length);
+        }
+
+        int count = map.remove(keys);
+        if (granularity == Granularity.TOP_LEVEL_KEY) {
+            if (map.get(keys[0]) == null) {
+                evictor.forget(keys[0]);
+            } else {
+                long weight = 0;
+                for (Object[] entry : removed)
+                    weight += weigh(entry);
+                evictor.reweigh(keys[0], -weight);
+            }
+        } else {
+            for (Object[] entry : removed)
+                evictor.forget(Arrays.asList(Arrays.copyOf(entry, getDimensions())));
+        }
+        return count;
+    }
+
+    /**
+     * Generate iterable of all key-values, similar to @{@link java.util.Map}'s entries method.
+     * Iterating doesn't count as a use of the entries.
+     *
+     * @return  Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    protected Stream<Object[]> entries() {
+        return map.entries();
+    }
+
+    private long weigh(Object[] entry) {
+        if (weigher == null)
+            return 1;
+        long weight = weigher.applyAsLong(entry);
+        if (weight < 0)
+            throw new IllegalArgumentException("weights can't be negative, got " + weight);
+        return weight;
+    }
+}
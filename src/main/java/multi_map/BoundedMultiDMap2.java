@@ -0,0 +1,33 @@
+package multi_map;
+
+import java.util.function.ToLongFunction;
+
+@SuppressWarnings("unchecked")
+public class BoundedMultiDMap2<K1,K2,V> extends BoundedMultiDMap {
+
+    /**
+     * Creates a map holding at most the given number of values.
+     */
+    public BoundedMultiDMap2(int maximumSize, Policy policy, Granularity granularity) {
+        this(maximumSize, policy, granularity, null);
+    }
+
+    /**
+     * @see BoundedMultiDMap#BoundedMultiDMap(MultiDMap, long, Policy, Granularity, ToLongFunction)
+     */
+    public BoundedMultiDMap2(long maximumWeight, Policy policy, Granularity granularity, ToLongFunction<Object[]> weigher) {
+        super(new MultiDMap2<K1,K2,V>(), maximumWeight, policy, granularity, weigher);
+    }
+
+    public V put(K1 k1, K2 k2, V v) {
+        return (V) super.put(k1, k2, v);
+    }
+
+    public V get(K1 k1, K2 k2) { return (V) super.get(k1, k2); }
+
+    public MultiDMap1<K2,V> get(K1 k1) { return (MultiDMap1<K2, V>) super.get(k1); }
+
+    public int remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public int remove(K1 k1) { return super.remove(k1); }
+}
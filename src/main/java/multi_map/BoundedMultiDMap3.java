@@ -0,0 +1,37 @@
+package multi_map;
+
+import java.util.function.ToLongFunction;
+
+@SuppressWarnings("unchecked")
+public class BoundedMultiDMap3<K1,K2,K3,V> extends BoundedMultiDMap {
+
+    /**
+     * Creates a map holding at most the given number of values.
+     */
+    public BoundedMultiDMap3(int maximumSize, Policy policy, Granularity granularity) {
+        this(maximumSize, policy, granularity, null);
+    }
+
+    /**
+     * @see BoundedMultiDMap#BoundedMultiDMap(MultiDMap, long, Policy, Granularity, ToLongFunction)
+     */
+    public BoundedMultiDMap3(long maximumWeight, Policy policy, Granularity granularity, ToLongFunction<Object[]> weigher) {
+        super(new MultiDMap3<K1,K2,K3,V>(), maximumWeight, policy, granularity, weigher);
+    }
+
+    public V put(K1 k1, K2 k2, K3 k3, V v) {
+        return (V) super.put(k1, k2, k3, v);
+    }
+
+    public V get(K1 k1, K2 k2, K3 k3) { return (V) super.get(k1, k2, k3); }
+
+    public MultiDMap1<K3,V> get(K1 k1, K2 k2) { return (MultiDMap1<K3, V>) super.get(k1, k2); }
+
+    public MultiDMap2<K2,K3,V> get(K1 k1) { return (MultiDMap2<K2, K3, V>) super.get(k1); }
+
+    public int remove(K1 k1, K2 k2, K3 k3) { return super.remove(k1, k2, k3); }
+
+    public int remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public int remove(K1 k1) { return super.remove(k1); }
+}
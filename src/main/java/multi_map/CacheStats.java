@@ -0,0 +1,45 @@
+package multi_map;
+
+/**
+ * Counts of the lookups and evictions of a {@link BoundedMultiDMap}, taken at some point.
+ */
+public final class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    CacheStats(long hits, long misses, long evictions) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * @return  Number of gets which found a value or submap
+     */
+    public long getHits() { return hits; }
+
+    /**
+     * @return  Number of gets which found nothing
+     */
+    public long getMisses() { return misses; }
+
+    /**
+     * @return  Number of values evicted, counting every value of an evicted submap
+     */
+    public long getEvictions() { return evictions; }
+
+    /**
+     * @return  Proportion of gets which found a value or submap, 1 if there was no get
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+    }
+}
@@ -0,0 +1,109 @@
+package multi_map;
+
+import java.util.Arrays;
+
+/**
+ * A chunk of the entries of a {@link MultiDMap} laid out in columns, as produced by
+ * {@link MultiDColumnExport}: one column per dimension, from the top level down, then the value
+ * column.  A column is an int[], long[] or double[] when its codec has a
+ * {@link MultiDCodec#primitiveType() primitive type}, an Object[] otherwise.
+ *
+ * The arrays are the batch's capacity long, only the first {@link #size()} rows hold entries.
+ * When batches are streamed, the same instance and arrays are refilled for every batch.
+ */
+public final class ColumnBatch {
+
+    private final Object[] columns;
+    private final Class<?>[] types;
+    private final int capacity;
+    private int size = 0;
+
+    ColumnBatch(MultiDCodec<?>[] codecs, int capacity) {
+        columns = new Object[codecs.length];
+        types = new Class<?>[codecs.length];
+        this.capacity = capacity;
+        for (int i = 0; i < codecs.length; ++i) {
+            Class<?> type = codecs[i] == null ? null : codecs[i].primitiveType();
+            if (type == int.class)
+                columns[i] = new int[capacity];
+            else if (type == long.class)
+                columns[i] = new long[capacity];
+            else if (type == double.class)
+                columns[i] = new double[capacity];
+            else
+                columns[i] = new Object[capacity];
+            types[i] = columns[i].getClass().getComponentType();
+        }
+    }
+
+    /**
+     * @return  The number of entries held
+     */
+    public int size() { return size; }
+
+    /**
+     * @return  The number of entries the columns can hold
+     */
+    public int capacity() { return capacity; }
+
+    /**
+     * @return  The number of columns, the dimensions of the map plus one
+     */
+    public int getColumnCount() { return columns.length; }
+
+    /**
+     * @return  The index of the value column, after the key columns
+     */
+    public int getValueColumn() { return columns.length - 1; }
+
+    /**
+     * @return  The component type of a column: int.class, long.class, double.class or Object.class
+     */
+    public Class<?> getColumnType(int column) { return types[column]; }
+
+    /**
+     * @return  The array holding a column
+     */
+    public Object getColumn(int column) { return columns[column]; }
+
+    public int[] getIntColumn(int column) { return (int[]) checkType(column, int.class); }
+
+    public long[] getLongColumn(int column) { return (long[]) checkType(column, long.class); }
+
+    public double[] getDoubleColumn(int column) { return (double[]) checkType(column, double.class); }
+
+    public Object[] getObjectColumn(int column) { return (Object[]) checkType(column, Object.class); }
+
+    private Object checkType(int column, Class<?> type) {
+        if (types[column] != type)
+            throw new IllegalArgumentException("column " + column + " holds " + types[column] + " values, not " + type);
+        return columns[column];
+    }
+
+    /**
+     * Writes a key or value at a row.  Primitive columns unbox it, so it must not be null.
+     */
+    void set(int column, int row, Object value) {
+        Class<?> type = types[column];
+        if (type == Object.class)
+            ((Object[]) columns[column])[row] = value;
+        else if (type == int.class)
+            ((int[]) columns[column])[row] = (Integer) value;
+        else if (type == long.class)
+            ((long[]) columns[column])[row] = (Long) value;
+        else
+            ((double[]) columns[column])[row] = (Double) value;
+    }
+
+    void setSize(int size) { this.size = size; }
+
+    /**
+     * Drops the references held by the rows past the size, left from an earlier batch.
+     */
+    void clearTail() {
+        for (Object column : columns) {
+            if (column instanceof Object[])
+                Arrays.fill((Object[]) column, size, ((Object[]) column).length, null);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package multi_map;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * The map holding the keys of a level of a {@link MultiDMap}, laid out for the small maps most
+ * inner levels are.
+ *
+ * Keys and values are interleaved in a single array.  Up to {@link #LINEAR_MAX} entries the
+ * array is simply scanned: a map of one entry is then an object and an array of two references,
+ * where a HashMap needs a table of 16 buckets and an object per entry.  Past that the array
+ * becomes an open addressing hash table with linear probing and backward shift deletion, so
+ * large levels still have constant time lookups, without entry objects either.  The table
+ * shrinks as entries are removed, back to the scanned layout below {@link #SHRINK_BELOW}
+ * entries, the gap between the two thresholds preventing a map from switching back and forth.
+ *
+ * Null keys and values are supported, as by HashMap.  The entry, key and value iterators support
+ * removal; as for HashMap, other changes of the map while iterating aren't.
+ */
+final class CompactMap extends AbstractMap<Object, Object> {
+
+    /**
+     * Maximum number of entries held in the scanned layout.
+     */
+    static final int LINEAR_MAX = 8;
+
+    /**
+     * Number of entries below which a hash table goes back to the scanned layout.
+     */
+    static final int SHRINK_BELOW = 4;
+
+    // Smallest number of slots of the hash table, so that LINEAR_MAX + 1 entries fill it by half
+    private static final int MIN_CAPACITY = 16;
+
+    // Stands for the null key, null marking free slots
+    private static final Object NULL_KEY = new Object();
+    private static final Object[] EMPTY = {};
+
+    // Scanned layout: the first 2 * size positions hold the entries, the length being at most
+    // 2 * LINEAR_MAX.  Hash layout: 2 positions per slot, a slot being free when its key is null.
+    private Object[] table;
+    private int size;
+
+    CompactMap() {
+        table = EMPTY;
+    }
+
+    /**
+     * @param expectedSize  Number of entries the map is expected to hold
+     */
+    CompactMap(int expectedSize) {
+        if (expectedSize <= 0)
+            table = EMPTY;
+        else if (expectedSize <= LINEAR_MAX)
+            table = new Object[2 * expectedSize];
+        else
+            table = new Object[2 * capacityFor(expectedSize)];
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while ((long) capacity * 3 / 4 < entries)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    private static boolean hashed(Object[] table) {
+        return table.length > 2 * LINEAR_MAX;
+    }
+
+    private static Object mask(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static Object unmask(Object key) {
+        return key == NULL_KEY ? null : key;
+    }
+
+    /**
+     * @return  the home slot of a key in a table of the given power of 2 number of slots
+     */
+    private static int slot(Object key, int capacity) {
+        return (key.hashCode() * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(capacity) + 1);
+    }
+
+    /**
+     * @param key   Masked key
+     * @return      the position of the key in the table, or -1 if absent
+     */
+    private int indexOf(Object key) {
+        Object[] tab = table;
+        if (!hashed(tab)) {
+            for (int i = 0, end = 2 * size; i < end; i += 2) {
+                if (tab[i] == key || key.equals(tab[i]))
+                    return i;
+            }
+            return -1;
+        }
+
+        int capacity = tab.length >> 1;
+        for (int s = slot(key, capacity); ; s = (s + 1) & (capacity - 1)) {
+            Object stored = tab[2 * s];
+            if (stored == null)
+                return -1;
+            if (stored == key || key.equals(stored))
+                return 2 * s;
+        }
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(mask(key)) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = indexOf(mask(key));
+        return i < 0 ? null : table[i + 1];
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        Object masked = mask(key);
+        int i = indexOf(masked);
+        if (i >= 0) {
+            Object old = table[i + 1];
+            table[i + 1] = value;
+            return old;
+        }
+
+        if (!hashed(table)) {
+            if (size < LINEAR_MAX) {
+                if (2 * size == table.length)
+                    table = Arrays.copyOf(table, Math.min(Math.max(2, 2 * table.length), 2 * LINEAR_MAX));
+                table[2 * size] = masked;
+                table[2 * size + 1] = value;
+                ++size;
+                return null;
+            }
+            rehash(MIN_CAPACITY);
+        } else if (size + 1 > (table.length >> 1) * 3 / 4) {
+            rehash(table.length);
+        }
+
+        insert(masked, value);
+        ++size;
+        return null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int i = indexOf(mask(key));
+        if (i < 0)
+            return null;
+
+        Object old = table[i + 1];
+        --size;
+        if (!hashed(table)) {
+            // The last entry fills the gap
+            int last = 2 * size;
+            table[i] = table[last];
+            table[i + 1] = table[last + 1];
+            table[last] = null;
+            table[last + 1] = null;
+            return old;
+        }
+
+        delete(i >> 1);
+        int capacity = table.length >> 1;
+        if (size < SHRINK_BELOW)
+            toLinear();
+        else if (capacity > MIN_CAPACITY && size < capacity / 8)
+            rehash(capacity / 2);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        table = EMPTY;
+        size = 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Object, ? super Object> action) {
+        Object[] tab = table;
+        int end = hashed(tab) ? tab.length : 2 * size;
+        for (int i = 0; i < end; i += 2) {
+            if (tab[i] != null)
+                action.accept(unmask(tab[i]), tab[i + 1]);
+        }
+    }
+
+    /**
+     * Walks the positions of the entries without creating anything, and so can stop anywhere:
+     *
+     * <pre>
+     *     for (int i = map.firstSlot(); i >= 0; i = map.nextSlot(i))
+     *         use(map.keyAt(i), map.valueAt(i));
+     * </pre>
+     *
+     * The map must not change during the walk.
+     *
+     * @return  the position of the first entry, or -1 if the map is empty
+     */
+    int firstSlot() {
+        return nextSlot(-2);
+    }
+
+    /**
+     * @param slot  Position of an entry
+     * @return      the position of the entry after it, or -1 if it was the last one
+     */
+    int nextSlot(int slot) {
+        Object[] tab = table;
+        int end = hashed(tab) ? tab.length : 2 * size;
+        for (int i = slot + 2; i < end; i += 2) {
+            if (tab[i] != null)
+                return i;
+        }
+        return -1;
+    }
+
+    Object keyAt(int slot) { return unmask(table[slot]); }
+
+    Object valueAt(int slot) { return table[slot + 1]; }
+
+    /**
+     * Adds a key known to be absent to the hash table, which has a free slot.
+     */
+    private void insert(Object key, Object value) {
+        Object[] tab = table;
+        int capacity = tab.length >> 1;
+        int s = slot(key, capacity);
+        while (tab[2 * s] != null)
+            s = (s + 1) & (capacity - 1);
+        tab[2 * s] = key;
+        tab[2 * s + 1] = value;
+    }
+
+    /**
+     * Frees a slot of the hash table, moving back the entries after it which can't be found
+     * anymore once it is free.
+     */
+    private void delete(int hole) {
+        Object[] tab = table;
+        int mask = (tab.length >> 1) - 1;
+        tab[2 * hole] = null;
+        tab[2 * hole + 1] = null;
+
+        for (int j = (hole + 1) & mask; tab[2 * j] != null; j = (j + 1) & mask) {
+            int home = slot(tab[2 * j], mask + 1);
+            // The entry can fill the hole if the hole lies between its home slot and its slot
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                tab[2 * hole] = tab[2 * j];
+                tab[2 * hole + 1] = tab[2 * j + 1];
+                tab[2 * j] = null;
+                tab[2 * j + 1] = null;
+                hole = j;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        Object[] old = table;
+        int end = hashed(old) ? old.length : 2 * size;
+        table = new Object[2 * capacity];
+        for (int i = 0; i < end; i += 2) {
+            if (old[i] != null)
+                insert(old[i], old[i + 1]);
+        }
+    }
+
+    private void toLinear() {
+        Object[] old = table;
+        table = new Object[2 * SHRINK_BELOW];
+        int next = 0;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != null) {
+                table[next++] = old[i];
+                table[next++] = old[i + 1];
+            }
+        }
+    }
+
+    /**
+     * @return  estimate of the bytes held by this map, entries excluded, on a 64 bit JVM with
+     *          compressed references
+     */
+    long estimatedBytes() {
+        return 24 + (table.length == 0 ? 0 : 16 + 4L * table.length);
+    }
+
+    @Override
+    public Set<Entry<Object, Object>> entrySet() {
+        return new AbstractSet<Entry<Object, Object>>() {
+            @Override
+            public int size() { return size; }
+
+            @Override
+            public void clear() { CompactMap.this.clear(); }
+
+            @Override
+            public Iterator<Entry<Object, Object>> iterator() {
+                return new SlotIterator<Entry<Object, Object>>() {
+                    @Override
+                    Entry<Object, Object> at(Object[] traversal, int i) {
+                        return new CompactEntry(unmask(traversal[i]), traversal[i + 1]);
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Set<Object> keySet() {
+        return new AbstractSet<Object>() {
+            @Override
+            public int size() { return size; }
+
+            @Override
+            public boolean contains(Object key) { return containsKey(key); }
+
+            @Override
+            public void clear() { CompactMap.this.clear(); }
+
+            @Override
+            public Iterator<Object> iterator() {
+                return new SlotIterator<Object>() {
+                    @Override
+                    Object at(Object[] traversal, int i) { return unmask(traversal[i]); }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return new AbstractCollection<Object>() {
+            @Override
+            public int size() { return size; }
+
+            @Override
+            public void clear() { CompactMap.this.clear(); }
+
+            @Override
+            public Iterator<Object> iterator() {
+                return new SlotIterator<Object>() {
+                    @Override
+                    Object at(Object[] traversal, int i) { return traversal[i + 1]; }
+                };
+            }
+        };
+    }
+
+    /**
+     * Iterates over the positions of the table holding entries.  Moving or shrinking the entries
+     * on removal would make it skip or repeat some of them, so the first removal makes it go on
+     * over a copy of the table, left as it was.
+     */
+    private abstract class SlotIterator<T> implements Iterator<T> {
+        private Object[] traversal = table;
+        private final int end = hashed(traversal) ? traversal.length : 2 * size;
+        private int next = advance(0);
+        private int last = -1;
+
+        abstract T at(Object[] traversal, int i);
+
+        private int advance(int i) {
+            while (i < end && traversal[i] == null)
+                i += 2;
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public T next() {
+            if (next >= end)
+                throw new NoSuchElementException();
+            last = next;
+            next = advance(next + 2);
+            return at(traversal, last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0)
+                throw new IllegalStateException();
+            if (traversal == table)
+                traversal = traversal.clone();
+            CompactMap.this.remove(unmask(traversal[last]));
+            last = -1;
+        }
+    }
+
+    private final class CompactEntry extends SimpleEntry<Object, Object> {
+        private static final long serialVersionUID = 1L;
+
+        CompactEntry(Object key, Object value) {
+            super(key, value);
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
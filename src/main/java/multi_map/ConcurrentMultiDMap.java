@@ -0,0 +1,166 @@
+package multi_map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * A thread safe multi-level map.
+ *
+ * Every level is a {@link ConcurrentHashMap}, so readers never block.  A write descends through
+ * {@link ConcurrentHashMap#compute} on the key of each level, which means that all writes below a
+ * given top level key are serialized on that key's bin while writes below other top level keys
+ * proceed in parallel.  Inner maps are created and pruned inside that same compute, so a remove
+ * which empties a submap can never drop a value a racing put has just placed there.
+ *
+ * Sizes are kept in {@link LongAdder}s.  Like {@link ConcurrentHashMap#size()} they are exact when
+ * the map is quiescent and an estimate while writes are in flight.  Null values are not permitted.
+ */
+public abstract class ConcurrentMultiDMap {
+
+    protected final ConcurrentMap<Object, Object> data = new ConcurrentHashMap<>();
+    private final int dimensions;
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Creates an 'inner' map suitable for use as the value entry of data.
+     *
+     * @return ConcurrentMultiDMap
+     */
+    protected abstract ConcurrentMultiDMap createInnerMap();
+
+    protected ConcurrentMultiDMap(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    public int getDimensions() { return dimensions; }
+
+    /**
+     * The number of values with distinct keys in the instance.
+     * @return  The number of values contained
+     */
+    public int getSize() { return size.intValue(); }
+
+    /**
+     * Implementation of internal get logic.  Never blocks.
+     * @param keys  Array of keys, one for each level of the instance
+     * @return      Value or submap found in innermost map
+     */
+    protected Object get(Object... keys) {
+        if (keys.length > dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, accepts at most " + dimensions + ", got " + keys.length);
+        return getInner(dimensions, keys);
+    }
+
+    protected Object getInner(int maxDimensions, Object... keys) {
+        int keyPos = maxDimensions - dimensions;
+        Object sub = data.get(keys[keyPos]);
+        if (sub == null || keyPos == keys.length - 1)
+            return sub;
+
+        return ((ConcurrentMultiDMap) sub).getInner(maxDimensions, keys);
+    }
+
+    /**
+     * Implementation of internal put logic.
+     *
+     * @param   o Array containing keys for each level of the map and the relevant value.
+     * @return  if there was already a value at the specified key, that value is returned, otherwise null
+     */
+    protected Object put(Object... o) {
+        if (o.length != dimensions + 1)
+            throw new IllegalArgumentException(
+                    "incorrect number of arguments, must be " + (dimensions+1) + ", got " + o.length);
+
+        Object[] previous = new Object[1];
+        putInner(o, previous);
+        return previous[0];
+    }
+
+    /**
+     * Implements the putting operation.  The inner map is created, if needed, and updated while
+     * holding the lock on this level's key, and so are all the levels below it.
+     *
+     * @param o         Array containing keys for each level of the map and the relevant value.
+     * @param previous  Single element array receiving the value replaced, if any
+     */
+    protected void putInner(Object[] o, Object[] previous) {
+        int keyPos = o.length - 1 - dimensions;
+        data.compute(o[keyPos], (key, inner) -> {
+            ConcurrentMultiDMap innerMap = inner == null ? createInnerMap() : (ConcurrentMultiDMap) inner;
+            innerMap.putInner(o, previous);
+            return innerMap;
+        });
+
+        if (previous[0] == null)
+            size.increment();
+    }
+
+    /**
+     * Removes a value or an entire submap of this instance.  If the number of keys supplied
+     * is less than the number of dimensions the submap found with those keys will be removed.
+     *
+     * @param keys  Array of keys identifying what is to be deleted
+     * @return      Number of values removed
+     */
+    protected int remove(Object... keys) {
+        if (keys.length > dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, accepts at most " + dimensions + ", got " + keys.length);
+
+        return removeInner(dimensions, keys);
+    }
+
+    /**
+     * Internal implementation of removal.  Submaps left empty are removed inside the compute of
+     * their key, so the check for emptiness and the removal are atomic with respect to puts.
+     *
+     * @param maxDimensions Number of dimensions of the top level ConcurrentMultiDMap
+     * @param keys          Array of keys identifying what is to be deleted
+     * @return              Number of values removed
+     */
+    protected int removeInner(int maxDimensions, Object... keys) {
+        int pos = maxDimensions - dimensions;
+        int removed;
+        if (keys.length - 1 == pos) {
+            Object inner = data.remove(keys[pos]);
+            if (inner == null)
+                return 0;
+            removed = ((ConcurrentMultiDMap) inner).getSize();
+        } else {
+            int[] count = {0};
+            data.computeIfPresent(keys[pos], (key, inner) -> {
+                ConcurrentMultiDMap innerMap = (ConcurrentMultiDMap) inner;
+                count[0] = innerMap.removeInner(maxDimensions, keys);
+                return innerMap.getSize() == 0 ? null : innerMap;
+            });
+            removed = count[0];
+        }
+
+        size.add(-removed);
+        return removed;
+    }
+
+    /**
+     * Generate iterable of all key-values, similar to @{@link java.util.Map}'s entries method.
+     * The stream is weakly consistent, it reflects some of the writes made while it is consumed.
+     *
+     * @return  Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    protected Stream<Object[]> entries() {
+        return constructiveEntries(dimensions);
+    }
+
+    protected Stream<Object[]> constructiveEntries(int maxDimensions) {
+        return data.entrySet().stream().flatMap(
+                entry -> ((ConcurrentMultiDMap) entry.getValue()).constructiveEntries(maxDimensions).map(
+                        array -> {
+                            array[maxDimensions - dimensions] = entry.getKey();
+                            return array;
+                        }
+                )
+        );
+    }
+}
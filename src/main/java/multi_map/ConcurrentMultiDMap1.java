@@ -0,0 +1,67 @@
+package multi_map;
+
+import java.util.stream.Stream;
+
+@SuppressWarnings("unchecked")
+public class ConcurrentMultiDMap1<K1,V> extends ConcurrentMultiDMap {
+
+    @Override
+    protected ConcurrentMultiDMap createInnerMap() {
+        throw new RuntimeException("Inner-most map cannot create an inner map");
+    }
+
+    public ConcurrentMultiDMap1() {
+        super(1);
+    }
+
+    public int getSize() { return data.size(); }
+
+    /**
+     * Overrides @{@link ConcurrentMultiDMap} implementation.  Not to be used by other callers.
+     */
+    protected Object getInner(int maxDimensions, Object... keys) {
+        return data.get(keys[keys.length - 1]);
+    }
+
+    public V get(K1 k1) { return (V) data.get(k1); }
+
+    /**
+     * Overrides @{@link ConcurrentMultiDMap} implementation.  Not to be used by other callers.
+     */
+    protected void putInner(Object[] o, Object[] previous) {
+        previous[0] = data.put(o[o.length - 2], o[o.length - 1]);
+    }
+
+    public V put(K1 k1, V v) {
+        return (V) data.put(k1, v);
+    }
+
+    public int remove(K1 k1) {
+        return data.remove(k1) == null ? 0 : 1;
+    }
+
+    /**
+     * Overrides @{@link ConcurrentMultiDMap} implementation.  Not to be used by other callers.
+     */
+    protected int removeInner(int maxDimensions, Object... keys) {
+        return data.remove(keys[keys.length - 1]) == null ? 0 : 1;
+    }
+
+    /**
+     * Overrides @{@link ConcurrentMultiDMap} implementation.  Not to be used by other callers.
+     */
+    protected Stream<Object[]> entries() {
+        return constructiveEntries(1);
+    }
+
+    protected Stream<Object[]> constructiveEntries(int maxDimensions) {
+        return data.entrySet().stream().map(
+                entry -> {
+                    Object[] result = new Object[maxDimensions + 1];
+                    result[maxDimensions] = entry.getValue();
+                    result[maxDimensions -1] = entry.getKey();
+                    return result;
+                }
+        );
+    }
+}
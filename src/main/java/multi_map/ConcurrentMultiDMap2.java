@@ -0,0 +1,34 @@
+package multi_map;
+
+/**
+ * Thread safe two dimensional map, see {@link ConcurrentMultiDMap}.
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentMultiDMap2<K1,K2,V> extends ConcurrentMultiDMap {
+
+    public ConcurrentMultiDMap2() {
+        super(2);
+    }
+
+    @Override
+    protected ConcurrentMultiDMap createInnerMap() {
+        return new ConcurrentMultiDMap1<K2,V>();
+    }
+
+    public V put(K1 k1, K2 k2, V v) {
+        return (V) super.put(k1, k2, v);
+    }
+
+    public V get(K1 k1, K2 k2) { return (V) super.get(k1, k2); }
+
+    /**
+     * The returned submap is live and safe to read concurrently.  Writes must go through this
+     * instance, a write made directly to the submap is not counted here and may be lost if the
+     * submap is pruned at the same time.
+     */
+    public ConcurrentMultiDMap1<K2,V> get(K1 k1) { return (ConcurrentMultiDMap1<K2, V>) super.get(k1); }
+
+    public int remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public int remove(K1 k1) { return super.remove(k1); }
+}
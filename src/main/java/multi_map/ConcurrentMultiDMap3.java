@@ -0,0 +1,41 @@
+package multi_map;
+
+/**
+ * Thread safe three dimensional map, see {@link ConcurrentMultiDMap}.
+ */
+@SuppressWarnings("unchecked")
+public class ConcurrentMultiDMap3<K1,K2,K3,V> extends ConcurrentMultiDMap {
+
+    public ConcurrentMultiDMap3() {
+        super(3);
+    }
+
+    @Override
+    protected ConcurrentMultiDMap createInnerMap() {
+        return new ConcurrentMultiDMap2<K2,K3,V>();
+    }
+
+    public V put(K1 k1, K2 k2, K3 k3, V v) {
+        return (V) super.put(k1, k2, k3, v);
+    }
+
+    public V get(K1 k1, K2 k2, K3 k3) {
+        return (V) super.get(k1, k2, k3);
+    }
+
+    /**
+     * The returned submap is live and safe to read concurrently, see {@link ConcurrentMultiDMap2#get(Object)}.
+     */
+    public ConcurrentMultiDMap1<K3,V> get(K1 k1, K2 k2) { return (ConcurrentMultiDMap1<K3, V>) super.get(k1, k2); }
+
+    /**
+     * The returned submap is live and safe to read concurrently, see {@link ConcurrentMultiDMap2#get(Object)}.
+     */
+    public ConcurrentMultiDMap2<K2,K3,V> get(K1 k1) { return (ConcurrentMultiDMap2<K2, K3, V>) super.get(k1); }
+
+    public int remove(K1 k1, K2 k2, K3 k3) { return super.remove(k1, k2, k3); }
+
+    public int remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public int remove(K1 k1) { return super.remove(k1); }
+}
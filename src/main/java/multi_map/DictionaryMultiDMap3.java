@@ -0,0 +1,172 @@
+package multi_map;
+
+import java.util.stream.Stream;
+
+/**
+ * Three dimensional map encoding the keys of each dimension with a {@link KeyDictionary}, for key
+ * spaces where the same keys appear under many parents.  The levels are {@link IntMultiDMap1}
+ * tables of ids, so each distinct key is held once per dimension rather than once per parent,
+ * and probing an inner level compares ints rather than calling equals on the keys.  Keys are
+ * decoded when the entries are listed.
+ *
+ * Looking up a key no dictionary holds misses without interning it.  The dictionaries only ever
+ * grow, see {@link KeyDictionary}.
+ */
+public class DictionaryMultiDMap3<K1,K2,K3,V> {
+
+    private final KeyDictionary<K1> dictionary1;
+    private final KeyDictionary<K2> dictionary2;
+    private final KeyDictionary<K3> dictionary3;
+    private final IntMultiDMap3<V> data = new IntMultiDMap3<>();
+
+    public DictionaryMultiDMap3() {
+        this(new KeyDictionary<>(), new KeyDictionary<>(), new KeyDictionary<>());
+    }
+
+    /**
+     * Creates a map encoding its keys with the given dictionaries, which may be shared with
+     * other maps.
+     */
+    public DictionaryMultiDMap3(KeyDictionary<K1> dictionary1, KeyDictionary<K2> dictionary2, KeyDictionary<K3> dictionary3) {
+        this.dictionary1 = dictionary1;
+        this.dictionary2 = dictionary2;
+        this.dictionary3 = dictionary3;
+    }
+
+    public int getDimensions() { return 3; }
+
+    /**
+     * The number of values with distinct keys in the instance.
+     * @return  The number of values contained
+     */
+    public int getSize() { return data.getSize(); }
+
+    /**
+     * @return  The dictionary of the keys of a dimension, 0 being the top level
+     */
+    public KeyDictionary<?> getDictionary(int dimension) {
+        switch (dimension) {
+            case 0:
+                return dictionary1;
+            case 1:
+                return dictionary2;
+            case 2:
+                return dictionary3;
+            default:
+                throw new IllegalArgumentException("dimension must be between 0 and 2, got " + dimension);
+        }
+    }
+
+    public V get(K1 k1, K2 k2, K3 k3) {
+        int id1 = dictionary1.find(k1);
+        int id2 = dictionary2.find(k2);
+        int id3 = dictionary3.find(k3);
+        return id1 < 0 || id2 < 0 || id3 < 0 ? null : data.get(id1, id2, id3);
+    }
+
+    public boolean containsKey(K1 k1, K2 k2, K3 k3) {
+        int id1 = dictionary1.find(k1);
+        int id2 = dictionary2.find(k2);
+        int id3 = dictionary3.find(k3);
+        return id1 >= 0 && id2 >= 0 && id3 >= 0 && data.containsKey(id1, id2, id3);
+    }
+
+    /**
+     * @return  if there was already a value at the specified keys, that value is returned, otherwise null
+     */
+    public V put(K1 k1, K2 k2, K3 k3, V v) {
+        return data.put(dictionary1.encode(k1), dictionary2.encode(k2), dictionary3.encode(k3), v);
+    }
+
+    /**
+     * @return  Number of values removed
+     */
+    public int remove(K1 k1, K2 k2, K3 k3) {
+        int id1 = dictionary1.find(k1);
+        int id2 = dictionary2.find(k2);
+        int id3 = dictionary3.find(k3);
+        return id1 < 0 || id2 < 0 || id3 < 0 ? 0 : data.remove(id1, id2, id3);
+    }
+
+    /**
+     * Removes the submap at k1, k2.
+     *
+     * @return  Number of values removed
+     */
+    public int remove(K1 k1, K2 k2) {
+        int id1 = dictionary1.find(k1);
+        int id2 = dictionary2.find(k2);
+        return id1 < 0 || id2 < 0 ? 0 : data.remove(id1, id2);
+    }
+
+    /**
+     * Removes the submap at k1.
+     *
+     * @return  Number of values removed
+     */
+    public int remove(K1 k1) {
+        int id1 = dictionary1.find(k1);
+        return id1 < 0 ? 0 : data.remove(id1);
+    }
+
+    /**
+     * Calls the visitor for every keys and value combination, walking the levels of ids directly
+     * and decoding each key once, as its level is entered, into an array shared for the whole
+     * traversal.
+     *
+     * @return  false if the visitor ended the traversal
+     */
+    public boolean forEach(EntryVisitor visitor) {
+        Object[] keys = new Object[3];
+        IntMultiDMap1<IntMultiDMap2<V>> level1 = data.topLevel();
+        for (int i = level1.firstSlot(); i >= 0; i = level1.nextSlot(i)) {
+            keys[0] = dictionary1.decode(level1.keyAt(i));
+            EntryVisitor.Action action = visitor.enterSubtree(keys, 0);
+            if (action == EntryVisitor.Action.STOP)
+                return false;
+            if (action == EntryVisitor.Action.SKIP)
+                continue;
+
+            IntMultiDMap1<IntMultiDMap1<V>> level2 = level1.valueAt(i).topLevel();
+            for (int j = level2.firstSlot(); j >= 0; j = level2.nextSlot(j)) {
+                keys[1] = dictionary2.decode(level2.keyAt(j));
+                action = visitor.enterSubtree(keys, 1);
+                if (action == EntryVisitor.Action.STOP)
+                    return false;
+                if (action == EntryVisitor.Action.SKIP)
+                    continue;
+
+                IntMultiDMap1<V> level3 = level2.valueAt(j);
+                for (int k = level3.firstSlot(); k >= 0; k = level3.nextSlot(k)) {
+                    keys[2] = dictionary3.decode(level3.keyAt(k));
+                    if (!visitor.visit(keys, level3.valueAt(k)))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generate iterable of all key-values, similar to @{@link java.util.Map}'s entries method.
+     *
+     * @return  Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    public Stream<Object[]> entries() {
+        return data.entries().map(entry -> new Object[] {
+                dictionary1.decode((Integer) entry[0]),
+                dictionary2.decode((Integer) entry[1]),
+                dictionary3.decode((Integer) entry[2]),
+                entry[3]
+        });
+    }
+
+    /**
+     * @return  a {@link MultiDMap3} holding the same entries, with the keys decoded
+     */
+    public MultiDMap3<K1,K2,K3,V> toMultiDMap() {
+        MultiDMap3<K1,K2,K3,V> result = new MultiDMap3<>();
+        data.forEach((id1, id2, id3, v) -> result.put(dictionary1.decode(id1), dictionary2.decode(id2), dictionary3.decode(id3), v));
+        return result;
+    }
+}
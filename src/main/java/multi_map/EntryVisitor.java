@@ -0,0 +1,39 @@
+package multi_map;
+
+/**
+ * Receives the entries of a {@link MultiDMap} during {@link MultiDMap#forEach(EntryVisitor)}.
+ *
+ * The keys array passed to both methods is shared for the whole traversal, it must not be kept
+ * or modified.  When called for a key at some level, only the positions up to and including
+ * that level hold keys of the current path.
+ */
+@FunctionalInterface
+public interface EntryVisitor {
+
+    enum Action {
+        /** Visit the subtree */
+        CONTINUE,
+        /** Skip the subtree and carry on with the next key of the same level */
+        SKIP,
+        /** End the traversal */
+        STOP
+    }
+
+    /**
+     * Called for every key of an inner level before its subtree is visited.
+     *
+     * @param keys  Keys of the path to the subtree, in positions 0 to level
+     * @param level Level of the key just added to the path, 0 being the top level
+     * @return      whether to visit the subtree, skip it or end the traversal
+     */
+    default Action enterSubtree(Object[] keys, int level) { return Action.CONTINUE; }
+
+    /**
+     * Called for every value.
+     *
+     * @param keys  Keys of the value, one for each dimension
+     * @param value The value
+     * @return      false to end the traversal
+     */
+    boolean visit(Object[] keys, Object value);
+}
@@ -0,0 +1,367 @@
+package multi_map;
+
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A multi-level map which keeps every value in a single open-addressed table keyed by the
+ * complete key tuple.  A lookup with all keys supplied costs one probe sequence instead of
+ * one hash lookup per dimension as in {@link MultiDMap}.
+ *
+ * Operations on a key prefix, such as getting or removing everything below a top level key,
+ * are served by a secondary tree of the key prefixes.  That tree is only walked when a new key
+ * tuple is added or removed, or when a prefix operation is requested.
+ */
+public abstract class FlatMultiDMap {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int dimensions;
+
+    // Slot i holds its keys at keys[i * dimensions .. (i + 1) * dimensions - 1].  A hash of 0
+    // marks an empty slot, so stored hashes are never 0 (see hash()).
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int mask;
+    private int size = 0;
+
+    private final PrefixNode prefixes = new PrefixNode();
+
+    protected FlatMultiDMap(int dimensions) {
+        this.dimensions = dimensions;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public int getDimensions() { return dimensions; }
+
+    /**
+     * The number of values with distinct keys in the instance.
+     * @return  The number of values contained
+     */
+    public int getSize() { return size; }
+
+    /**
+     * Implementation of internal get logic.  When all keys are supplied the value is returned,
+     * otherwise a {@link MultiDMap} holding a copy of the matching subtree is returned.
+     *
+     * @param keys  Array of keys, at most one for each level of the instance
+     * @return      Value or copied submap found, null if there is none
+     */
+    protected Object get(Object... keys) {
+        checkKeys(keys);
+        if (keys.length == dimensions) {
+            int slot = find(keys, hash(keys));
+            return slot < 0 ? null : values[slot];
+        }
+
+        PrefixNode node = prefixes.find(keys);
+        return node == null ? null : copyOf(node, keys);
+    }
+
+    /**
+     * Implementation of internal put logic.
+     *
+     * @param   o Array containing keys for each level of the map and the relevant value.
+     * @return  if there was already a value at the specified key, that value is returned, otherwise null
+     */
+    protected Object put(Object... o) {
+        if (o.length != dimensions + 1)
+            throw new IllegalArgumentException(
+                    "incorrect number of arguments, must be " + (dimensions + 1) + ", got " + o.length);
+
+        int hash = hash(o);
+        int slot = find(o, hash);
+        if (slot >= 0) {
+            Object old = values[slot];
+            values[slot] = o[dimensions];
+            return old;
+        }
+
+        insert(-slot - 1, hash, o, o[dimensions]);
+        prefixes.add(o, 0, dimensions);
+        return null;
+    }
+
+    /**
+     * Removes a value or all values below a key prefix.
+     *
+     * @param keys  Array of keys identifying what is to be deleted
+     * @return      Number of values removed
+     */
+    protected int remove(Object... keys) {
+        checkKeys(keys);
+        if (keys.length == dimensions) {
+            int slot = find(keys, hash(keys));
+            if (slot < 0)
+                return 0;
+            removeSlot(slot);
+            prefixes.remove(keys, 0, dimensions);
+            return 1;
+        }
+
+        PrefixNode node = prefixes.find(keys);
+        if (node == null)
+            return 0;
+
+        // Every full key below the prefix is removed from the table before the prefix itself is
+        // dropped from the prefix tree.
+        Object[] full = Arrays.copyOf(keys, dimensions);
+        int removed = node.size;
+        removeAll(node, full, keys.length);
+        prefixes.remove(keys, 0, keys.length);
+        return removed;
+    }
+
+    /**
+     * Generate iterable of all key-values, similar to @{@link Map}'s entries method.
+     *
+     * @return  Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    protected Stream<Object[]> entries() {
+        return IntStream.range(0, hashes.length)
+                .filter(slot -> hashes[slot] != 0)
+                .mapToObj(slot -> {
+                    Object[] entry = Arrays.copyOfRange(keys, slot * dimensions, (slot + 1) * dimensions + 1);
+                    entry[dimensions] = values[slot];
+                    return entry;
+                });
+    }
+
+    /**
+     * Combines the hashes of the first {@link #dimensions} elements of an array into the hash
+     * used to place the tuple in the table.  Never returns 0.
+     */
+    protected final int hash(Object[] keys) {
+        int h = 1;
+        for (int i = 0; i < dimensions; ++i)
+            h = 31 * h + Objects.hashCode(keys[i]);
+        return spread(h);
+    }
+
+    protected static int spread(int h) {
+        h *= 0x9E3779B9;
+        h ^= h >>> 16;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * Finds the slot holding the given keys.
+     *
+     * @return the slot, or if the keys are absent -(slot at which they would be inserted) - 1
+     */
+    private int find(Object[] probe, int hash) {
+        int slot = hash & mask;
+        while (true) {
+            int h = hashes[slot];
+            if (h == 0)
+                return -slot - 1;
+            if (h == hash && keysMatch(slot, probe))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keysMatch(int slot, Object[] probe) {
+        int base = slot * dimensions;
+        for (int i = 0; i < dimensions; ++i) {
+            if (!Objects.equals(keys[base + i], probe[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fast path for the two dimensional subclass, avoiding the varargs array.
+     */
+    protected final Object get2(Object k1, Object k2) {
+        int hash = spread(31 * (31 + Objects.hashCode(k1)) + Objects.hashCode(k2));
+        int slot = hash & mask;
+        while (true) {
+            int h = hashes[slot];
+            if (h == 0)
+                return null;
+            int base = slot * 2;
+            if (h == hash && Objects.equals(keys[base], k1) && Objects.equals(keys[base + 1], k2))
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Fast path for the three dimensional subclass, avoiding the varargs array.
+     */
+    protected final Object get3(Object k1, Object k2, Object k3) {
+        int hash = spread(31 * (31 * (31 + Objects.hashCode(k1)) + Objects.hashCode(k2)) + Objects.hashCode(k3));
+        int slot = hash & mask;
+        while (true) {
+            int h = hashes[slot];
+            if (h == 0)
+                return null;
+            int base = slot * 3;
+            if (h == hash && Objects.equals(keys[base], k1) && Objects.equals(keys[base + 1], k2)
+                    && Objects.equals(keys[base + 2], k3))
+                return values[slot];
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insert(int slot, int hash, Object[] tupleKeys, Object value) {
+        hashes[slot] = hash;
+        System.arraycopy(tupleKeys, 0, keys, slot * dimensions, dimensions);
+        values[slot] = value;
+        if (++size * 3 > hashes.length * 2)
+            resize(hashes.length * 2);
+    }
+
+    /**
+     * Removes the entry at a slot using backward shift deletion, so that no tombstones are needed.
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            int h = hashes[i];
+            if (h == 0)
+                break;
+            int home = h & mask;
+            // The entry at i may fill the hole unless its home lies cyclically after the hole.
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                hashes[hole] = h;
+                values[hole] = values[i];
+                System.arraycopy(keys, i * dimensions, keys, hole * dimensions, dimensions);
+                hole = i;
+            }
+        }
+        hashes[hole] = 0;
+        values[hole] = null;
+        Arrays.fill(keys, hole * dimensions, (hole + 1) * dimensions, null);
+        --size;
+    }
+
+    private void removeAll(PrefixNode node, Object[] full, int depth) {
+        if (depth == dimensions - 1) {
+            for (Object last : node.children.keySet()) {
+                full[depth] = last;
+                removeSlot(find(full, hash(full)));
+            }
+            return;
+        }
+        for (Map.Entry<Object, Object> entry : node.children.entrySet()) {
+            full[depth] = entry.getKey();
+            removeAll((PrefixNode) entry.getValue(), full, depth + 1);
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new int[capacity];
+        values = new Object[capacity];
+        keys = new Object[capacity * dimensions];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldHashes = hashes;
+        Object[] oldValues = values;
+        Object[] oldKeys = keys;
+        allocate(capacity);
+
+        for (int old = 0; old < oldHashes.length; ++old) {
+            int h = oldHashes[old];
+            if (h == 0)
+                continue;
+            int slot = h & mask;
+            while (hashes[slot] != 0)
+                slot = (slot + 1) & mask;
+            hashes[slot] = h;
+            values[slot] = oldValues[old];
+            System.arraycopy(oldKeys, old * dimensions, keys, slot * dimensions, dimensions);
+        }
+    }
+
+    private void checkKeys(Object[] keys) {
+        if (keys.length == 0 || keys.length > dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, accepts at most " + dimensions + ", got " + keys.length);
+    }
+
+    /**
+     * Builds an ordinary {@link MultiDMap} holding the values below a prefix node.
+     */
+    private MultiDMap copyOf(PrefixNode node, Object[] prefix) {
+        int remaining = dimensions - prefix.length;
+        MultiDMap copy = remaining == 1 ? new MultiDMap1<>()
+                : remaining == 2 ? new MultiDMap2<>()
+                : new MultiDMapN<>(remaining);
+
+        Object[] full = Arrays.copyOf(prefix, dimensions + 1);
+        copyInto(copy, node, full, prefix.length, prefix.length);
+        return copy;
+    }
+
+    private void copyInto(MultiDMap copy, PrefixNode node, Object[] full, int depth, int prefixLength) {
+        if (depth == dimensions - 1) {
+            for (Object last : node.children.keySet()) {
+                full[depth] = last;
+                full[dimensions] = values[find(full, hash(full))];
+                copy.put(Arrays.copyOfRange(full, prefixLength, dimensions + 1));
+            }
+            return;
+        }
+        for (Map.Entry<Object, Object> entry : node.children.entrySet()) {
+            full[depth] = entry.getKey();
+            copyInto(copy, (PrefixNode) entry.getValue(), full, depth + 1, prefixLength);
+        }
+    }
+
+    /**
+     * Node of the prefix tree.  Below the last dimension but one the children map holds the
+     * last keys only, mapped to {@link Boolean#TRUE}.
+     */
+    private static final class PrefixNode {
+        final Map<Object, Object> children = new HashMap<>();
+        int size = 0;
+
+        PrefixNode find(Object[] prefix) {
+            PrefixNode node = this;
+            for (int i = 0; i < prefix.length && node != null; ++i)
+                node = (PrefixNode) node.children.get(prefix[i]);
+            return node;
+        }
+
+        void add(Object[] keys, int depth, int dimensions) {
+            ++size;
+            if (depth == dimensions - 1) {
+                children.put(keys[depth], Boolean.TRUE);
+                return;
+            }
+            ((PrefixNode) children.computeIfAbsent(keys[depth], k -> new PrefixNode())).add(keys, depth + 1, dimensions);
+        }
+
+        /**
+         * Removes a prefix of length {@code length}, pruning nodes left empty.
+         *
+         * @return number of values removed
+         */
+        int remove(Object[] keys, int depth, int length) {
+            Object child = children.get(keys[depth]);
+            if (child == null)
+                return 0;
+
+            int removed;
+            if (depth == length - 1) {
+                removed = child instanceof PrefixNode ? ((PrefixNode) child).size : 1;
+                children.remove(keys[depth]);
+            } else {
+                PrefixNode inner = (PrefixNode) child;
+                removed = inner.remove(keys, depth + 1, length);
+                if (inner.size == 0)
+                    children.remove(keys[depth]);
+            }
+            size -= removed;
+            return removed;
+        }
+    }
+}
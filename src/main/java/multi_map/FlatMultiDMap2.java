@@ -0,0 +1,25 @@
+package multi_map;
+
+@SuppressWarnings("unchecked")
+public class FlatMultiDMap2<K1,K2,V> extends FlatMultiDMap {
+
+    public FlatMultiDMap2() {
+        super(2);
+    }
+
+    public void put(K1 k1, K2 k2, V v) {
+        super.put(k1, k2, v);
+    }
+
+    public V get(K1 k1, K2 k2) { return (V) get2(k1, k2); }
+
+    /**
+     * Unlike {@link MultiDMap2#get(Object)} the returned map is a copy, changes to it are not
+     * reflected in this instance.
+     */
+    public MultiDMap1<K2,V> get(K1 k1) { return (MultiDMap1<K2, V>) super.get(k1); }
+
+    public int remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public int remove(K1 k1) { return super.remove(k1); }
+}
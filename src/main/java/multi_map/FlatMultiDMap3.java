@@ -0,0 +1,33 @@
+package multi_map;
+
+@SuppressWarnings("unchecked")
+public class FlatMultiDMap3<K1,K2,K3,V> extends FlatMultiDMap {
+
+    public FlatMultiDMap3() {
+        super(3);
+    }
+
+    public void put(K1 k1, K2 k2, K3 k3, V v) {
+        super.put(k1, k2, k3, v);
+    }
+
+    public V get(K1 k1, K2 k2, K3 k3) { return (V) get3(k1, k2, k3); }
+
+    /**
+     * Unlike {@link MultiDMap3#get(Object, Object)} the returned map is a copy, changes to it are
+     * not reflected in this instance.
+     */
+    public MultiDMap1<K3,V> get(K1 k1, K2 k2) { return (MultiDMap1<K3, V>) super.get(k1, k2); }
+
+    /**
+     * Unlike {@link MultiDMap3#get(Object)} the returned map is a copy, changes to it are not
+     * reflected in this instance.
+     */
+    public MultiDMap2<K2,K3,V> get(K1 k1) { return (MultiDMap2<K2, K3, V>) super.get(k1); }
+
+    public int remove(K1 k1, K2 k2, K3 k3) { return super.remove(k1, k2, k3); }
+
+    public int remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public int remove(K1 k1) { return super.remove(k1); }
+}
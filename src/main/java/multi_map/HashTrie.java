@@ -0,0 +1,433 @@
+package multi_map;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * Immutable hash array mapped trie, used as a single level of {@link PersistentMultiDMap}.
+ *
+ * Every modification returns a new trie which shares all untouched nodes with the old one, and
+ * returns the old trie itself when nothing changed.  Neither keys nor values may be null.
+ */
+final class HashTrie {
+
+    static final HashTrie EMPTY = new HashTrie(BitmapNode.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private HashTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    int size() { return size; }
+
+    Object get(Object key) {
+        return root.find(0, hash(key), key);
+    }
+
+    HashTrie with(Object key, Object value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        boolean[] added = {false};
+        Node updated = root.assoc(0, hash(key), key, value, added);
+        return updated == root ? this : new HashTrie(updated, added[0] ? size + 1 : size);
+    }
+
+    HashTrie without(Object key) {
+        Node updated = root.without(0, hash(key), key);
+        if (updated == root)
+            return this;
+        return updated == null ? EMPTY : new HashTrie(updated, size - 1);
+    }
+
+    void forEach(BiConsumer<Object, Object> consumer) {
+        root.forEach(consumer);
+    }
+
+    Iterator<Map.Entry<Object, Object>> iterator() {
+        return new TrieIterator(root);
+    }
+
+    // Outcomes of the comparison of two nodes
+    private static final int EQUAL = 0;
+    private static final int UNEQUAL = 1;
+    private static final int OTHER_SHAPE = 2;
+
+    /**
+     * Compares two tries, skipping every pair of nodes which are the same object.  Tries holding
+     * the same mappings almost always have the same shape, in which case the comparison is done
+     * node by node, and ends at the first slot telling them apart.  Only when a mapping faces a
+     * subtree, or nodes of other types, and no slot tells the tries apart, does it fall back to
+     * looking up every mapping of one in the other.
+     */
+    static boolean equal(HashTrie a, HashTrie b, BiPredicate<Object, Object> valuesEqual) {
+        if (a == b)
+            return true;
+        if (a.size != b.size)
+            return false;
+        switch (compare(a.root, b.root, valuesEqual)) {
+            case EQUAL:
+                return true;
+            case UNEQUAL:
+                return false;
+            default:
+                break;
+        }
+
+        Iterator<Map.Entry<Object, Object>> entries = a.iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Object, Object> entry = entries.next();
+            Object other = b.get(entry.getKey());
+            if (other == null || !valuesEqual.test(entry.getValue(), other))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares two nodes found at the same position of two tries, slot by slot.  Slots at the same
+     * position cover the same hashes, so the tries are unequal as soon as one slot is used in one
+     * node only, or two slots holding a key each differ in key or value, wherever the other
+     * mappings lie.
+     *
+     * @return  {@link #EQUAL} or {@link #UNEQUAL} when the nodes are known to hold the same
+     *          mappings or not, {@link #OTHER_SHAPE} when their layouts differ and no slot tells
+     *          them apart
+     */
+    private static int compare(Node a, Node b, BiPredicate<Object, Object> valuesEqual) {
+        if (a == b)
+            return EQUAL;
+        if (a instanceof CollisionNode && b instanceof CollisionNode)
+            return compareCollisions((CollisionNode) a, (CollisionNode) b, valuesEqual);
+        if (!(a instanceof BitmapNode) || !(b instanceof BitmapNode))
+            return OTHER_SHAPE;
+
+        BitmapNode na = (BitmapNode) a;
+        BitmapNode nb = (BitmapNode) b;
+        // A slot is only kept while it holds mappings, so one trie has mappings of hashes the
+        // other has none of
+        if (na.bitmap != nb.bitmap)
+            return UNEQUAL;
+
+        int result = EQUAL;
+        for (int i = 0; i < na.array.length; i += 2) {
+            Object ka = na.array[i];
+            Object kb = nb.array[i];
+            if (ka == null && kb == null) {
+                int children = compare((Node) na.array[i + 1], (Node) nb.array[i + 1], valuesEqual);
+                if (children == UNEQUAL)
+                    return UNEQUAL;
+                if (children == OTHER_SHAPE)
+                    result = OTHER_SHAPE;
+            } else if (ka == null || kb == null) {
+                // A single mapping against a subtree, which may hold that mapping alone
+                result = OTHER_SHAPE;
+            } else if ((ka != kb && !ka.equals(kb)) || !valuesEqual.test(na.array[i + 1], nb.array[i + 1])) {
+                return UNEQUAL;
+            }
+        }
+        return result;
+    }
+
+    private static int compareCollisions(CollisionNode a, CollisionNode b, BiPredicate<Object, Object> valuesEqual) {
+        if (a.hash != b.hash)
+            return OTHER_SHAPE;
+
+        // Each node holds all the keys of its hash
+        if (a.array.length != b.array.length)
+            return UNEQUAL;
+        for (int i = 0; i < a.array.length; i += 2) {
+            int j = b.indexOf(a.array[i]);
+            if (j < 0 || !valuesEqual.test(a.array[i + 1], b.array[j + 1]))
+                return UNEQUAL;
+        }
+        return EQUAL;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Object[] cloneAndSet(Object[] array, int i, Object a) {
+        Object[] clone = array.clone();
+        clone[i] = a;
+        return clone;
+    }
+
+    private static Object[] cloneAndSet(Object[] array, int i, Object a, int j, Object b) {
+        Object[] clone = array.clone();
+        clone[i] = a;
+        clone[j] = b;
+        return clone;
+    }
+
+    private static Object[] removePair(Object[] array, int i) {
+        Object[] result = new Object[array.length - 2];
+        System.arraycopy(array, 0, result, 0, 2 * i);
+        System.arraycopy(array, 2 * (i + 1), result, 2 * i, result.length - 2 * i);
+        return result;
+    }
+
+    private static Node createNode(int shift, Object key1, Object val1, int key2hash, Object key2, Object val2) {
+        int key1hash = hash(key1);
+        if (key1hash == key2hash)
+            return new CollisionNode(key1hash, new Object[] {key1, val1, key2, val2});
+        boolean[] added = {false};
+        return BitmapNode.EMPTY
+                .assoc(shift, key1hash, key1, val1, added)
+                .assoc(shift, key2hash, key2, val2, added);
+    }
+
+    private abstract static class Node {
+        abstract Object find(int shift, int hash, Object key);
+
+        abstract Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return  this node if the key is absent, null if the node would be left empty, else the new node
+         */
+        abstract Node without(int shift, int hash, Object key);
+
+        abstract void forEach(BiConsumer<Object, Object> consumer);
+
+        /**
+         * Whether this node holds exactly one mapping, in which case its parent stores it inline.
+         */
+        abstract boolean isSingleMapping();
+    }
+
+    /**
+     * A node holding up to 32 slots.  Each slot is a key and value pair, or null and a child node.
+     */
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0)
+                return null;
+
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null)
+                return ((Node) v).find(shift + BITS, hash, key);
+            return key.equals(k) ? v : null;
+        }
+
+        @Override
+        Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bitpos(hash, shift);
+            int idx = index(bit);
+
+            if ((bitmap & bit) == 0) {
+                Object[] result = new Object[array.length + 2];
+                System.arraycopy(array, 0, result, 0, 2 * idx);
+                result[2 * idx] = key;
+                result[2 * idx + 1] = value;
+                System.arraycopy(array, 2 * idx, result, 2 * (idx + 1), array.length - 2 * idx);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, result);
+            }
+
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null) {
+                Node child = ((Node) v).assoc(shift + BITS, hash, key, value, added);
+                return child == v ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, child));
+            }
+            if (key.equals(k))
+                return value == v ? this : new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, value));
+
+            added[0] = true;
+            return new BitmapNode(bitmap,
+                    cloneAndSet(array, 2 * idx, null, 2 * idx + 1, createNode(shift + BITS, k, v, hash, key, value)));
+        }
+
+        @Override
+        Node without(int shift, int hash, Object key) {
+            int bit = bitpos(hash, shift);
+            if ((bitmap & bit) == 0)
+                return this;
+
+            int idx = index(bit);
+            Object k = array[2 * idx];
+            Object v = array[2 * idx + 1];
+            if (k == null) {
+                Node child = ((Node) v).without(shift + BITS, hash, key);
+                if (child == v)
+                    return this;
+                if (child == null)
+                    return bitmap == bit ? null : new BitmapNode(bitmap ^ bit, removePair(array, idx));
+                if (child.isSingleMapping()) {
+                    // Pull the remaining mapping up into this node, keeping the trie as shallow as
+                    // it would be had the mapping been added on its own.
+                    Object[] pair = child instanceof BitmapNode ? ((BitmapNode) child).array : ((CollisionNode) child).array;
+                    return new BitmapNode(bitmap, cloneAndSet(array, 2 * idx, pair[0], 2 * idx + 1, pair[1]));
+                }
+                if (bitmap == bit && child instanceof CollisionNode)
+                    return child;
+                return new BitmapNode(bitmap, cloneAndSet(array, 2 * idx + 1, child));
+            }
+            if (!key.equals(k))
+                return this;
+            return bitmap == bit ? null : new BitmapNode(bitmap ^ bit, removePair(array, idx));
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> consumer) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == null)
+                    ((Node) array[i + 1]).forEach(consumer);
+                else
+                    consumer.accept(array[i], array[i + 1]);
+            }
+        }
+
+        @Override
+        boolean isSingleMapping() {
+            return array.length == 2 && array[0] != null;
+        }
+    }
+
+    /**
+     * A node holding mappings whose keys all have the same hash.
+     */
+    private static final class CollisionNode extends Node {
+
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i]))
+                    return i;
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash == this.hash) {
+                int i = indexOf(key);
+                if (i >= 0)
+                    return array[i + 1] == value ? this : new CollisionNode(hash, cloneAndSet(array, i + 1, value));
+
+                Object[] result = Arrays.copyOf(array, array.length + 2);
+                result[array.length] = key;
+                result[array.length + 1] = value;
+                added[0] = true;
+                return new CollisionNode(hash, result);
+            }
+
+            // A key with another hash arrives, so this node moves one level down
+            return new BitmapNode(bitpos(this.hash, shift), new Object[] {null, this})
+                    .assoc(shift, hash, key, value, added);
+        }
+
+        @Override
+        Node without(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            if (i < 0)
+                return this;
+            if (array.length == 2)
+                return null;
+            return new CollisionNode(this.hash, removePair(array, i / 2));
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> consumer) {
+            for (int i = 0; i < array.length; i += 2)
+                consumer.accept(array[i], array[i + 1]);
+        }
+
+        @Override
+        boolean isSingleMapping() {
+            return array.length == 2;
+        }
+    }
+
+    private static final class TrieIterator implements Iterator<Map.Entry<Object, Object>> {
+
+        private final Deque<Object[]> arrays = new ArrayDeque<>();
+        private final Deque<Integer> positions = new ArrayDeque<>();
+        private Map.Entry<Object, Object> next;
+
+        TrieIterator(Node root) {
+            push(root);
+            advance();
+        }
+
+        private void push(Node node) {
+            arrays.push(node instanceof BitmapNode ? ((BitmapNode) node).array : ((CollisionNode) node).array);
+            positions.push(0);
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && !arrays.isEmpty()) {
+                Object[] array = arrays.peek();
+                int pos = positions.pop();
+                if (pos >= array.length) {
+                    arrays.pop();
+                    continue;
+                }
+                positions.push(pos + 2);
+                if (array[pos] == null)
+                    push((Node) array[pos + 1]);
+                else
+                    next = new AbstractMap.SimpleImmutableEntry<>(array[pos], array[pos + 1]);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<Object, Object> next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            Map.Entry<Object, Object> result = next;
+            advance();
+            return result;
+        }
+    }
+}
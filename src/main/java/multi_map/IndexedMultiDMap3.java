@@ -0,0 +1,231 @@
+package multi_map;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * A {@link MultiDMap3} with optional secondary indexes on its second and third dimensions, so
+ * that all the entries with a given K2 or K3 can be found without scanning the whole map.
+ *
+ * An index on a level maps each key of that level to the set of key prefixes above it: for K2
+ * the K1 keys whose submaps contain the K2 key, for K3 the K1, K2 pairs.  The indexes are kept
+ * up to date by every put, compute and remove, including removals of whole submaps.  As for the other
+ * levels of the map, changes made directly to a submap returned by get are not seen by this
+ * instance, and so are not indexed.
+ */
+@SuppressWarnings("unchecked")
+public class IndexedMultiDMap3<K1,K2,K3,V> extends MultiDMap3<K1,K2,K3,V> {
+
+    // indexes[level] is null when the level isn't indexed, levels being 0 for K1 to 2 for K3
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Map<Object, MultiDMap>[] indexes = new Map[3];
+
+    /**
+     * @param indexedLevels Levels to index, 1 for K2 and 2 for K3.  The top level needs no index.
+     */
+    public IndexedMultiDMap3(int... indexedLevels) {
+        for (int level : indexedLevels) {
+            if (level < 1 || level > 2)
+                throw new IllegalArgumentException("only levels 1 and 2 can be indexed, got " + level);
+            indexes[level] = new HashMap<>();
+        }
+    }
+
+    public boolean isIndexed(int level) {
+        return level >= 0 && level < indexes.length && indexes[level] != null;
+    }
+
+    @Override
+    public void put(K1 k1, K2 k2, K3 k3, V v) {
+        put(new Object[] {k1, k2, k3, v});
+    }
+
+    @Override
+    protected Object put(Object... o) {
+        Object old = super.put(o);
+        if (old == null) {
+            for (int level = 1; level < indexes.length; ++level) {
+                if (indexes[level] != null)
+                    addToIndex(level, o);
+            }
+        }
+        return old;
+    }
+
+    @Override
+    protected Object computeInner(BiFunction<Object, Object, Object> remapping, Object... keys) {
+        int before = getSize();
+        Object value = super.computeInner(remapping, keys);
+        if (getSize() > before) {
+            for (int level = 1; level < indexes.length; ++level) {
+                if (indexes[level] != null)
+                    addToIndex(level, keys);
+            }
+        } else if (getSize() < before) {
+            removeFromIndexes(keys, find(keys[0], keys[1]) == null);
+        }
+        return value;
+    }
+
+    /**
+     * Applies the operations one by one, as put and remove keep the indexes up to date.
+     */
+    @Override
+    protected void applyBatch(Batch batch) {
+        batch.applyEach();
+    }
+
+    @Override
+    protected void attach(Object key, MultiDMap inner) {
+        super.attach(key, inner);
+        index(key, inner);
+    }
+
+    @Override
+    protected void replaceData(Map<Object, Object> newData, int newSize) {
+        super.replaceData(newData, newSize);
+        for (int level = 1; level < indexes.length; ++level) {
+            if (indexes[level] != null)
+                indexes[level] = new HashMap<>();
+        }
+        for (Map.Entry<Object, Object> entry : data.entrySet())
+            index(entry.getKey(), (MultiDMap) entry.getValue());
+    }
+
+    /**
+     * Indexes all the entries of the submap of a K1 key.
+     */
+    private void index(Object key, MultiDMap inner) {
+        Object[] full = new Object[getDimensions()];
+        full[0] = key;
+        inner.forEachInner(
+                (k, value) -> {
+                    for (int level = 1; level < indexes.length; ++level) {
+                        if (indexes[level] != null)
+                            addToIndex(level, k);
+                    }
+                    return true;
+                },
+                full, 1);
+    }
+
+    @Override
+    public int remove(K1 k1, K2 k2, K3 k3) { return remove(new Object[] {k1, k2, k3}); }
+
+    @Override
+    public int remove(K1 k1, K2 k2) { return remove(new Object[] {k1, k2}); }
+
+    @Override
+    public int remove(K1 k1) { return remove(new Object[] {k1}); }
+
+    @Override
+    protected int remove(Object... keys) {
+        if (keys.length == getDimensions()) {
+            int removed = super.remove(keys);
+            if (removed > 0)
+                removeFromIndexes(keys, find(keys[0], keys[1]) == null);
+            return removed;
+        }
+
+        Object subtree = find(keys);
+        if (subtree == null)
+            return 0;
+
+        // Every entry of the subtree is unindexed before it goes.  Whatever the prefix, every
+        // K1, K2 submap below it is removed as a whole.
+        Object[] full = Arrays.copyOf(keys, getDimensions());
+        ((MultiDMap) subtree).forEachInner(
+                (k, value) -> {
+                    removeFromIndexes(k, true);
+                    return true;
+                },
+                full, keys.length);
+        return super.remove(keys);
+    }
+
+    /**
+     * Finds the entries having a given key at one level.  An indexed level is served from its
+     * index, touching only the matching entries; any other level is looked up in every submap
+     * of the levels above it.
+     *
+     * @param level Level of the key, 0 for K1 to 2 for K3
+     * @param key   Key to look for
+     * @return      Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    public Stream<Object[]> sliceBy(int level, Object key) {
+        if (level < 0 || level >= getDimensions())
+            throw new IllegalArgumentException("level must be between 0 and " + (getDimensions() - 1) + ", got " + level);
+
+        if (level == 0) {
+            MultiDMap subtree = (MultiDMap) data.get(key);
+            return subtree == null ? Stream.empty() : withPrefix(new Object[] {key}, subtree);
+        }
+
+        if (indexes[level] == null)
+            return query(new MultiDQuery().eq(level, key));
+
+        MultiDMap prefixes = indexes[level].get(key);
+        if (prefixes == null)
+            return Stream.empty();
+
+        return prefixes.entries().flatMap(
+                prefixEntry -> {
+                    Object[] path = Arrays.copyOf(prefixEntry, level + 1);
+                    path[level] = key;
+                    Object found = find(path);
+                    if (level == getDimensions() - 1) {
+                        Object[] entry = Arrays.copyOf(path, level + 2);
+                        entry[level + 1] = found;
+                        return Stream.<Object[]>of(entry);
+                    }
+                    return withPrefix(path, (MultiDMap) found);
+                }
+        );
+    }
+
+    /**
+     * Looks up keys for the bookkeeping of the indexes, without counting a get in the statistics.
+     */
+    private Object find(Object... keys) {
+        return getInner(getDimensions(), keys);
+    }
+
+    private Stream<Object[]> withPrefix(Object[] prefix, MultiDMap subtree) {
+        return subtree.entries().map(
+                tail -> {
+                    Object[] entry = Arrays.copyOf(prefix, prefix.length + tail.length);
+                    System.arraycopy(tail, 0, entry, prefix.length, tail.length);
+                    return entry;
+                }
+        );
+    }
+
+    private void addToIndex(int level, Object[] keys) {
+        MultiDMap prefixes = indexes[level].computeIfAbsent(
+                keys[level], key -> level == 1 ? new MultiDMap1<>() : new MultiDMap2<>());
+        Object[] entry = Arrays.copyOf(keys, level + 1);
+        entry[level] = Boolean.TRUE;
+        prefixes.put(entry);
+    }
+
+    /**
+     * Removes an entry which has just been, or is about to be, removed from the map.
+     *
+     * @param keys          Keys of the entry
+     * @param submapGone    Whether the K1, K2 submap holding the entry is removed too
+     */
+    private void removeFromIndexes(Object[] keys, boolean submapGone) {
+        for (int level = 1; level < indexes.length; ++level) {
+            if (indexes[level] == null || (level == 1 && !submapGone))
+                continue;
+
+            MultiDMap prefixes = indexes[level].get(keys[level]);
+            if (prefixes == null)
+                continue;
+            prefixes.remove(Arrays.copyOf(keys, level));
+            if (prefixes.getSize() == 0)
+                indexes[level].remove(keys[level]);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package multi_map;
+
+/**
+ * A map from primitive int keys to primitive double values, stored in an open-addressed table
+ * with linear probing.  Used as the leaf level of {@link IntIntDoubleMap}, where neither the
+ * keys nor the values are boxed.
+ */
+public class IntDoubleMap {
+
+    // Key 0 marks a free slot, a mapping for key 0 itself is kept in separate fields.
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private double[] values;
+    private int mask;
+    private int size = 0;
+
+    private boolean hasFreeKey = false;
+    private double freeKeyValue;
+
+    public IntDoubleMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize  number of keys the map is expected to hold, to avoid resizing
+     */
+    public IntDoubleMap(int expectedSize) {
+        allocate(PrimitiveHashing.tableSizeFor(expectedSize));
+    }
+
+    public int getSize() { return hasFreeKey ? size + 1 : size; }
+
+    /**
+     * @param defaultValue  value returned if there is no mapping for the key
+     */
+    public double getOrDefault(int k1, double defaultValue) {
+        if (k1 == FREE)
+            return hasFreeKey ? freeKeyValue : defaultValue;
+
+        int slot = find(k1);
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(int k1) {
+        if (k1 == FREE)
+            return hasFreeKey;
+
+        return find(k1) >= 0;
+    }
+
+    /**
+     * @return  true if the key was not already present
+     */
+    public boolean put(int k1, double v) {
+        if (k1 == FREE) {
+            boolean added = !hasFreeKey;
+            hasFreeKey = true;
+            freeKeyValue = v;
+            return added;
+        }
+
+        int slot = PrimitiveHashing.mix(k1) & mask;
+        int k;
+        while ((k = keys[slot]) != FREE) {
+            if (k == k1) {
+                values[slot] = v;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = k1;
+        values[slot] = v;
+        if (PrimitiveHashing.overloaded(++size, keys.length))
+            resize(keys.length * 2);
+        return true;
+    }
+
+    /**
+     * @return  Number of values removed
+     */
+    public int remove(int k1) {
+        if (k1 == FREE) {
+            if (!hasFreeKey)
+                return 0;
+            hasFreeKey = false;
+            return 1;
+        }
+
+        int slot = find(k1);
+        if (slot < 0)
+            return 0;
+
+        int hole = slot;
+        int i = slot;
+        int k;
+        while ((k = keys[i = (i + 1) & mask]) != FREE) {
+            int home = PrimitiveHashing.mix(k) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = FREE;
+        --size;
+        return 1;
+    }
+
+    /**
+     * Calls the consumer for every key and value without boxing either.
+     */
+    public void forEach(EntryConsumer consumer) {
+        if (hasFreeKey)
+            consumer.accept(FREE, freeKeyValue);
+        for (int slot = 0; slot < keys.length; ++slot) {
+            if (keys[slot] != FREE)
+                consumer.accept(keys[slot], values[slot]);
+        }
+    }
+
+    private int find(int k1) {
+        int slot = PrimitiveHashing.mix(k1) & mask;
+        int k;
+        while ((k = keys[slot]) != FREE) {
+            if (k == k1)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new double[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        double[] oldValues = values;
+        allocate(capacity);
+
+        for (int old = 0; old < oldKeys.length; ++old) {
+            int k = oldKeys[old];
+            if (k == FREE)
+                continue;
+            int slot = PrimitiveHashing.mix(k) & mask;
+            while (keys[slot] != FREE)
+                slot = (slot + 1) & mask;
+            keys[slot] = k;
+            values[slot] = oldValues[old];
+        }
+    }
+
+    public interface EntryConsumer {
+        void accept(int k1, double v);
+    }
+}
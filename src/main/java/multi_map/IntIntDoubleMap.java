@@ -0,0 +1,97 @@
+package multi_map;
+
+/**
+ * Two dimensional map with primitive int keys and primitive double values.  Nothing is boxed,
+ * neither when storing nor when looking up, which makes it suitable for large numeric tables.
+ */
+public class IntIntDoubleMap {
+
+    private final IntMultiDMap1<IntDoubleMap> data;
+    private int size = 0;
+
+    public IntIntDoubleMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize  number of top level keys the map is expected to hold
+     */
+    public IntIntDoubleMap(int expectedSize) {
+        data = new IntMultiDMap1<>(expectedSize);
+    }
+
+    public int getDimensions() { return 2; }
+
+    /**
+     * The number of values with distinct keys in the instance.
+     * @return  The number of values contained
+     */
+    public int getSize() { return size; }
+
+    /**
+     * @param defaultValue  value returned if there is no mapping for the keys
+     */
+    public double getOrDefault(int k1, int k2, double defaultValue) {
+        IntDoubleMap inner = data.get(k1);
+        return inner == null ? defaultValue : inner.getOrDefault(k2, defaultValue);
+    }
+
+    public IntDoubleMap get(int k1) { return data.get(k1); }
+
+    public boolean containsKey(int k1, int k2) {
+        IntDoubleMap inner = data.get(k1);
+        return inner != null && inner.containsKey(k2);
+    }
+
+    public void put(int k1, int k2, double v) {
+        IntDoubleMap inner = data.get(k1);
+        if (inner == null) {
+            inner = new IntDoubleMap();
+            data.put(k1, inner);
+        }
+
+        if (inner.put(k2, v))
+            ++size;
+    }
+
+    /**
+     * @return  Number of values removed
+     */
+    public int remove(int k1, int k2) {
+        IntDoubleMap inner = data.get(k1);
+        if (inner == null)
+            return 0;
+
+        int removed = inner.remove(k2);
+        if (inner.getSize() == 0)
+            data.remove(k1);
+        size -= removed;
+        return removed;
+    }
+
+    /**
+     * Removes the submap at k1.
+     *
+     * @return  Number of values removed
+     */
+    public int remove(int k1) {
+        IntDoubleMap inner = data.get(k1);
+        if (inner == null)
+            return 0;
+
+        data.remove(k1);
+        size -= inner.getSize();
+        return inner.getSize();
+    }
+
+    /**
+     * Calls the consumer for every keys and value combination without boxing.
+     */
+    public void forEach(EntryConsumer consumer) {
+        data.forEach((k1, inner) -> inner.forEach((k2, v) -> consumer.accept(k1, k2, v)));
+    }
+
+    public interface EntryConsumer {
+        void accept(int k1, int k2, double v);
+    }
+}
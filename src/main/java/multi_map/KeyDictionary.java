@@ -0,0 +1,124 @@
+package multi_map;
+
+import java.util.Arrays;
+
+/**
+ * Interns the keys of one dimension, handing out dense int ids in the order keys are first seen.
+ * Maps such as {@link DictionaryMultiDMap3} store and probe these ids, so a key repeated under
+ * many parents is held, hashed and compared once, by the dictionary.
+ *
+ * Ids are never reused: a key keeps its id once interned, even when no map holds it anymore.
+ * A dictionary may be shared by several maps, keys common to them then having the same id.
+ * Null is a valid key.  Like the maps, a dictionary isn't thread safe.
+ */
+@SuppressWarnings("unchecked")
+public final class KeyDictionary<K> {
+
+    // Stands for the null key
+    private static final Object NULL_KEY = new Object();
+
+    // Key of each id and its hash, so that resizing never calls hashCode again
+    private Object[] keys;
+    private int[] hashes;
+    private int size = 0;
+
+    // Open addressing table of id + 1, 0 marking a free slot
+    private int[] slots;
+    private int mask;
+
+    public KeyDictionary() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize  number of distinct keys the dictionary is expected to hold
+     */
+    public KeyDictionary(int expectedSize) {
+        keys = new Object[Math.max(8, expectedSize)];
+        hashes = new int[keys.length];
+        slots = new int[PrimitiveHashing.tableSizeFor(expectedSize)];
+        mask = slots.length - 1;
+    }
+
+    /**
+     * @return  The number of keys interned
+     */
+    public int size() { return size; }
+
+    /**
+     * @return  the id of the key, interning it if it wasn't yet
+     */
+    public int encode(K key) {
+        Object masked = key == null ? NULL_KEY : key;
+        int hash = PrimitiveHashing.mix(masked.hashCode());
+        int slot = probe(masked, hash);
+        if (slots[slot] != 0)
+            return slots[slot] - 1;
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * size);
+            hashes = Arrays.copyOf(hashes, 2 * size);
+        }
+        keys[size] = masked;
+        hashes[size] = hash;
+        slots[slot] = ++size;
+        if (PrimitiveHashing.overloaded(size, slots.length))
+            resize(2 * slots.length);
+        return size - 1;
+    }
+
+    /**
+     * Looks a key up without interning it, so that lookups of unknown keys don't grow the
+     * dictionary.
+     *
+     * @return  the id of the key, or -1 if it was never interned
+     */
+    public int find(Object key) {
+        Object masked = key == null ? NULL_KEY : key;
+        return slots[probe(masked, PrimitiveHashing.mix(masked.hashCode()))] - 1;
+    }
+
+    /**
+     * @return  the key having the id
+     * @throws IndexOutOfBoundsException    if no key has the id
+     */
+    public K decode(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("no key has id " + id + ", the dictionary holds " + size);
+        Object key = keys[id];
+        return key == NULL_KEY ? null : (K) key;
+    }
+
+    /**
+     * @return  the slot holding the key, or the free slot where it would be inserted
+     */
+    private int probe(Object key, int hash) {
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0)
+                return slot;
+            Object stored = keys[entry - 1];
+            if (hashes[entry - 1] == hash && (stored == key || key.equals(stored)))
+                return slot;
+        }
+    }
+
+    private void resize(int capacity) {
+        slots = new int[capacity];
+        mask = capacity - 1;
+        for (int id = 0; id < size; ++id) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int id = 0; id < size; ++id)
+            builder.append(id > 0 ? ", " : "").append(id).append('=').append(decode(id));
+        return builder.append('}').toString();
+    }
+}
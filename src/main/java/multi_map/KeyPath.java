@@ -0,0 +1,97 @@
+package multi_map;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, mutable path of keys into a {@link MultiDMapN}.  The caller sets the keys of a
+ * path and passes it to the get, put, remove and contains methods of {@link MultiDMapN}, which
+ * allocate nothing, so a single instance can serve any number of calls.
+ *
+ * A path holds a key for every level of the map but only uses the first {@link #length()}
+ * keys, all of them unless {@link #setLength(int)} says otherwise.  A shorter path designates a
+ * submap, as when calling the varargs methods of {@link MultiDMap} with fewer keys.  Instances
+ * are not thread safe: each thread needs its own.
+ */
+public final class KeyPath {
+
+    final Object[] keys;
+    int length;
+
+    // Maps of each level visited by the last put or remove, and the structural hashes of their
+    // submaps on the path before the change, so that it can go back up without recursion
+    final MultiDMap[] nodes;
+    final long[] hashes;
+
+    /**
+     * @param dimensions    Number of dimensions of the maps the path is used with
+     */
+    public KeyPath(int dimensions) {
+        if (dimensions < 1)
+            throw new IllegalArgumentException("dimensions must be at least 1, got " + dimensions);
+        keys = new Object[dimensions];
+        length = dimensions;
+        nodes = new MultiDMap[dimensions];
+        hashes = new long[dimensions];
+    }
+
+    public int getDimensions() { return keys.length; }
+
+    /**
+     * @return  Number of keys used, from the top level down
+     */
+    public int length() { return length; }
+
+    /**
+     * @param length    Number of keys used, from the top level down, between 1 and the dimensions
+     * @return          this path
+     */
+    public KeyPath setLength(int length) {
+        if (length < 1 || length > keys.length)
+            throw new IllegalArgumentException("length must be between 1 and " + keys.length + ", got " + length);
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * @param level Level of the key, 0 being the top level
+     * @param key   Key of the level
+     * @return      this path
+     */
+    public KeyPath set(int level, Object key) {
+        keys[level] = key;
+        return this;
+    }
+
+    public Object get(int level) { return keys[level]; }
+
+    /**
+     * Sets all the keys and uses them all.
+     *
+     * @return  this path
+     */
+    public KeyPath setAll(Object... keys) {
+        if (keys.length != this.keys.length)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, must be " + this.keys.length + ", got " + keys.length);
+        System.arraycopy(keys, 0, this.keys, 0, keys.length);
+        length = keys.length;
+        return this;
+    }
+
+    /**
+     * Drops the references to the keys, and to the maps of the last remove.
+     *
+     * @return  this path
+     */
+    public KeyPath clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(nodes, null);
+        length = keys.length;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(keys, length));
+    }
+}
@@ -0,0 +1,197 @@
+package multi_map;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A map from primitive long keys to values, stored in an open-addressed table with linear probing.
+ * This is the innermost level of {@link LongMultiDMap2} and {@link LongMultiDMap3} and avoids both
+ * the boxed key and the entry node a {@link java.util.HashMap} would allocate for every mapping.
+ */
+@SuppressWarnings("unchecked")
+public class LongMultiDMap1<V> {
+
+    // Key 0 marks a free slot, a mapping for key 0 itself is kept in separate fields.
+    private static final long FREE = 0;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    private boolean hasFreeKey = false;
+    private Object freeKeyValue;
+
+    public LongMultiDMap1() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize  number of keys the map is expected to hold, to avoid resizing
+     */
+    public LongMultiDMap1(int expectedSize) {
+        allocate(PrimitiveHashing.tableSizeFor(expectedSize));
+    }
+
+    public int getSize() { return hasFreeKey ? size + 1 : size; }
+
+    public V get(long k1) {
+        if (k1 == FREE)
+            return (V) freeKeyValue;
+
+        int slot = PrimitiveHashing.mix(k1) & mask;
+        long k;
+        while ((k = keys[slot]) != FREE) {
+            if (k == k1)
+                return (V) values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long k1) {
+        if (k1 == FREE)
+            return hasFreeKey;
+
+        return find(k1) >= 0;
+    }
+
+    /**
+     * @return  if there was already a value at the specified key, that value is returned, otherwise null
+     */
+    public V put(long k1, V v) {
+        if (k1 == FREE) {
+            Object old = freeKeyValue;
+            hasFreeKey = true;
+            freeKeyValue = v;
+            return (V) old;
+        }
+
+        int slot = PrimitiveHashing.mix(k1) & mask;
+        long k;
+        while ((k = keys[slot]) != FREE) {
+            if (k == k1) {
+                Object old = values[slot];
+                values[slot] = v;
+                return (V) old;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = k1;
+        values[slot] = v;
+        if (PrimitiveHashing.overloaded(++size, keys.length))
+            resize(keys.length * 2);
+        return null;
+    }
+
+    /**
+     * @return  Number of values removed
+     */
+    public int remove(long k1) {
+        if (k1 == FREE) {
+            if (!hasFreeKey)
+                return 0;
+            hasFreeKey = false;
+            freeKeyValue = null;
+            return 1;
+        }
+
+        int slot = find(k1);
+        if (slot < 0)
+            return 0;
+
+        removeSlot(slot);
+        return 1;
+    }
+
+    /**
+     * Calls the consumer for every key and value without boxing the keys.
+     */
+    public void forEach(EntryConsumer<? super V> consumer) {
+        if (hasFreeKey)
+            consumer.accept(FREE, (V) freeKeyValue);
+        for (int slot = 0; slot < keys.length; ++slot) {
+            if (keys[slot] != FREE)
+                consumer.accept(keys[slot], (V) values[slot]);
+        }
+    }
+
+    /**
+     * Generate iterable of all key-values, similar to @{@link java.util.Map}'s entries method.
+     * The keys are boxed, so this is intended for convenience rather than speed.
+     *
+     * @return  Stream of arrays holding the key and the value
+     */
+    protected Stream<Object[]> entries() {
+        Stream<Object[]> slots = IntStream.range(0, keys.length)
+                .filter(slot -> keys[slot] != FREE)
+                .mapToObj(slot -> new Object[] {keys[slot], values[slot]});
+        return hasFreeKey ? Stream.concat(Stream.<Object[]>of(new Object[] {FREE, freeKeyValue}), slots) : slots;
+    }
+
+    private int find(long k1) {
+        int slot = PrimitiveHashing.mix(k1) & mask;
+        long k;
+        while ((k = keys[slot]) != FREE) {
+            if (k == k1)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the entry at a slot using backward shift deletion, so that no tombstones are needed.
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int i = slot;
+        long k;
+        while ((k = keys[i = (i + 1) & mask]) != FREE) {
+            int home = PrimitiveHashing.mix(k) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = k;
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = FREE;
+        values[hole] = null;
+        --size;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int old = 0; old < oldKeys.length; ++old) {
+            long k = oldKeys[old];
+            if (k == FREE)
+                continue;
+            int slot = PrimitiveHashing.mix(k) & mask;
+            while (keys[slot] != FREE)
+                slot = (slot + 1) & mask;
+            keys[slot] = k;
+            values[slot] = oldValues[old];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((k, v) -> builder.append(builder.length() > 1 ? ", " : "").append(k).append('=').append(v));
+        return builder.append('}').toString();
+    }
+
+    public interface EntryConsumer<V> {
+        void accept(long k1, V v);
+    }
+}
@@ -0,0 +1,115 @@
+package multi_map;
+
+import java.util.stream.Stream;
+
+/**
+ * Two dimensional map with primitive long keys.  Every level is an open-addressed
+ * {@link LongMultiDMap1}, so neither lookups nor stored mappings box the keys.
+ */
+public class LongMultiDMap2<V> {
+
+    private final LongMultiDMap1<LongMultiDMap1<V>> data;
+    private int size = 0;
+
+    public LongMultiDMap2() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize  number of top level keys the map is expected to hold
+     */
+    public LongMultiDMap2(int expectedSize) {
+        data = new LongMultiDMap1<>(expectedSize);
+    }
+
+    public int getDimensions() { return 2; }
+
+    /**
+     * The number of values with distinct keys in the instance.
+     * @return  The number of values contained
+     */
+    public int getSize() { return size; }
+
+    public V get(long k1, long k2) {
+        LongMultiDMap1<V> inner = data.get(k1);
+        return inner == null ? null : inner.get(k2);
+    }
+
+    public LongMultiDMap1<V> get(long k1) { return data.get(k1); }
+
+    public boolean containsKey(long k1, long k2) {
+        LongMultiDMap1<V> inner = data.get(k1);
+        return inner != null && inner.containsKey(k2);
+    }
+
+    /**
+     * @return  if there was already a value at the specified keys, that value is returned, otherwise null
+     */
+    public V put(long k1, long k2, V v) {
+        LongMultiDMap1<V> inner = data.get(k1);
+        if (inner == null) {
+            inner = new LongMultiDMap1<>();
+            data.put(k1, inner);
+        }
+
+        int before = inner.getSize();
+        V old = inner.put(k2, v);
+        size += inner.getSize() - before;
+        return old;
+    }
+
+    /**
+     * @return  Number of values removed
+     */
+    public int remove(long k1, long k2) {
+        LongMultiDMap1<V> inner = data.get(k1);
+        if (inner == null)
+            return 0;
+
+        int removed = inner.remove(k2);
+        if (inner.getSize() == 0)
+            data.remove(k1);
+        size -= removed;
+        return removed;
+    }
+
+    /**
+     * Removes the submap at k1.
+     *
+     * @return  Number of values removed
+     */
+    public int remove(long k1) {
+        LongMultiDMap1<V> inner = data.get(k1);
+        if (inner == null)
+            return 0;
+
+        data.remove(k1);
+        size -= inner.getSize();
+        return inner.getSize();
+    }
+
+    /**
+     * Calls the consumer for every keys and value combination without boxing the keys.
+     */
+    public void forEach(EntryConsumer<? super V> consumer) {
+        data.forEach((k1, inner) -> inner.forEach((k2, v) -> consumer.accept(k1, k2, v)));
+    }
+
+    /**
+     * Generate iterable of all key-values, similar to @{@link java.util.Map}'s entries method.
+     * The keys are boxed, so this is intended for convenience rather than speed.
+     *
+     * @return  Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    protected Stream<Object[]> entries() {
+        return data.entries().flatMap(
+                outer -> ((LongMultiDMap1<?>) outer[1]).entries().map(
+                        inner -> new Object[] {outer[0], inner[0], inner[1]}
+                )
+        );
+    }
+
+    public interface EntryConsumer<V> {
+        void accept(long k1, long k2, V v);
+    }
+}
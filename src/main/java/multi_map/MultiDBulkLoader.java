@@ -0,0 +1,182 @@
+package multi_map;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * Builds the content of a {@link MultiDMap} from entries grouped by key prefix, see
+ * {@link MultiDMap#bulkLoad(Object[][], boolean)}.
+ *
+ * Grouping means that every submap is made of one run of consecutive entries.  Each level of
+ * a run is counted before it is built, so every map is created at the capacity it needs and
+ * every subtree is built in one pass, bottom up, without any lookup from the root.
+ */
+final class MultiDBulkLoader {
+
+    private MultiDBulkLoader() {}
+
+    /**
+     * Random access to the keys and values of the entries being loaded.
+     */
+    private interface Rows {
+        Object key(int row, int level);
+
+        Object value(int row);
+    }
+
+    static void load(MultiDMap map, Object[][] columns, boolean parallel) {
+        int dimensions = map.getDimensions();
+        if (columns.length != dimensions + 1)
+            throw new IllegalArgumentException(
+                    "incorrect number of columns, must be " + (dimensions + 1) + ", got " + columns.length);
+        for (Object[] column : columns) {
+            if (column.length != columns[0].length)
+                throw new IllegalArgumentException("all columns must be of the same length");
+        }
+
+        Rows rows = new Rows() {
+            @Override
+            public Object key(int row, int level) { return columns[level][row]; }
+
+            @Override
+            public Object value(int row) { return columns[dimensions][row]; }
+        };
+
+        int count = columns[0].length;
+        List<Object> keys = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        for (int start = 0; start < count; start = runEnd(rows, 0, start, count)) {
+            keys.add(rows.key(start, 0));
+            starts.add(start);
+        }
+        starts.add(count);
+
+        Object[] subtrees = new Object[keys.size()];
+        IntStream indexes = IntStream.range(0, subtrees.length);
+        (parallel ? indexes.parallel() : indexes).forEach(
+                i -> subtrees[i] = subtree(map, rows, starts.get(i), starts.get(i + 1)));
+
+        replace(map, keys, Arrays.asList(subtrees));
+    }
+
+    static void load(MultiDMap map, Iterator<Object[]> entries, boolean parallel) {
+        int dimensions = map.getDimensions();
+        List<Object> keys = new ArrayList<>();
+        List<Object> subtrees = new ArrayList<>();
+        List<Object[]> group = new ArrayList<>();
+
+        while (entries.hasNext() || !group.isEmpty()) {
+            Object[] entry = entries.hasNext() ? entries.next() : null;
+            if (entry != null && entry.length != dimensions + 1)
+                throw new IllegalArgumentException(
+                        "incorrect number of arguments, must be " + (dimensions + 1) + ", got " + entry.length);
+
+            // A group is the run of entries sharing a top level key, buffered until the next key starts
+            if (entry != null && (group.isEmpty() || Objects.equals(group.get(0)[0], entry[0]))) {
+                group.add(entry);
+                continue;
+            }
+
+            List<Object[]> full = group;
+            Rows rows = new Rows() {
+                @Override
+                public Object key(int row, int level) { return full.get(row)[level]; }
+
+                @Override
+                public Object value(int row) { return full.get(row)[dimensions]; }
+            };
+            keys.add(full.get(0)[0]);
+            if (parallel && dimensions > 1)
+                subtrees.add(CompletableFuture.supplyAsync(() -> subtree(map, rows, 0, full.size())));
+            else
+                subtrees.add(subtree(map, rows, 0, full.size()));
+
+            group = new ArrayList<>();
+            if (entry != null)
+                group.add(entry);
+        }
+
+        if (parallel && dimensions > 1) {
+            try {
+                subtrees.replaceAll(future -> ((CompletableFuture<?>) future).join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+        replace(map, keys, subtrees);
+    }
+
+    /**
+     * Swaps the new content into the map, once it is complete and known to be valid.
+     */
+    private static void replace(MultiDMap map, List<Object> keys, List<Object> subtrees) {
+        boolean innermost = map.getDimensions() == 1;
+        Map<Object, Object> data = map.newData(keys.size());
+        int size = 0;
+        for (int i = 0; i < keys.size(); ++i) {
+            Object previous = data.put(keys.get(i), subtrees.get(i));
+            if (innermost)
+                size += previous == null ? 1 : 0;
+            else if (previous != null)
+                throw notGrouped(keys.get(i));
+            else
+                size += ((MultiDMap) subtrees.get(i)).getSize();
+        }
+        map.replaceData(data, size);
+    }
+
+    /**
+     * @return  the value, at the innermost level, or the submap made of rows [from, to) below the top level
+     */
+    private static Object subtree(MultiDMap map, Rows rows, int from, int to) {
+        if (map.getDimensions() == 1)
+            return rows.value(to - 1);
+
+        MultiDMap inner = map.newInnerMap();
+        build(inner, rows, 1, from, to);
+        return inner;
+    }
+
+    /**
+     * Fills an empty map with rows [from, to), whose keys above the given level are all equal.
+     */
+    private static void build(MultiDMap map, Rows rows, int level, int from, int to) {
+        int runs = 0;
+        for (int start = from; start < to; start = runEnd(rows, level, start, to))
+            ++runs;
+        map.presize(runs);
+
+        boolean innermost = map.getDimensions() == 1;
+        for (int start = from; start < to; ) {
+            int end = runEnd(rows, level, start, to);
+            Object key = rows.key(start, level);
+            if (innermost) {
+                // As with put, the last of several values with the same keys wins
+                ((MultiDMap1<?, ?>) map).putLeaf(key, rows.value(end - 1));
+            } else {
+                if (map.data.containsKey(key))
+                    throw notGrouped(key);
+                MultiDMap inner = map.newInnerMap();
+                build(inner, rows, level + 1, start, end);
+                map.attach(key, inner);
+            }
+            start = end;
+        }
+    }
+
+    private static int runEnd(Rows rows, int level, int start, int to) {
+        Object key = rows.key(start, level);
+        int end = start + 1;
+        while (end < to && Objects.equals(rows.key(end, level), key))
+            ++end;
+        return end;
+    }
+
+    private static IllegalArgumentException notGrouped(Object key) {
+        return new IllegalArgumentException("entries are not grouped by key prefix, " + key + " appears in several runs");
+    }
+}
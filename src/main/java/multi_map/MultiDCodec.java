@@ -0,0 +1,47 @@
+package multi_map;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts keys or values to and from bytes, for the storage and persistence formats of
+ * multi-level maps.  Standard codecs are found in {@link MultiDCodecs}.
+ *
+ * @param <T>   Type of the keys or values encoded
+ */
+public interface MultiDCodec<T> {
+
+    /**
+     * Returned by {@link #width()} by codecs whose encodings differ in length.
+     */
+    int VARIABLE = -1;
+
+    /**
+     * @return  Number of bytes of every encoded value, or {@link #VARIABLE}
+     */
+    int width();
+
+    /**
+     * @return  Number of bytes {@link #write} will use for the value
+     */
+    default int encodedSize(T value) { return width(); }
+
+    /**
+     * @return  The primitive type the values unbox to, such as int.class for Integers, or null if
+     *          they aren't boxed primitives.  Column exports hold such values in primitive arrays,
+     *          see {@link MultiDColumnExport}.
+     */
+    default Class<?> primitiveType() { return null; }
+
+    /**
+     * Writes the value at the buffer's position, advancing it.
+     */
+    void write(T value, ByteBuffer out);
+
+    /**
+     * Reads a value at the buffer's position, advancing it.
+     *
+     * @param in        Buffer positioned on the encoded value
+     * @param length    Number of bytes of the encoded value
+     */
+    T read(ByteBuffer in, int length);
+}
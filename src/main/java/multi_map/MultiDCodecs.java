@@ -0,0 +1,92 @@
+package multi_map;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Standard {@link MultiDCodec}s.
+ */
+public final class MultiDCodecs {
+
+    private MultiDCodecs() {}
+
+    public static final MultiDCodec<Integer> INT = new MultiDCodec<Integer>() {
+        @Override
+        public int width() { return Integer.BYTES; }
+
+        @Override
+        public void write(Integer value, ByteBuffer out) { out.putInt(value); }
+
+        @Override
+        public Integer read(ByteBuffer in, int length) { return in.getInt(); }
+
+        @Override
+        public Class<?> primitiveType() { return int.class; }
+    };
+
+    public static final MultiDCodec<Long> LONG = new MultiDCodec<Long>() {
+        @Override
+        public int width() { return Long.BYTES; }
+
+        @Override
+        public void write(Long value, ByteBuffer out) { out.putLong(value); }
+
+        @Override
+        public Long read(ByteBuffer in, int length) { return in.getLong(); }
+
+        @Override
+        public Class<?> primitiveType() { return long.class; }
+    };
+
+    public static final MultiDCodec<Double> DOUBLE = new MultiDCodec<Double>() {
+        @Override
+        public int width() { return Double.BYTES; }
+
+        @Override
+        public void write(Double value, ByteBuffer out) { out.putDouble(value); }
+
+        @Override
+        public Double read(ByteBuffer in, int length) { return in.getDouble(); }
+
+        @Override
+        public Class<?> primitiveType() { return double.class; }
+    };
+
+    /**
+     * UTF-8 strings, of variable width.
+     */
+    public static final MultiDCodec<String> STRING = new MultiDCodec<String>() {
+        @Override
+        public int width() { return VARIABLE; }
+
+        @Override
+        public int encodedSize(String value) { return value.getBytes(StandardCharsets.UTF_8).length; }
+
+        @Override
+        public void write(String value, ByteBuffer out) { out.put(value.getBytes(StandardCharsets.UTF_8)); }
+
+        @Override
+        public String read(ByteBuffer in, int length) {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Views a codec as one of any object, for the maps which don't know the types of their keys
+     * and values.  Writing an object of another type then throws a ClassCastException.
+     */
+    @SuppressWarnings("unchecked")
+    static MultiDCodec<Object> untyped(MultiDCodec<?> codec) {
+        return (MultiDCodec<Object>) codec;
+    }
+
+    /**
+     * @return  a copy of the array, viewing each codec as one of any object, see {@link #untyped(MultiDCodec)}
+     */
+    @SuppressWarnings("unchecked")
+    static MultiDCodec<Object>[] untyped(MultiDCodec<?>[] codecs) {
+        return (MultiDCodec<Object>[]) codecs.clone();
+    }
+}
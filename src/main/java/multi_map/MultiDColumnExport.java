@@ -0,0 +1,126 @@
+package multi_map;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Exports the entries of {@link MultiDMap}s in columns, for analytics code which would otherwise
+ * transpose the rows of {@link MultiDMap#entries()}.
+ *
+ * The tree is walked once, depth first, each key being written to its column for every entry
+ * below it.  Columns whose codec has a {@link MultiDCodec#primitiveType() primitive type} are
+ * primitive arrays, so their keys or values are unboxed and must not be null; the others, as
+ * well as those given a null codec, are Object arrays.  Nothing is allocated per entry: the
+ * walk reuses one visitor per level and, when streaming, one {@link ColumnBatch}.
+ */
+public class MultiDColumnExport {
+
+    private final MultiDCodec<?>[] codecs;
+    private final int batchSize;
+
+    /**
+     * @param keyCodecs     Codec of each level's keys, from the top level down, null entries
+     *                      giving Object columns
+     * @param valueCodec    Codec of the values, null giving an Object column
+     * @param batchSize     Number of entries of the batches streamed
+     */
+    public MultiDColumnExport(MultiDCodec<?>[] keyCodecs, MultiDCodec<?> valueCodec, int batchSize) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("batch size must be positive, got " + batchSize);
+        codecs = new MultiDCodec<?>[keyCodecs.length + 1];
+        System.arraycopy(keyCodecs, 0, codecs, 0, keyCodecs.length);
+        codecs[keyCodecs.length] = valueCodec;
+        this.batchSize = batchSize;
+    }
+
+    public int getDimensions() { return codecs.length - 1; }
+
+    public int getBatchSize() { return batchSize; }
+
+    /**
+     * Exports all the entries of the map in a single batch, whatever the batch size.
+     */
+    public ColumnBatch export(MultiDMap map) {
+        checkDimensions(map);
+        ColumnBatch batch = new ColumnBatch(codecs, map.getSize());
+        new Walk(map, batch, null).run();
+        return batch;
+    }
+
+    /**
+     * Streams the entries of the map to a consumer in batches of the batch size, the last one
+     * possibly smaller.  The same batch is refilled once the consumer returns, which must copy
+     * whatever it keeps.
+     */
+    public void export(MultiDMap map, Consumer<? super ColumnBatch> consumer) {
+        checkDimensions(map);
+        ColumnBatch batch = new ColumnBatch(codecs, Math.min(batchSize, Math.max(1, map.getSize())));
+        new Walk(map, batch, consumer).run();
+    }
+
+    private void checkDimensions(MultiDMap map) {
+        if (map.getDimensions() != getDimensions())
+            throw new IllegalArgumentException(
+                    "incorrect number of dimensions, must be " + getDimensions() + ", got " + map.getDimensions());
+    }
+
+    /**
+     * Visits the keys of a level and what they map to, the level's inner maps or values.
+     */
+    private interface LevelVisitor extends BiConsumer<Object, Object> {}
+
+    /**
+     * A walk over one map.  The keys of the current path are held in a buffer and copied to the
+     * columns at every value.
+     */
+    private static final class Walk {
+        private final MultiDMap map;
+        private final ColumnBatch batch;
+        private final Consumer<? super ColumnBatch> consumer;
+        private final Object[] path;
+        private final LevelVisitor[] levels;
+        private int row = 0;
+
+        Walk(MultiDMap map, ColumnBatch batch, Consumer<? super ColumnBatch> consumer) {
+            this.map = map;
+            this.batch = batch;
+            this.consumer = consumer;
+            int dimensions = map.getDimensions();
+            path = new Object[dimensions];
+            levels = new LevelVisitor[dimensions];
+            for (int level = 0; level < dimensions - 1; ++level) {
+                int current = level;
+                levels[level] = (key, inner) -> {
+                    path[current] = key;
+                    ((MultiDMap) inner).data.forEach(levels[current + 1]);
+                };
+            }
+            levels[dimensions - 1] = this::value;
+        }
+
+        void run() {
+            map.data.forEach(levels[0]);
+            if (consumer == null) {
+                batch.setSize(row);
+            } else if (row > 0) {
+                batch.setSize(row);
+                batch.clearTail();
+                consumer.accept(batch);
+            }
+        }
+
+        private void value(Object key, Object value) {
+            int last = path.length - 1;
+            path[last] = key;
+            for (int level = 0; level < path.length; ++level)
+                batch.set(level, row, path[level]);
+            batch.set(last + 1, row, value);
+
+            if (++row == batch.capacity() && consumer != null) {
+                batch.setSize(row);
+                consumer.accept(batch);
+                row = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package multi_map;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the entries of a {@link MultiDMap} without creating anything per entry.
+ *
+ * The cursor keeps a single key buffer and the position it reached in each level.  Levels held in
+ * a {@link CompactMap} are walked slot by slot; an iterator is only created for the levels held in
+ * other maps, when the walk enters them.  A cursor can be {@link #reset(MultiDMap) reset} to walk
+ * the same or another map again.  Typical use:
+ *
+ * <pre>
+ *     MultiDCursor cursor = map.cursor();
+ *     while (cursor.next()) {
+ *         use(cursor.key(0), cursor.key(1), cursor.value());
+ *     }
+ * </pre>
+ *
+ * As with the iterators of the underlying maps, the map must not be modified during the walk.
+ */
+public class MultiDCursor {
+
+    private Object[] keys;
+    // Per level, the CompactMap walked by slot, or else the iterator over the level's entries
+    private Object[] levels;
+    private int[] slots;
+    private int level;
+    private Object value;
+    private boolean positioned;
+
+    public MultiDCursor(MultiDMap map) {
+        reset(map);
+    }
+
+    /**
+     * Restarts the walk over the given map.  The buffers are reused when the map has as many
+     * dimensions as the one previously walked.
+     *
+     * @param map   Map to walk
+     * @return      this cursor
+     */
+    public MultiDCursor reset(MultiDMap map) {
+        int dimensions = map.getDimensions();
+        if (keys == null || keys.length != dimensions) {
+            keys = new Object[dimensions];
+            levels = new Object[dimensions];
+            slots = new int[dimensions];
+        } else {
+            for (int i = 1; i < levels.length; ++i)
+                levels[i] = null;
+        }
+        enter(0, map);
+        level = 0;
+        value = null;
+        positioned = false;
+        return this;
+    }
+
+    public int getDimensions() { return keys.length; }
+
+    /**
+     * Moves to the next entry.
+     *
+     * @return  false when there are no more entries
+     */
+    public boolean next() {
+        while (level >= 0) {
+            Object walked = levels[level];
+            Object key;
+            Object found;
+            if (walked instanceof CompactMap) {
+                CompactMap compact = (CompactMap) walked;
+                int slot = slots[level] = compact.nextSlot(slots[level]);
+                if (slot < 0) {
+                    levels[level] = null;
+                    --level;
+                    continue;
+                }
+                key = compact.keyAt(slot);
+                found = compact.valueAt(slot);
+            } else {
+                Iterator<?> iterator = (Iterator<?>) walked;
+                if (!iterator.hasNext()) {
+                    levels[level] = null;
+                    --level;
+                    continue;
+                }
+                Map.Entry<?, ?> entry = (Map.Entry<?, ?>) iterator.next();
+                key = entry.getKey();
+                found = entry.getValue();
+            }
+
+            keys[level] = key;
+            if (level == keys.length - 1) {
+                value = found;
+                positioned = true;
+                return true;
+            }
+
+            ++level;
+            enter(level, (MultiDMap) found);
+        }
+
+        value = null;
+        positioned = false;
+        return false;
+    }
+
+    private void enter(int level, MultiDMap map) {
+        if (map.data instanceof CompactMap) {
+            levels[level] = map.data;
+            slots[level] = -2;
+        } else {
+            levels[level] = map.data.entrySet().iterator();
+        }
+    }
+
+    /**
+     * Skips the rest of the submap the current entry belongs to at the given level, so that the
+     * following {@link #next()} moves to the next key at that level.  For instance skip(0) moves
+     * on to the next top level key.
+     *
+     * @param level Level of the key whose subtree is to be skipped
+     */
+    public void skip(int level) {
+        checkPositioned();
+        if (level < 0 || level >= keys.length)
+            throw new IllegalArgumentException("level must be between 0 and " + (keys.length - 1) + ", got " + level);
+
+        for (int i = level + 1; i < levels.length; ++i)
+            levels[i] = null;
+        this.level = level;
+        positioned = false;
+    }
+
+    /**
+     * @param level Level of the key, 0 being the top level
+     * @return      Key of the current entry at the given level
+     */
+    public Object key(int level) {
+        checkPositioned();
+        return keys[level];
+    }
+
+    /**
+     * @return  Value of the current entry
+     */
+    public Object value() {
+        checkPositioned();
+        return value;
+    }
+
+    private void checkPositioned() {
+        if (!positioned)
+            throw new NoSuchElementException("cursor is not positioned on an entry");
+    }
+}
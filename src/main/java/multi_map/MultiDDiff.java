@@ -0,0 +1,71 @@
+package multi_map;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A difference between two {@link MultiDMap}s, as produced by {@link MultiDMap#diff(MultiDMap)}.
+ */
+public final class MultiDDiff {
+
+    public enum Type {
+        /** The entry is only in the other map */
+        ADDED,
+        /** The entry is only in the map diff was called on */
+        REMOVED,
+        /** The entry is in both maps, with different values */
+        CHANGED
+    }
+
+    private final Type type;
+    private final Object[] keys;
+    private final Object oldValue;
+    private final Object newValue;
+
+    MultiDDiff(Type type, Object[] keys, Object oldValue, Object newValue) {
+        this.type = type;
+        this.keys = keys;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+    }
+
+    public Type getType() { return type; }
+
+    /**
+     * @return  Keys of the entry, one for each level
+     */
+    public Object[] getKeys() { return keys.clone(); }
+
+    /**
+     * @return  Value in the map diff was called on, null if ADDED
+     */
+    public Object getOldValue() { return oldValue; }
+
+    /**
+     * @return  Value in the other map, null if REMOVED
+     */
+    public Object getNewValue() { return newValue; }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof MultiDDiff)) return false;
+
+        MultiDDiff that = (MultiDDiff) obj;
+        return
+                that.type == this.type &&
+                Arrays.equals(that.keys, this.keys) &&
+                Objects.equals(that.oldValue, this.oldValue) &&
+                Objects.equals(that.newValue, this.newValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return (type.hashCode() * 31 + Arrays.hashCode(keys)) * 31 + Objects.hashCode(newValue);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + Arrays.toString(keys) + ": " + oldValue + " -> " + newValue;
+    }
+}
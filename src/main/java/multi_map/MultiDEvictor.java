@@ -0,0 +1,252 @@
+package multi_map;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Decides what a {@link BoundedMultiDMap} evicts.  It tracks weighted units, a unit being
+ * whatever the map evicts at once, and orders them by least recent use or by W-TinyLFU.
+ *
+ * W-TinyLFU keeps new units in a small LRU window, about 1% of the maximum weight.  Units leaving
+ * the window go to the probation segment of the main area, and move to its protected segment,
+ * 80% of the main area, when used again.  When too heavy, the least recently used unit of
+ * probation is evicted unless the newest one of probation has been used less often, estimated
+ * by a count-min sketch of 4 bit counters which are halved periodically so that old popularity
+ * fades.  A burst of units used once thus can't flush out the units used often.
+ */
+final class MultiDEvictor {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    private final Map<Object, Node> nodes = new HashMap<>();
+    // A circular list per segment, the sentinel's next being the least recently used.  LRU only
+    // uses the window list.
+    private final Node[] segments = {new Node(null, 0), new Node(null, 0), new Node(null, 0)};
+    private final long[] segmentWeights = new long[3];
+    private final FrequencySketch sketch;
+    private long totalWeight;
+
+    MultiDEvictor(long maximumWeight, boolean tinyLfu) {
+        if (maximumWeight < 0)
+            throw new IllegalArgumentException("maximum weight can't be negative, got " + maximumWeight);
+        this.maximumWeight = maximumWeight;
+        if (tinyLfu) {
+            windowMaximum = Math.max(1, maximumWeight / 100);
+            protectedMaximum = (maximumWeight - windowMaximum) * 4 / 5;
+            sketch = new FrequencySketch(maximumWeight);
+        } else {
+            windowMaximum = Long.MAX_VALUE;
+            protectedMaximum = 0;
+            sketch = null;
+        }
+    }
+
+    long getWeight() { return totalWeight; }
+
+    /**
+     * Records a use of a unit, adding it if it isn't tracked yet.
+     *
+     * @param unit          Unit used
+     * @param weightDelta   Change of the unit's weight, or its weight if new
+     */
+    void record(Object unit, long weightDelta) {
+        if (sketch != null)
+            sketch.increment(unit);
+
+        Node node = nodes.get(unit);
+        if (node == null) {
+            node = new Node(unit, weightDelta);
+            nodes.put(unit, node);
+            totalWeight += weightDelta;
+            link(WINDOW, node);
+            drainWindow();
+            return;
+        }
+
+        reweigh(node, weightDelta);
+        onAccess(node);
+    }
+
+    /**
+     * Records a use of a unit, if tracked.
+     */
+    void touch(Object unit) {
+        Node node = nodes.get(unit);
+        if (node == null)
+            return;
+        if (sketch != null)
+            sketch.increment(unit);
+        onAccess(node);
+    }
+
+    /**
+     * Changes the weight of a tracked unit without counting it as a use.
+     */
+    void reweigh(Object unit, long weightDelta) {
+        Node node = nodes.get(unit);
+        if (node != null)
+            reweigh(node, weightDelta);
+    }
+
+    /**
+     * Stops tracking a unit removed from the map.
+     */
+    void forget(Object unit) {
+        Node node = nodes.remove(unit);
+        if (node != null)
+            unlinkAndSubtract(node);
+    }
+
+    /**
+     * Picks the next unit to evict and stops tracking it.
+     *
+     * @return  the unit, or null if the units weigh no more than the maximum
+     */
+    Object nextVictim() {
+        if (totalWeight <= maximumWeight || nodes.isEmpty())
+            return null;
+
+        Node victim;
+        if (sketch == null) {
+            victim = first(WINDOW);
+        } else {
+            Node head = first(PROBATION);
+            Node candidate = segments[PROBATION].prev;
+            if (head == null)
+                victim = first(PROTECTED) != null ? first(PROTECTED) : first(WINDOW);
+            else if (candidate == head)
+                victim = head;
+            else
+                victim = sketch.frequency(candidate.unit) > sketch.frequency(head.unit) ? head : candidate;
+        }
+
+        nodes.remove(victim.unit);
+        unlinkAndSubtract(victim);
+        return victim.unit;
+    }
+
+    private void onAccess(Node node) {
+        if (node.segment == PROBATION) {
+            unlink(node);
+            link(PROTECTED, node);
+            // Demote the least recently used protected units back to probation
+            while (segmentWeights[PROTECTED] > protectedMaximum && first(PROTECTED) != node) {
+                Node demoted = first(PROTECTED);
+                unlink(demoted);
+                link(PROBATION, demoted);
+            }
+        } else {
+            unlink(node);
+            link(node.segment, node);
+        }
+    }
+
+    private void drainWindow() {
+        while (segmentWeights[WINDOW] > windowMaximum) {
+            Node oldest = first(WINDOW);
+            unlink(oldest);
+            link(PROBATION, oldest);
+        }
+    }
+
+    private void reweigh(Node node, long weightDelta) {
+        node.weight += weightDelta;
+        segmentWeights[node.segment] += weightDelta;
+        totalWeight += weightDelta;
+    }
+
+    private Node first(int segment) {
+        Node first = segments[segment].next;
+        return first == segments[segment] ? null : first;
+    }
+
+    private void link(int segment, Node node) {
+        Node sentinel = segments[segment];
+        node.segment = segment;
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+        segmentWeights[segment] += node.weight;
+    }
+
+    private void unlink(Node node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        segmentWeights[node.segment] -= node.weight;
+    }
+
+    private void unlinkAndSubtract(Node node) {
+        unlink(node);
+        totalWeight -= node.weight;
+    }
+
+    private static final class Node {
+        final Object unit;
+        long weight;
+        int segment;
+        Node prev = this;
+        Node next = this;
+
+        Node(Object unit, long weight) {
+            this.unit = unit;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4 rows of saturating 4 bit counters, held in ints for simplicity.
+     */
+    private static final class FrequencySketch {
+
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        private static final int MAX_COUNT = 15;
+
+        private final int[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(long maximumWeight) {
+            int width = Integer.highestOneBit((int) Math.max(16, Math.min(maximumWeight, 1 << 20)) - 1) << 1;
+            table = new int[width];
+            mask = width - 1;
+            sampleSize = 10 * width;
+        }
+
+        private int index(Object unit, int row) {
+            int h = Objects.hashCode(unit) * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        void increment(Object unit) {
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; ++row) {
+                int i = index(unit, row);
+                if (table[i] < MAX_COUNT) {
+                    ++table[i];
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; ++i)
+                    table[i] >>>= 1;
+                additions /= 2;
+            }
+        }
+
+        int frequency(Object unit) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; ++row)
+                frequency = Math.min(frequency, table[index(unit, row)]);
+            return frequency;
+        }
+    }
+}
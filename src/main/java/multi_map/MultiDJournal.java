@@ -0,0 +1,571 @@
+package multi_map;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal of the changes made to a {@link MultiDMap}, so that it survives crashes
+ * without losing the changes made since its last snapshot.
+ *
+ * Once {@link #recover} has rebuilt the map, the journal is its {@link MultiDMutationListener}:
+ * every put and remove, prefix removes included, is appended as a record to a buffer in memory,
+ * so the callers never wait for the disk.  A writer thread writes the buffer to the current
+ * segment file and forces it to disk at most every commit interval, or as soon as a caller waits
+ * in {@link #sync()}.  All the records appended until then share that one force: callers of sync
+ * on several threads are committed as a group.
+ *
+ * A record is its length, the CRC32 of its content, then its content: its type, then its keys
+ * and value encoded by the {@link MultiDCodec} of their level, encodings of variable width being
+ * preceded by their length.  Keys and values can't be null.
+ *
+ * Segments are numbered, a new one being started once the current one reaches the segment size.
+ * {@link #checkpoint} compacts the journal: it starts a new segment, writes a
+ * {@link MultiDSnapshot} of the map and deletes the segments the snapshot makes useless.
+ * Recovery loads the latest snapshot and replays the segments written after it, a record torn by
+ * a crash at the end of the last segment being dropped.
+ */
+public class MultiDJournal implements MultiDMutationListener, Closeable {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L << 20;
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+
+    // Appends wait for the writer once this many bytes are buffered
+    private static final int MAX_PENDING = 16 << 20;
+    private static final int BUFFER_SIZE = MultiDSnapshot.BUFFER_SIZE;
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    // Length and CRC of a record
+    private static final int HEADER = 8;
+
+    private static final String SEGMENT = "segment-";
+    private static final String SNAPSHOT = "snapshot-";
+    private static final String TEMPORARY = ".tmp";
+
+    private final Path directory;
+    private final MultiDCodec<Object>[] keyCodecs;
+    private final MultiDCodec<Object> valueCodec;
+    private final long segmentSize;
+    private final long commitIntervalMillis;
+    private final CRC32 crc = new CRC32();
+
+    // Guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appended = 0;
+    private long durable = 0;
+    private boolean syncRequested = false;
+    private boolean closed = false;
+    private IOException failure;
+    private MultiDMap map;
+    private Thread writer;
+
+    // Guarded by io: used by the writer thread and by checkpoints
+    private final Object io = new Object();
+    private FileChannel segment;
+    private long segmentNumber;
+
+    /**
+     * @param directory     Directory of the segments and snapshots, created if needed
+     * @param keyCodecs     Codec of each level's keys, from the top level down
+     * @param valueCodec    Codec of the values
+     */
+    public MultiDJournal(Path directory, MultiDCodec<?>[] keyCodecs, MultiDCodec<?> valueCodec) {
+        this(directory, keyCodecs, valueCodec, DEFAULT_SEGMENT_SIZE, DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param segmentSize           Number of bytes after which a new segment is started
+     * @param commitIntervalMillis  Longest time records stay in memory unless {@link #sync()} is called
+     */
+    public MultiDJournal(Path directory, MultiDCodec<?>[] keyCodecs, MultiDCodec<?> valueCodec,
+                         long segmentSize, long commitIntervalMillis) {
+        if (segmentSize <= 0 || commitIntervalMillis <= 0)
+            throw new IllegalArgumentException("segment size and commit interval must be positive, got "
+                    + segmentSize + " and " + commitIntervalMillis);
+        this.directory = directory;
+        this.keyCodecs = MultiDCodecs.untyped(keyCodecs);
+        this.valueCodec = MultiDCodecs.untyped(valueCodec);
+        this.segmentSize = segmentSize;
+        this.commitIntervalMillis = commitIntervalMillis;
+    }
+
+    public int getDimensions() { return keyCodecs.length; }
+
+    /**
+     * Rebuilds the map from the latest snapshot and the segments written after it, then starts
+     * journaling its changes in a new segment.
+     *
+     * @param target    Empty map of the journal's dimensions
+     * @return          the map given
+     * @throws IOException  if the snapshot or a segment other than the last one is corrupt
+     */
+    public synchronized <M extends MultiDMap> M recover(M target) throws IOException {
+        if (target.getDimensions() != keyCodecs.length)
+            throw new IllegalArgumentException(
+                    "incorrect number of dimensions, must be " + keyCodecs.length + ", got " + target.getDimensions());
+        if (target.getSize() != 0)
+            throw new IllegalArgumentException("journals can only be recovered into an empty map");
+        if (map != null || closed)
+            throw new IllegalStateException("journal already recovered");
+
+        Files.createDirectories(directory);
+        List<Long> snapshots = numbers(SNAPSHOT);
+        List<Long> segments = numbers(SEGMENT);
+        long snapshot = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+        if (!snapshots.isEmpty())
+            new MultiDSnapshot(keyCodecs, valueCodec).load(file(SNAPSHOT, snapshot), target);
+
+        long last = snapshot;
+        for (int i = 0; i < segments.size(); ++i) {
+            long number = segments.get(i);
+            if (number >= snapshot)
+                replay(number, target, i == segments.size() - 1);
+            last = Math.max(last, number);
+        }
+        deleteBefore(snapshot);
+        // Left by a crash during a checkpoint
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TEMPORARY)) {
+            for (Path file : files)
+                Files.delete(file);
+        }
+
+        synchronized (io) {
+            segmentNumber = last;
+            openSegment(last + 1);
+        }
+        map = target;
+        target.setMutationListener(this);
+        writer = new Thread(this::writeLoop, "multi-d-journal " + directory.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+        return target;
+    }
+
+    @Override
+    public void put(Object[] keys, Object value) {
+        int length = 1 + encodedSize(valueCodec, value);
+        for (int level = 0; level < keyCodecs.length; ++level)
+            length += encodedSize(keyCodecs[level], keys[level]);
+
+        synchronized (this) {
+            ByteBuffer out = reserve(length);
+            out.put(PUT);
+            for (int level = 0; level < keyCodecs.length; ++level)
+                write(keyCodecs[level], keys[level], out);
+            write(valueCodec, value, out);
+            seal(out, length);
+        }
+    }
+
+    @Override
+    public void remove(Object[] keys, int length) {
+        int recordLength = 2;
+        for (int level = 0; level < length; ++level)
+            recordLength += encodedSize(keyCodecs[level], keys[level]);
+
+        synchronized (this) {
+            ByteBuffer out = reserve(recordLength);
+            out.put(REMOVE).put((byte) length);
+            for (int level = 0; level < length; ++level)
+                write(keyCodecs[level], keys[level], out);
+            seal(out, recordLength);
+        }
+    }
+
+    /**
+     * Compacts the journal after a bulk load, which isn't journaled record by record.
+     */
+    @Override
+    public void replaced(MultiDMap map) {
+        try {
+            checkpoint(map);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to checkpoint journal " + directory, e);
+        }
+    }
+
+    /**
+     * Waits until every change made so far is on disk.  Concurrent callers share the same force.
+     *
+     * @throws IOException  if the journal failed to write
+     */
+    public synchronized void sync() throws IOException {
+        if (writer == null)
+            throw new IllegalStateException("journal " + directory + " isn't recovered yet");
+        long target = appended;
+        while (durable < target && failure == null) {
+            if (!writer.isAlive())
+                throw new IOException("journal " + directory + " is closed");
+            requestSync();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for journal " + directory);
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Writes a snapshot of the map and deletes the segments it makes useless.  The map must not
+     * be changed until this returns.
+     */
+    public void checkpoint(MultiDMap map) throws IOException {
+        long number;
+        synchronized (io) {
+            number = segmentNumber + 1;
+            openSegment(number);
+        }
+
+        // Records buffered before the new segment was started may be written to it, replaying
+        // them over a snapshot already holding them leaves it unchanged
+        Path temporary = directory.resolve(file(SNAPSHOT, number).getFileName() + TEMPORARY);
+        new MultiDSnapshot(keyCodecs, valueCodec).save(map, temporary);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, file(SNAPSHOT, number), StandardCopyOption.ATOMIC_MOVE);
+        deleteBefore(number);
+    }
+
+    /**
+     * Writes and forces the changes buffered, then stops journaling the map's changes.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread stopping;
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            if (map != null)
+                map.setMutationListener(null);
+            stopping = writer;
+            notifyAll();
+        }
+
+        if (stopping != null) {
+            try {
+                stopping.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted closing journal " + directory);
+            }
+        }
+        synchronized (io) {
+            if (segment != null)
+                segment.close();
+        }
+        synchronized (this) {
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    /**
+     * Asks the writer to commit without waiting for the commit interval.  Only the first caller
+     * wakes the threads up, so that waiting callers don't wake each other up endlessly.
+     */
+    private void requestSync() {
+        if (!syncRequested) {
+            syncRequested = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return  the buffer, positioned after the header of a record of the given length
+     */
+    private ByteBuffer reserve(int length) {
+        if (closed)
+            throw new IllegalStateException("journal " + directory + " is closed");
+        while (pending.position() > MAX_PENDING && failure == null) {
+            requestSync();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("interrupted appending to journal " + directory));
+            }
+        }
+        if (failure != null)
+            throw new UncheckedIOException("journal " + directory + " failed", failure);
+
+        if (pending.remaining() < HEADER + length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + HEADER + length));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+        if (pending.position() == 0)
+            notifyAll();
+        pending.position(pending.position() + HEADER);
+        return pending;
+    }
+
+    /**
+     * Fills in the header of the record just written.
+     */
+    private void seal(ByteBuffer out, int length) {
+        int start = out.position() - length;
+        ByteBuffer content = out.duplicate();
+        content.limit(out.position()).position(start);
+        crc.reset();
+        crc.update(content);
+        out.putInt(start - HEADER, length).putInt(start - 4, (int) crc.getValue());
+        appended += HEADER + length;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long upTo;
+            synchronized (this) {
+                try {
+                    while (!closed && !syncRequested && pending.position() == 0)
+                        wait();
+                    // Gathers the records of other callers into the same commit
+                    if (!closed && !syncRequested)
+                        wait(commitIntervalMillis);
+                } catch (InterruptedException e) {
+                    closed = true;
+                }
+                if (closed && pending.position() == 0) {
+                    notifyAll();
+                    return;
+                }
+                syncRequested = false;
+                batch = pending;
+                pending = spare;
+                upTo = appended;
+            }
+
+            try {
+                synchronized (io) {
+                    batch.flip();
+                    while (batch.hasRemaining())
+                        segment.write(batch);
+                    segment.force(false);
+                    if (segment.size() >= segmentSize)
+                        openSegment(segmentNumber + 1);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+
+            batch.clear();
+            synchronized (this) {
+                spare = batch;
+                durable = upTo;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Starts writing to a new segment.  Called holding io.
+     */
+    private void openSegment(long number) throws IOException {
+        FileChannel next = FileChannel.open(file(SEGMENT, number),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        if (segment != null) {
+            segment.force(false);
+            segment.close();
+        }
+        segment = next;
+        segmentNumber = number;
+    }
+
+    /**
+     * Applies the records of a segment to the map.
+     *
+     * @param last  Whether this is the last segment, whose records may have been torn by a crash
+     */
+    private void replay(long number, MultiDMap target, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(file(SEGMENT, number), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.flip();
+            long valid = 0;
+            while (true) {
+                buffer = require(channel, buffer, HEADER);
+                if (buffer.remaining() < HEADER)
+                    break;
+                int length = buffer.getInt(buffer.position());
+                int checksum = buffer.getInt(buffer.position() + 4);
+                if (length <= 0 || length > channel.size() - valid - HEADER)
+                    break;
+                buffer = require(channel, buffer, HEADER + length);
+                if (buffer.remaining() < HEADER + length)
+                    break;
+
+                ByteBuffer content = buffer.duplicate();
+                content.position(buffer.position() + HEADER).limit(buffer.position() + HEADER + length);
+                crc.reset();
+                crc.update(content.duplicate());
+                if ((int) crc.getValue() != checksum || !apply(content, target))
+                    break;
+                buffer.position(buffer.position() + HEADER + length);
+                valid += HEADER + length;
+            }
+
+            if (valid < channel.size()) {
+                if (!last)
+                    throw new IOException("corrupt record at " + valid + " in " + file(SEGMENT, number));
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    /**
+     * Reads until the buffer holds the given number of bytes or the channel ends, growing it for
+     * records larger than itself.
+     *
+     * @return  the buffer, or the larger one replacing it
+     */
+    private static ByteBuffer require(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes)
+            return buffer;
+        if (buffer.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(bytes);
+            buffer = larger.put(buffer);
+        } else {
+            buffer.compact();
+        }
+        while (buffer.position() < bytes && channel.read(buffer) >= 0)
+            ;
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @return  false if the record is malformed
+     */
+    private boolean apply(ByteBuffer content, MultiDMap target) {
+        try {
+            byte type = content.get();
+            if (type == PUT) {
+                Object[] entry = new Object[keyCodecs.length + 1];
+                for (int level = 0; level < keyCodecs.length; ++level)
+                    entry[level] = read(keyCodecs[level], content);
+                entry[keyCodecs.length] = read(valueCodec, content);
+                if (content.hasRemaining())
+                    return false;
+                target.put(entry);
+                return true;
+            }
+            if (type == REMOVE) {
+                int length = content.get();
+                if (length < 1 || length > keyCodecs.length)
+                    return false;
+                Object[] keys = new Object[length];
+                for (int level = 0; level < length; ++level)
+                    keys[level] = read(keyCodecs[level], content);
+                if (content.hasRemaining())
+                    return false;
+                target.remove(keys);
+                return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            // Lengths read from a damaged record overflowing it
+            return false;
+        }
+    }
+
+    private static int encodedSize(MultiDCodec<Object> codec, Object value) {
+        int length = codec.encodedSize(value);
+        return codec.width() == MultiDCodec.VARIABLE ? countSize(length) + length : length;
+    }
+
+    private static void write(MultiDCodec<Object> codec, Object value, ByteBuffer out) {
+        if (codec.width() == MultiDCodec.VARIABLE) {
+            int length = codec.encodedSize(value);
+            while ((length & ~0x7F) != 0) {
+                out.put((byte) ((length & 0x7F) | 0x80));
+                length >>>= 7;
+            }
+            out.put((byte) length);
+        }
+        codec.write(value, out);
+    }
+
+    private static Object read(MultiDCodec<?> codec, ByteBuffer in) {
+        int length = codec.width();
+        if (length == MultiDCodec.VARIABLE) {
+            length = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.get();
+                length |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    break;
+                if (shift >= 28)
+                    throw new IllegalArgumentException("malformed length");
+            }
+            if (length > in.remaining())
+                throw new IllegalArgumentException("length beyond the record");
+        }
+        return codec.read(in, length);
+    }
+
+    private static int countSize(int value) {
+        int bytes = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            ++bytes;
+        }
+        return bytes;
+    }
+
+    private Path file(String prefix, long number) {
+        return directory.resolve(String.format("%s%016d", prefix, number));
+    }
+
+    /**
+     * @return  the numbers of the files of a kind, in increasing order
+     */
+    private List<Long> numbers(String prefix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.matches("[a-z]+-\\d{16}"))
+                    numbers.add(Long.parseLong(name.substring(prefix.length())));
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * Deletes the segments and snapshots older than the snapshot of the given number.
+     */
+    private void deleteBefore(long snapshot) throws IOException {
+        for (long number : numbers(SEGMENT)) {
+            if (number < snapshot)
+                Files.deleteIfExists(file(SEGMENT, number));
+        }
+        for (long number : numbers(SNAPSHOT)) {
+            if (number < snapshot)
+                Files.deleteIfExists(file(SNAPSHOT, number));
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package multi_map;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A multi-level map.
@@ -12,6 +18,16 @@ public abstract class MultiDMap {
     protected Map<Object, Object> data;
     private int dimensions;
     private int size = 0;
+
+    // Sum of hashTerm(key, hash of its value or submap) over the keys of this level, maintained
+    // by every change so that hashCode, equals and diff can compare whole subtrees at once
+    protected long structuralHash = 0;
+
+    // Shared by every level of the map while statistics are enabled, null otherwise
+    MultiDStats stats;
+
+    // Set on the top level only, so that the puts and removes made by inner levels aren't reported
+    MultiDMutationListener mutationListener;
     
     /**
      * Creates an 'inner' map suitable for use as the value entry of data.
@@ -19,10 +35,30 @@ public abstract class MultiDMap {
      * @return MultiDMap
      */
     protected abstract MultiDMap createInnerMap();
+
+    /**
+     * Creates an inner map which is about to be added, sharing this instance's statistics.
+     */
+    final MultiDMap newInnerMap() {
+        MultiDMap inner = createInnerMap();
+        if (stats != null) {
+            inner.stats = stats;
+            stats.recordInnerMapCreated();
+        }
+        return inner;
+    }
     
     protected MultiDMap(int dimensions) {
+        this(dimensions, new CompactMap());
+    }
+
+    /**
+     * @param dimensions    Number of dimensions
+     * @param data          Empty map to hold this level's keys, e.g. a sorted map to keep them ordered
+     */
+    protected MultiDMap(int dimensions, Map<Object, Object> data) {
         this.dimensions = dimensions;
-        data = new HashMap<>();
+        this.data = data;
     }
 
     public int getDimensions() { return dimensions; }
@@ -33,6 +69,90 @@ public abstract class MultiDMap {
      */
     public int getSize() { return size; }
 
+    /**
+     * Starts collecting statistics on the operations and the shape of this instance, see
+     * {@link MultiDStats}.  Does nothing if they are already collected.
+     *
+     * @return  the statistics
+     */
+    public MultiDStats enableStats() {
+        if (stats == null)
+            shareStats(new MultiDStats(this));
+        return stats;
+    }
+
+    /**
+     * Stops collecting statistics, the counts collected so far being dropped.
+     */
+    public void disableStats() {
+        if (stats != null)
+            shareStats(null);
+    }
+
+    /**
+     * @return  the statistics collected, or null if they aren't enabled
+     */
+    public MultiDStats getStats() { return stats; }
+
+    /**
+     * Reports every change made through this instance's methods to a listener, such as a
+     * {@link MultiDJournal}.  Changes made through submaps aren't reported.
+     *
+     * @param listener  The listener, replacing any other, or null to stop reporting changes
+     */
+    public void setMutationListener(MultiDMutationListener listener) {
+        mutationListener = listener;
+    }
+
+    /**
+     * @return  the listener receiving the changes, or null if there is none
+     */
+    public MultiDMutationListener getMutationListener() { return mutationListener; }
+
+    /**
+     * Reports the outcome of a compute to the listener: the value stored, unless it is the very
+     * value the function was given, or the removal of the entry.
+     *
+     * @param keys          Keys of every level
+     * @param remapping     The function run by the compute
+     * @param value         Value computed, null if there is none
+     * @param sizeBefore    Number of values before the compute
+     */
+    void computed(Object[] keys, ObservedRemapping remapping, Object value, int sizeBefore) {
+        if (value != null) {
+            if (value != remapping.old)
+                mutationListener.put(keys, value);
+        } else if (getSize() < sizeBefore)
+            mutationListener.remove(keys, keys.length);
+    }
+
+    /**
+     * The function of a compute, keeping the value it was given so that a compute leaving the
+     * entry as it was, such as a computeIfAbsent finding a value, isn't reported to the listener.
+     */
+    static final class ObservedRemapping implements BiFunction<Object, Object, Object> {
+        private final BiFunction<Object, Object, Object> remapping;
+        Object old;
+
+        ObservedRemapping(BiFunction<Object, Object, Object> remapping) {
+            this.remapping = remapping;
+        }
+
+        @Override
+        public Object apply(Object key, Object old) {
+            this.old = old;
+            return remapping.apply(key, old);
+        }
+    }
+
+    private void shareStats(MultiDStats shared) {
+        stats = shared;
+        if (dimensions > 1) {
+            for (Object inner : data.values())
+                ((MultiDMap) inner).shareStats(shared);
+        }
+    }
+
     /**
      * Implementation of internal get logic.  Note that there is no type checking, hence its 'protected' status.
      * @param keys  Array of keys, one for each level of the instance
@@ -42,7 +162,10 @@ public abstract class MultiDMap {
         if (keys.length > dimensions)
             throw new IllegalArgumentException(
                     "incorrect number of keys, accepts at most " + dimensions + ", got " + keys.length);
-        return getInner(dimensions, keys);
+        Object value = getInner(dimensions, keys);
+        if (stats != null)
+            stats.recordGet(value != null);
+        return value;
     }
 
     protected Object getInner(int maxDimensions, Object... keys) {
@@ -66,7 +189,12 @@ public abstract class MultiDMap {
             throw new IllegalArgumentException(
                     "incorrect number of arguments, must be " + (dimensions+1) + ", got " + o.length);
 
-        return putInner(o);
+        if (stats != null)
+            stats.recordPut();
+        Object old = putInner(o);
+        if (mutationListener != null)
+            mutationListener.put(o, o[o.length - 1]);
+        return old;
 	}
 
     /**
@@ -77,23 +205,239 @@ public abstract class MultiDMap {
      * @return  if there was already a value at the specified key, that value is returned, otherwise null
      */
     protected Object putInner(Object... o) {
-        int keyPos = o.length - 1 - dimensions;
-        MultiDMap inner = (MultiDMap) data.computeIfAbsent(o[keyPos], val -> createInnerMap());
+        Object key = o[o.length - 1 - dimensions];
+        MultiDMap inner = (MultiDMap) data.get(key);
+        boolean created = inner == null;
+        if (created) {
+            inner = newInnerMap();
+            data.put(key, inner);
+        }
 
+        long before = inner.structuralHash;
         Object value = inner.putInner(o);
         if (value == null)
             ++size;
 
+        structuralHash += hashTerm(key, inner.structuralHash) - (created ? 0 : hashTerm(key, before));
+        return value;
+    }
+
+    /**
+     * Implementation of the compute family of methods: finds or creates the entry of the given
+     * keys in a single walk, and stores the result of the function, or removes the entry if the
+     * result is null.  Inner maps are only added if the entry is, and are pruned if it was their
+     * last one.
+     *
+     * @param remapping Function of the innermost key and the current value, null if absent, giving the new value
+     * @param keys      Array of keys, one for each level of the instance
+     * @return          the new value, null if there is none
+     */
+    protected Object computeEntry(BiFunction<Object, Object, Object> remapping, Object... keys) {
+        if (keys.length != dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, must be " + dimensions + ", got " + keys.length);
+        if (mutationListener == null)
+            return computeInner(remapping, keys);
+
+        ObservedRemapping observed = new ObservedRemapping(remapping);
+        int before = size;
+        Object value = computeInner(observed, keys);
+        computed(keys, observed, value, before);
+        return value;
+    }
+
+    protected Object computeInner(BiFunction<Object, Object, Object> remapping, Object... keys) {
+        Object key = keys[keys.length - dimensions];
+        MultiDMap inner = (MultiDMap) data.get(key);
+        boolean created = inner == null;
+        if (created) {
+            // Only counted once kept, computing null leaves nothing to add
+            inner = createInnerMap();
+            inner.stats = stats;
+        }
+
+        int before = inner.getSize();
+        long hashBefore = inner.structuralHash;
+        Object value = inner.computeInner(remapping, keys);
+        int after = inner.getSize();
+        size += after - before;
+        structuralHash += (after > 0 ? hashTerm(key, inner.structuralHash) : 0) - (created ? 0 : hashTerm(key, hashBefore));
+
+        if (created && after > 0) {
+            data.put(key, inner);
+            if (stats != null)
+                stats.recordInnerMapCreated();
+        } else if (!created && after == 0) {
+            data.remove(key);
+            if (stats != null)
+                stats.recordInnerMapPruned();
+        }
         return value;
     }
-	
+
+    /**
+     * Adapts the function of a computeIfAbsent to {@link #computeEntry}.
+     */
+    protected static BiFunction<Object, Object, Object> ifAbsent(Supplier<?> supplier) {
+        return (key, old) -> old != null ? old : supplier.get();
+    }
+
+    /**
+     * Adapts the function of a computeIfPresent to {@link #computeEntry}.
+     */
+    protected static BiFunction<Object, Object, Object> ifPresent(Function<Object, ?> remapping) {
+        return (key, old) -> old == null ? null : remapping.apply(old);
+    }
+
+    /**
+     * Adapts the function of a compute to {@link #computeEntry}.
+     */
+    protected static BiFunction<Object, Object, Object> always(Function<Object, ?> remapping) {
+        return (key, old) -> remapping.apply(old);
+    }
+
+    /**
+     * Adapts the value and function of a merge to {@link #computeEntry}.
+     */
+    protected static BiFunction<Object, Object, Object> merging(Object value, BiFunction<Object, Object, ?> remapping) {
+        Objects.requireNonNull(value, "value");
+        return (key, old) -> old == null ? value : remapping.apply(old, value);
+    }
+
+    /**
+     * Replaces the content of this instance with entries given as parallel arrays.  The entries
+     * must be grouped by key prefix, that is all the entries below any prefix of keys must be
+     * consecutive, as they are when sorted.  Every map is then created at its final capacity and
+     * every subtree is built once, which is much faster than putting the entries one by one.
+     * The new content replaces the old in one step once it is completely built.
+     *
+     * @param columns   The keys of each level, from the top level down, then the values, all of the same length
+     * @param parallel  Whether the subtrees of the top level keys are built in parallel
+     * @throws IllegalArgumentException if the entries aren't grouped, in which case the instance is left unchanged
+     */
+    public void bulkLoad(Object[][] columns, boolean parallel) {
+        MultiDBulkLoader.load(this, columns, parallel);
+        if (mutationListener != null)
+            mutationListener.replaced(this);
+    }
+
+    /**
+     * As {@link #bulkLoad(Object[][], boolean)} for entries given as arrays holding their keys
+     * then their value.  Only the entries of one top level key at a time are buffered, or of
+     * the ones being built when loading in parallel.
+     */
+    public void bulkLoad(Iterator<Object[]> entries, boolean parallel) {
+        MultiDBulkLoader.load(this, entries, parallel);
+        if (mutationListener != null)
+            mutationListener.replaced(this);
+    }
+
+    /**
+     * As {@link #bulkLoad(Iterator, boolean)}, the stream being consumed in its encounter order.
+     */
+    public void bulkLoad(Stream<Object[]> entries, boolean parallel) {
+        bulkLoad(entries.iterator(), parallel);
+    }
+
+    /**
+     * Creates an empty map of the kind holding this level's keys, sized for the given number of
+     * keys.  Levels are held in {@link CompactMap}s unless given another kind of map by the
+     * constructor, subclasses doing so override this.
+     *
+     * @param expectedKeys  Number of keys the map will hold
+     */
+    protected Map<Object, Object> newData(int expectedKeys) {
+        return new CompactMap(expectedKeys);
+    }
+
+    /**
+     * Prepares an empty instance for the given number of keys at its level, so that filling it,
+     * as when loading a snapshot, never rehashes.
+     *
+     * @param expectedKeys  Number of keys this level will hold
+     */
+    protected void presize(int expectedKeys) {
+        if (data.isEmpty())
+            data = newData(expectedKeys);
+    }
+
+    /**
+     * Replaces the whole content of this instance in one step.
+     *
+     * @param newData   Map created by {@link #newData(int)} holding the new keys of this level
+     * @param newSize   Number of values below newData
+     */
+    protected void replaceData(Map<Object, Object> newData, int newSize) {
+        data = newData;
+        size = newSize;
+        structuralHash = 0;
+        for (Map.Entry<Object, Object> entry : data.entrySet())
+            structuralHash += hashTerm(entry.getKey(), childHash(entry.getValue()));
+    }
+
+    /**
+     * Adjusts the number of values, for subclasses which update the inner maps directly
+     * rather than through putInner and removeInner.
+     */
+    protected void addSize(int delta) {
+        size += delta;
+    }
+
+    /**
+     * Adds a complete submap under a key this instance doesn't hold yet, as when loading a
+     * snapshot.  Unlike put this costs the same whatever the size of the submap.
+     *
+     * @param key   Key of this level
+     * @param inner Non-empty submap, created by {@link #createInnerMap()}
+     */
+    protected void attach(Object key, MultiDMap inner) {
+        data.put(key, inner);
+        size += inner.getSize();
+        structuralHash += hashTerm(key, inner.structuralHash);
+    }
+
+    /**
+     * The contribution of a key to the structural hash of its level.  The terms of a level are
+     * summed, so the hash doesn't depend on the order of the keys, and each term is thoroughly
+     * mixed so that sums of different terms rarely collide.
+     *
+     * @param key       Key of the level
+     * @param childHash Hash of the value, see {@link #childHash(Object)}, or structural hash of the submap
+     */
+    static long hashTerm(Object key, long childHash) {
+        long h = Objects.hashCode(key) * 0x9E3779B97F4A7C15L + childHash;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * @param child Value, at the innermost level, or submap
+     * @return      the hash of the child to combine with its key
+     */
+    static long childHash(Object child) {
+        return child instanceof MultiDMap ? ((MultiDMap) child).structuralHash : Objects.hashCode(child);
+    }
+
 	/**
 	 * Generate iterable of all key-values, similar to @{@link Map}'s entries method.
+	 * The stream is sized and splits evenly when run in parallel, see {@link #spliterator()}.
 	 * 
 	 * @return  Stream of arrays in which each position holds the value for the relevant dimension
 	 */
     protected Stream<Object[]> entries() {
-        return constructiveEntries(dimensions);
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Creates a {@link Spliterator} over the entries, as produced by {@link #entries()}.  It
+     * reports the exact number of entries and, when split, descends as many levels as needed to
+     * divide the entries into parts of about the same size, however the keys are distributed.
+     *
+     * @return  Spliterator of arrays in which each position holds the value for the relevant dimension
+     */
+    public Spliterator<Object[]> spliterator() {
+        return new MultiDSpliterator(this);
     }
 
     protected Stream<Object[]> constructiveEntries(int maxDimensions) {
@@ -111,14 +455,294 @@ public abstract class MultiDMap {
             );
     }
 
+    /**
+     * Walks all entries depth first, passing them to the visitor.  Unlike {@link #entries()} this
+     * creates nothing per entry: the keys are handed over in one buffer which is shared for the
+     * whole walk.  The visitor can skip subtrees and end the walk early.
+     *
+     * @param visitor   {@link EntryVisitor} receiving the entries
+     * @return          false if the visitor ended the walk early, true otherwise
+     */
+    public boolean forEach(EntryVisitor visitor) {
+        return forEachInner(visitor, new Object[dimensions], 0);
+    }
+
+    /**
+     * Streams the entries selected by a query, see {@link MultiDQuery}.
+     *
+     * @param query Constraints on the keys of some levels, at most one per dimension
+     * @return      Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    public Stream<Object[]> query(MultiDQuery query) {
+        return query.stream(this);
+    }
+
+    /**
+     * As {@link #forEach(EntryVisitor)}, for the entries selected by a query only.
+     *
+     * @param query     Constraints on the keys of some levels, at most one per dimension
+     * @param visitor   {@link EntryVisitor} receiving the entries
+     * @return          false if the visitor ended the walk early, true otherwise
+     */
+    public boolean forEach(MultiDQuery query, EntryVisitor visitor) {
+        return query.forEach(this, visitor);
+    }
+
+    /**
+     * Reduces all the values, in parallel on the common fork/join pool, one task per subtree
+     * large enough, see {@link MultiDReducer}.  The identity and the functions must be suitable
+     * for a parallel reduction, as for {@link Stream#reduce(Object, BiFunction, BinaryOperator)}.
+     *
+     * @param identity      Result for no values, and starting point of every task
+     * @param accumulator   Adds a value to a partial result
+     * @param combiner      Combines two partial results
+     * @return              the result of the reduction
+     */
+    public <R> R reduce(R identity, BiFunction<R, Object, R> accumulator, BinaryOperator<R> combiner) {
+        return MultiDReducer.reduce(this, identity, accumulator, combiner);
+    }
+
+    /**
+     * As {@link #reduce(Object, BiFunction, BinaryOperator)}, grouping the values by the keys of
+     * the top levels.  For instance reducing a 3 dimensional map to 1 level gives a result per K1,
+     * to 2 levels a result per K1, K2 pair.
+     *
+     * @param levels    Number of top levels kept, between 1 and the dimensions - 1
+     * @return          a new map of the given number of dimensions, holding the result of each group
+     */
+    public <R> MultiDMap reduceTo(int levels, R identity, BiFunction<R, Object, R> accumulator, BinaryOperator<R> combiner) {
+        return MultiDReducer.reduceTo(this, levels, identity, accumulator, combiner);
+    }
+
+    /**
+     * @param value Converts a value to a double, for instance {@code v -> (Double) v}
+     * @return      the sum of all the values, reduced in parallel without boxing
+     */
+    public double sum(ToDoubleFunction<Object> value) {
+        return MultiDReducer.reduceDouble(this, value, Double::sum, 0);
+    }
+
+    /**
+     * @param value Converts a value to a double
+     * @return      the lowest value, or empty if there are none
+     */
+    public OptionalDouble min(ToDoubleFunction<Object> value) {
+        return getSize() == 0
+                ? OptionalDouble.empty()
+                : OptionalDouble.of(MultiDReducer.reduceDouble(this, value, Math::min, Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * @param value Converts a value to a double
+     * @return      the highest value, or empty if there are none
+     */
+    public OptionalDouble max(ToDoubleFunction<Object> value) {
+        return getSize() == 0
+                ? OptionalDouble.empty()
+                : OptionalDouble.of(MultiDReducer.reduceDouble(this, value, Math::max, Double.NEGATIVE_INFINITY));
+    }
+
+    /**
+     * @param levels    Number of top levels kept, between 1 and the dimensions - 1
+     * @param value     Converts a value to a double
+     * @return          a new map holding the sum of each group, as a Double
+     */
+    public MultiDMap sumTo(int levels, ToDoubleFunction<Object> value) {
+        return MultiDReducer.reduceDoubleTo(this, levels, value, Double::sum, 0);
+    }
+
+    /**
+     * @param levels    Number of top levels kept, between 1 and the dimensions - 1
+     * @param value     Converts a value to a double
+     * @return          a new map holding the lowest value of each group, as a Double
+     */
+    public MultiDMap minTo(int levels, ToDoubleFunction<Object> value) {
+        return MultiDReducer.reduceDoubleTo(this, levels, value, Math::min, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @param levels    Number of top levels kept, between 1 and the dimensions - 1
+     * @param value     Converts a value to a double
+     * @return          a new map holding the highest value of each group, as a Double
+     */
+    public MultiDMap maxTo(int levels, ToDoubleFunction<Object> value) {
+        return MultiDReducer.reduceDoubleTo(this, levels, value, Math::max, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Counts the values of each group from the sizes the submaps keep, without visiting any value.
+     *
+     * @param levels    Number of top levels kept, between 1 and the dimensions - 1
+     * @return          a new map holding the number of values of each group, as an Integer
+     */
+    public MultiDMap countTo(int levels) {
+        return MultiDReducer.countTo(this, levels);
+    }
+
+    protected boolean forEachInner(EntryVisitor visitor, Object[] keys, int level) {
+        if (data instanceof CompactMap) {
+            // Walks the slots, where the entry set would create an entry object per entry
+            CompactMap compact = (CompactMap) data;
+            for (int i = compact.firstSlot(); i >= 0; i = compact.nextSlot(i)) {
+                if (!visitEntry(visitor, keys, level, compact.keyAt(i), compact.valueAt(i)))
+                    return false;
+            }
+            return true;
+        }
+
+        for (Map.Entry<Object, Object> entry : data.entrySet()) {
+            if (!visitEntry(visitor, keys, level, entry.getKey(), entry.getValue()))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean visitEntry(EntryVisitor visitor, Object[] keys, int level, Object key, Object value) {
+        keys[level] = key;
+        if (dimensions == 1)
+            return visitor.visit(keys, value);
+
+        switch (visitor.enterSubtree(keys, level)) {
+            case STOP:
+                return false;
+            case SKIP:
+                return true;
+            default:
+                return ((MultiDMap) value).forEachInner(visitor, keys, level + 1);
+        }
+    }
+
+    /**
+     * @return  A {@link MultiDCursor} positioned before the first entry of this instance
+     */
+    public MultiDCursor cursor() {
+        return new MultiDCursor(this);
+    }
+
+    /**
+     * Compares level by level, values being compared with equals.  Maps of different
+     * structural hashes are told apart at once, and so are any two submaps during the
+     * comparison, so unequal maps are usually told apart without visiting many entries.
+     */
+    @Override
     public boolean equals(Object obj) {
+        if (this == obj) return true;
         if (!(obj instanceof MultiDMap)) return false;
 
         MultiDMap that = (MultiDMap) obj;
         return
                 that.dimensions == this.dimensions &&
-                that.size == this.size &&
-                this.entries().allMatch(e -> that.get(Arrays.copyOf(e, e.length - 1)) == e[e.length - 1]);
+                that.getSize() == this.getSize() &&
+                that.structuralHash == this.structuralHash &&
+                sameEntries(this, that);
+    }
+
+    private static boolean sameEntries(MultiDMap a, MultiDMap b) {
+        if (a.data.size() != b.data.size())
+            return false;
+
+        for (Map.Entry<Object, Object> entry : a.data.entrySet()) {
+            Object other = b.data.get(entry.getKey());
+            if (other == null && !b.data.containsKey(entry.getKey()))
+                return false;
+
+            if (a.dimensions == 1) {
+                if (!Objects.equals(entry.getValue(), other))
+                    return false;
+                continue;
+            }
+
+            MultiDMap inner = (MultiDMap) entry.getValue();
+            MultiDMap otherInner = (MultiDMap) other;
+            if (inner != otherInner && (inner.structuralHash != otherInner.structuralHash || !sameEntries(inner, otherInner)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Maintained as the map changes, so this costs nothing whatever the size of the map.  Equal
+     * maps have the same hash code whatever the kind of maps holding their levels.
+     */
+    @Override
+    public int hashCode() {
+        return (int) (structuralHash ^ (structuralHash >>> 32)) * 31 + dimensions;
+    }
+
+    /**
+     * Streams the differences between this instance and another of the same dimensions: the
+     * entries only the other holds are ADDED, those only this instance holds are REMOVED and those
+     * whose values differ are CHANGED.  Submaps of the same size and structural hash in both are
+     * taken to be equal and skipped without being visited, so the work done grows with the
+     * differences rather than with the size of the maps.  The chance that two different submaps
+     * have the same 64 bit structural hash is negligible but not nil.
+     *
+     * @param other Map to compare to
+     * @return      Stream of the differences, computed as the stream is consumed
+     */
+    public Stream<MultiDDiff> diff(MultiDMap other) {
+        if (other.dimensions != dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of dimensions, must be " + dimensions + ", got " + other.dimensions);
+        return diff(this, other, new Object[0]);
+    }
+
+    private static Stream<MultiDDiff> diff(MultiDMap a, MultiDMap b, Object[] prefix) {
+        if (a == b || (a.structuralHash == b.structuralHash && a.getSize() == b.getSize()))
+            return Stream.empty();
+
+        Stream<MultiDDiff> removedOrChanged = a.data.entrySet().stream().flatMap(
+                entry -> {
+                    Object[] keys = Arrays.copyOf(prefix, prefix.length + 1);
+                    keys[prefix.length] = entry.getKey();
+                    Object other = b.data.get(entry.getKey());
+                    boolean inB = other != null || b.data.containsKey(entry.getKey());
+
+                    if (a.dimensions == 1) {
+                        if (!inB)
+                            return Stream.of(new MultiDDiff(MultiDDiff.Type.REMOVED, keys, entry.getValue(), null));
+                        if (!Objects.equals(entry.getValue(), other))
+                            return Stream.of(new MultiDDiff(MultiDDiff.Type.CHANGED, keys, entry.getValue(), other));
+                        return Stream.empty();
+                    }
+
+                    MultiDMap inner = (MultiDMap) entry.getValue();
+                    return inB
+                            ? diff(inner, (MultiDMap) other, keys)
+                            : all(MultiDDiff.Type.REMOVED, keys, inner);
+                }
+        );
+
+        Stream<MultiDDiff> added = b.data.entrySet().stream()
+                .filter(entry -> !a.data.containsKey(entry.getKey()))
+                .flatMap(
+                        entry -> {
+                            Object[] keys = Arrays.copyOf(prefix, prefix.length + 1);
+                            keys[prefix.length] = entry.getKey();
+                            return b.dimensions == 1
+                                    ? Stream.of(new MultiDDiff(MultiDDiff.Type.ADDED, keys, null, entry.getValue()))
+                                    : all(MultiDDiff.Type.ADDED, keys, (MultiDMap) entry.getValue());
+                        }
+                );
+
+        return Stream.concat(removedOrChanged, added);
+    }
+
+    /**
+     * @return  a difference of the given type for every entry of a submap
+     */
+    private static Stream<MultiDDiff> all(MultiDDiff.Type type, Object[] prefix, MultiDMap submap) {
+        int maxDimensions = prefix.length + submap.dimensions;
+        return submap.constructiveEntries(maxDimensions).map(
+                entry -> {
+                    System.arraycopy(prefix, 0, entry, 0, prefix.length);
+                    Object[] keys = Arrays.copyOf(entry, maxDimensions);
+                    Object value = entry[maxDimensions];
+                    return type == MultiDDiff.Type.ADDED
+                            ? new MultiDDiff(type, keys, null, value)
+                            : new MultiDDiff(type, keys, value, null);
+                }
+        );
     }
 
     interface NestedMapFilter extends Predicate<Object[]> {
@@ -176,7 +800,12 @@ public abstract class MultiDMap {
             throw new IllegalArgumentException(
                     "incorrect number of keys, accepts at most " + dimensions + ", got " + keys.length);
 
-        return removeInner(dimensions, keys);
+        if (stats != null)
+            stats.recordRemove();
+        int removed = removeInner(dimensions, keys);
+        if (removed > 0 && mutationListener != null)
+            mutationListener.remove(keys, keys.length);
+        return removed;
     }
 
     /**
@@ -197,16 +826,228 @@ public abstract class MultiDMap {
             // Either we are removing a single value or an entire submap
             removed = dimensions == 1 ? 1 : ((MultiDMap) inner).getSize();
             data.remove(keys[pos]);
+            structuralHash -= hashTerm(keys[pos], childHash(inner));
         } else {
             MultiDMap innerMap = (MultiDMap) inner;
+            long before = innerMap.structuralHash;
             removed = innerMap.removeInner(maxDimensions, keys);
             if (innerMap.getSize() == 0) {
                 // innerMap is now empty, so we can remove it too
                 data.remove(keys[pos]);
+                structuralHash -= hashTerm(keys[pos], before);
+                if (stats != null)
+                    stats.recordInnerMapPruned();
+            } else {
+                structuralHash += hashTerm(keys[pos], innerMap.structuralHash) - hashTerm(keys[pos], before);
             }
         }
 
         size -= removed;
         return removed;
     }
+
+    /**
+     * Starts a batch of puts and removes, applied together by {@link Batch#apply()}.
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Applies the operations of a batch, see {@link Batch#apply()}.  Subclasses keeping structures
+     * of their own up to date on every put and remove override this to apply them one by one.
+     */
+    protected void applyBatch(Batch batch) {
+        applyGroup(batch.operations, 0);
+
+        for (BatchOperation operation : batch.operations) {
+            if (stats != null) {
+                if (operation.value != null)
+                    stats.recordPut();
+                else
+                    stats.recordRemove();
+            }
+            if (mutationListener != null) {
+                if (operation.value != null)
+                    mutationListener.put(operation.keys, operation.value);
+                else if (operation.removed)
+                    mutationListener.remove(operation.keys, operation.keys.length);
+            }
+        }
+    }
+
+    /**
+     * Applies operations whose keys are the same above the given level, in the order given,
+     * walking down each inner map once whatever the number of operations below it.
+     *
+     * @return  the change in the number of values
+     */
+    private int applyGroup(List<BatchOperation> operations, int level) {
+        int before = getSize();
+        if (dimensions == 1) {
+            MultiDMap1<?, ?> leaf = (MultiDMap1<?, ?>) this;
+            for (BatchOperation operation : operations) {
+                if (operation.value != null)
+                    leaf.putLeaf(operation.keys[level], operation.value);
+                else
+                    operation.removed = leaf.removeLeaf(operation.keys[level]) > 0;
+            }
+            return getSize() - before;
+        }
+
+        Map<Object, List<BatchOperation>> groups = new LinkedHashMap<>();
+        for (BatchOperation operation : operations)
+            groups.computeIfAbsent(operation.keys[level], key -> new ArrayList<>()).add(operation);
+
+        for (Map.Entry<Object, List<BatchOperation>> group : groups.entrySet()) {
+            Object key = group.getKey();
+            List<BatchOperation> below = group.getValue();
+            MultiDMap inner = (MultiDMap) data.get(key);
+
+            // A remove of the submap at this key makes the operations before it pointless
+            int start = below.size();
+            while (start > 0 && below.get(start - 1).keys.length > level + 1)
+                --start;
+            if (start > 0)
+                below.get(start - 1).removed = inner != null || hasPut(below.subList(0, start - 1));
+            if (start > 0 && inner != null) {
+                data.remove(key);
+                structuralHash -= hashTerm(key, inner.structuralHash);
+                size -= inner.getSize();
+                if (stats != null)
+                    stats.recordInnerMapPruned();
+                inner = null;
+            }
+            if (start == below.size())
+                continue;
+
+            boolean created = inner == null;
+            if (created) {
+                // Only counted once kept, the operations may leave it empty
+                inner = createInnerMap();
+                inner.stats = stats;
+            }
+            long hashBefore = inner.structuralHash;
+            size += inner.applyGroup(below.subList(start, below.size()), level + 1);
+
+            if (inner.getSize() == 0) {
+                if (!created) {
+                    data.remove(key);
+                    structuralHash -= hashTerm(key, hashBefore);
+                    if (stats != null)
+                        stats.recordInnerMapPruned();
+                }
+            } else {
+                if (created) {
+                    data.put(key, inner);
+                    if (stats != null)
+                        stats.recordInnerMapCreated();
+                }
+                structuralHash += hashTerm(key, inner.structuralHash) - (created ? 0 : hashTerm(key, hashBefore));
+            }
+        }
+        return getSize() - before;
+    }
+
+    /**
+     * @return  whether some of the operations are puts, which a remove following them removes
+     */
+    private static boolean hasPut(List<BatchOperation> operations) {
+        for (BatchOperation operation : operations) {
+            if (operation.value != null)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Puts and removes collected to be applied together.  Applying them groups them by key
+     * prefix, so that each inner map is walked down once however many operations lie below it,
+     * rather than once per operation, and inner maps left empty are pruned once at the end.
+     * Operations on the same keys take effect in the order they were added.
+     *
+     * Statistics count every operation.  A {@link MultiDMutationListener} set on the map is told of
+     * every put and of the removes which removed something, as by {@link MultiDMap#put} and
+     * {@link MultiDMap#remove}; removes made pointless by a later remove of a shorter prefix of
+     * their keys are left out, the later remove being the one reported.
+     */
+    public final class Batch {
+
+        final List<BatchOperation> operations = new ArrayList<>();
+
+        private Batch() {}
+
+        /**
+         * @param o Keys for each level of the map and the value, which can't be null
+         * @return  this batch
+         */
+        public Batch put(Object... o) {
+            if (o.length != dimensions + 1)
+                throw new IllegalArgumentException(
+                        "incorrect number of arguments, must be " + (dimensions + 1) + ", got " + o.length);
+            Objects.requireNonNull(o[dimensions], "value");
+            operations.add(new BatchOperation(Arrays.copyOf(o, dimensions), o[dimensions]));
+            return this;
+        }
+
+        /**
+         * @param keys  Keys of some levels from the top down, the submap found being removed when
+         *              there are fewer keys than dimensions
+         * @return      this batch
+         */
+        public Batch remove(Object... keys) {
+            if (keys.length == 0 || keys.length > dimensions)
+                throw new IllegalArgumentException(
+                        "incorrect number of keys, must be between 1 and " + dimensions + ", got " + keys.length);
+            operations.add(new BatchOperation(keys.clone(), null));
+            return this;
+        }
+
+        /**
+         * @return  The number of operations collected
+         */
+        public int size() { return operations.size(); }
+
+        /**
+         * Applies the operations to the map, then empties the batch so that it can be reused.
+         */
+        public void apply() {
+            try {
+                applyBatch(this);
+            } finally {
+                operations.clear();
+            }
+        }
+
+        /**
+         * Applies the operations one by one through the map's put and remove methods.
+         */
+        void applyEach() {
+            for (BatchOperation operation : operations) {
+                if (operation.value != null) {
+                    Object[] o = Arrays.copyOf(operation.keys, dimensions + 1);
+                    o[dimensions] = operation.value;
+                    MultiDMap.this.put(o);
+                } else {
+                    MultiDMap.this.remove(operation.keys);
+                }
+            }
+        }
+    }
+
+    /**
+     * A put of a {@link Batch}, holding the keys of every level and the value, or a remove,
+     * holding the keys given and no value.
+     */
+    static final class BatchOperation {
+        final Object[] keys;
+        final Object value;
+        // Set once applied for the removes which removed something
+        boolean removed;
+
+        BatchOperation(Object[] keys, Object value) {
+            this.keys = keys;
+            this.value = value;
+        }
+    }
 }
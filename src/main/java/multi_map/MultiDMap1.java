@@ -1,6 +1,10 @@
 package multi_map;
 
 import java.util.Arrays;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 @SuppressWarnings("unchecked")
@@ -15,6 +19,13 @@ public class MultiDMap1<K1,V> extends MultiDMap {
 	    super(1);
     }
 
+    /**
+     * @param data  Empty map to hold this level's keys, see {@link MultiDMap#MultiDMap(int, Map)}
+     */
+    protected MultiDMap1(Map<Object, Object> data) {
+        super(1, data);
+    }
+
     public int getSize() { return data.size(); }
 
     /**
@@ -26,7 +37,12 @@ public class MultiDMap1<K1,V> extends MultiDMap {
 		return (V) data.get(keys[keys.length - 1]);
 	}
 
-    public V get(K1 k1) { return (V) data.get(k1); }
+    public V get(K1 k1) {
+        V value = (V) data.get(k1);
+        if (stats != null)
+            stats.recordGet(value != null);
+        return value;
+    }
 
     /**
      * Overrides @{@link MultiDMap} implementation.  Not to be used by other callers.
@@ -34,16 +50,93 @@ public class MultiDMap1<K1,V> extends MultiDMap {
      * @return
      */
 	protected Object putInner(Object... keys) {
-	    return data.put(keys[keys.length - 2], keys[keys.length - 1]);
+	    return putLeaf(keys[keys.length - 2], keys[keys.length - 1]);
 	}
 
 	public Object put(K1 k1, V v) {
-        return data.put(k1, v);
+        if (stats != null)
+            stats.recordPut();
+        Object old = putLeaf(k1, v);
+        if (mutationListener != null)
+            mutationListener.put(new Object[] {k1}, v);
+        return old;
+    }
+
+    /**
+     * Puts a value, keeping the structural hash up to date.  Every put to this level goes through here.
+     */
+    Object putLeaf(Object key, Object value) {
+        int before = data.size();
+        Object old = data.put(key, value);
+        structuralHash += hashTerm(key, childHash(value)) - (data.size() == before ? hashTerm(key, childHash(old)) : 0);
+        return old;
+    }
+
+    /**
+     * Overrides @{@link MultiDMap} implementation.  Not to be used by other callers.
+     */
+    @Override
+    protected Object computeInner(BiFunction<Object, Object, Object> remapping, Object... keys) {
+        return computeLeaf(keys[keys.length - 1], remapping);
+    }
+
+    private Object computeLeaf(Object key, BiFunction<Object, Object, Object> remapping) {
+        Object old = data.get(key);
+        Object value = remapping.apply(key, old);
+        if (value != null)
+            putLeaf(key, value);
+        else if (old != null || data.containsKey(key))
+            removeLeaf(key);
+        return value;
+    }
+
+    /**
+     * Computes an entry at the request of a caller, rather than of a parent level.
+     */
+    private Object computeTop(Object key, BiFunction<Object, Object, Object> remapping) {
+        if (mutationListener == null)
+            return computeLeaf(key, remapping);
+
+        ObservedRemapping observed = new ObservedRemapping(remapping);
+        int before = data.size();
+        Object value = computeLeaf(key, observed);
+        computed(new Object[] {key}, observed, value, before);
+        return value;
+    }
+
+    public V computeIfAbsent(K1 k1, Supplier<? extends V> supplier) {
+        return (V) computeTop(k1, ifAbsent(supplier));
+    }
+
+    public V computeIfPresent(K1 k1, Function<? super V, ? extends V> remapping) {
+        return (V) computeTop(k1, ifPresent((Function<Object, ?>) remapping));
+    }
+
+    public V compute(K1 k1, Function<? super V, ? extends V> remapping) {
+        return (V) computeTop(k1, always((Function<Object, ?>) remapping));
+    }
+
+    public V merge(K1 k1, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        return (V) computeTop(k1, merging(value, (BiFunction<Object, Object, ?>) remapping));
     }
 
     public int remove(K1 k1) {
-	    if (data.containsKey(k1)) {
-	        data.remove(k1);
+        if (stats != null)
+            stats.recordRemove();
+        int removed = removeLeaf(k1);
+        if (removed > 0 && mutationListener != null)
+            mutationListener.remove(new Object[] {k1}, 1);
+        return removed;
+    }
+
+    /**
+     * Removes a value, keeping the structural hash up to date.
+     *
+     * @return  Number of values removed
+     */
+    int removeLeaf(Object key) {
+	    if (data.containsKey(key)) {
+	        structuralHash -= hashTerm(key, childHash(data.remove(key)));
 	        return 1;
         }
         return 0;
@@ -1,5 +1,10 @@
 package multi_map;
 
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 @SuppressWarnings("unchecked")
 public class MultiDMap3<K1,K2,K3,V> extends MultiDMap {
     
@@ -7,6 +12,13 @@ public class MultiDMap3<K1,K2,K3,V> extends MultiDMap {
         super(3);
     }
 
+    /**
+     * @param data  Empty map to hold this level's keys, see {@link MultiDMap#MultiDMap(int, Map)}
+     */
+    protected MultiDMap3(Map<Object, Object> data) {
+        super(3, data);
+    }
+
     @Override
     protected MultiDMap createInnerMap() {
         return new MultiDMap2<K2,K3,V>();
@@ -15,6 +27,22 @@ public class MultiDMap3<K1,K2,K3,V> extends MultiDMap {
     public void put(K1 k1, K2 k2, K3 k3, V v) {
         super.put(k1, k2, k3, v);
     }
+
+    public V computeIfAbsent(K1 k1, K2 k2, K3 k3, Supplier<? extends V> supplier) {
+        return (V) computeEntry(ifAbsent(supplier), k1, k2, k3);
+    }
+
+    public V computeIfPresent(K1 k1, K2 k2, K3 k3, Function<? super V, ? extends V> remapping) {
+        return (V) computeEntry(ifPresent((Function<Object, ?>) remapping), k1, k2, k3);
+    }
+
+    public V compute(K1 k1, K2 k2, K3 k3, Function<? super V, ? extends V> remapping) {
+        return (V) computeEntry(always((Function<Object, ?>) remapping), k1, k2, k3);
+    }
+
+    public V merge(K1 k1, K2 k2, K3 k3, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        return (V) computeEntry(merging(value, (BiFunction<Object, Object, ?>) remapping), k1, k2, k3);
+    }
 	
 	public V get(K1 k1, K2 k2, K3 k3) {
 	    return (V) super.get(k1, k2, k3);
@@ -0,0 +1,240 @@
+package multi_map;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A multi-level map of any number of dimensions, fixed at construction.  Its inner maps are
+ * MultiDMapNs of one dimension less, down to a {@link MultiDMap1}.
+ *
+ * Besides the varargs methods of {@link MultiDMap}, it is accessed through a {@link KeyPath}
+ * which the caller fills in and reuses.  Those methods allocate nothing, check the number of
+ * dimensions once per call rather than once per level, and descend the levels in a single loop
+ * instead of recursing through each inner map.
+ *
+ * @param <V>   Type of the values
+ */
+@SuppressWarnings("unchecked")
+public class MultiDMapN<V> extends MultiDMap {
+
+    /**
+     * @param dimensions    Number of dimensions, at least 2
+     */
+    public MultiDMapN(int dimensions) {
+        super(dimensions);
+        if (dimensions < 2)
+            throw new IllegalArgumentException("dimensions must be at least 2, got " + dimensions);
+    }
+
+    @Override
+    protected MultiDMap createInnerMap() {
+        return getDimensions() == 2 ? new MultiDMap1<Object, V>() : new MultiDMapN<V>(getDimensions() - 1);
+    }
+
+    /**
+     * @param path  Keys of every level
+     * @return      the value, or null if there is none
+     */
+    public V get(KeyPath path) {
+        checkFull(path);
+        Object value = find(path);
+        if (stats != null)
+            stats.recordGet(value != null);
+        return (V) value;
+    }
+
+    /**
+     * @param path  Keys of some levels from the top down, fewer than the dimensions
+     * @return      the submap below the keys, or null if there is none
+     */
+    public MultiDMap getSubmap(KeyPath path) {
+        checkLength(path);
+        if (path.length == getDimensions())
+            throw new IllegalArgumentException("path designates a value, not a submap");
+        MultiDMap submap = (MultiDMap) find(path);
+        if (stats != null)
+            stats.recordGet(submap != null);
+        return submap;
+    }
+
+    /**
+     * @param path  Keys of some levels from the top down
+     * @return      whether there is a value, or a submap, at the path
+     */
+    public boolean contains(KeyPath path) {
+        checkLength(path);
+        Object[] keys = path.keys;
+        int last = path.length - 1;
+        MultiDMap node = this;
+        for (int level = 0; level < last; ++level) {
+            node = (MultiDMap) node.data.get(keys[level]);
+            if (node == null)
+                return false;
+        }
+        return node.data.containsKey(keys[last]);
+    }
+
+    /**
+     * @param path  Keys of every level
+     * @param value Value to store
+     * @return      the value replaced, or null if there was none
+     */
+    public V put(KeyPath path, V value) {
+        checkFull(path);
+        if (stats != null)
+            stats.recordPut();
+        Object[] keys = path.keys;
+        MultiDMap[] nodes = path.nodes;
+        long[] hashes = path.hashes;
+        int last = keys.length - 1;
+
+        // Levels from created down have new submaps, which had no hash before
+        int created = last;
+        MultiDMap node = this;
+        for (int level = 0; level < last; ++level) {
+            nodes[level] = node;
+            MultiDMap inner = (MultiDMap) node.data.get(keys[level]);
+            if (inner == null) {
+                inner = node.newInnerMap();
+                node.data.put(keys[level], inner);
+                created = Math.min(created, level);
+            }
+            hashes[level] = inner.structuralHash;
+            node = inner;
+        }
+        nodes[last] = node;
+
+        Object old = ((MultiDMap1<?, ?>) node).putLeaf(keys[last], value);
+        for (int level = last - 1; level >= 0; --level) {
+            MultiDMap parent = nodes[level];
+            parent.structuralHash += hashTerm(keys[level], nodes[level + 1].structuralHash)
+                    - (level >= created ? 0 : hashTerm(keys[level], hashes[level]));
+            if (old == null)
+                parent.addSize(1);
+        }
+        if (mutationListener != null)
+            mutationListener.put(keys, value);
+        return (V) old;
+    }
+
+    public V computeIfAbsent(KeyPath path, Supplier<? extends V> supplier) {
+        return (V) computePath(path, ifAbsent(supplier));
+    }
+
+    public V computeIfPresent(KeyPath path, Function<? super V, ? extends V> remapping) {
+        return (V) computePath(path, ifPresent((Function<Object, ?>) remapping));
+    }
+
+    public V compute(KeyPath path, Function<? super V, ? extends V> remapping) {
+        return (V) computePath(path, always((Function<Object, ?>) remapping));
+    }
+
+    public V merge(KeyPath path, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        return (V) computePath(path, merging(value, (BiFunction<Object, Object, ?>) remapping));
+    }
+
+    private Object computePath(KeyPath path, BiFunction<Object, Object, Object> remapping) {
+        checkFull(path);
+        if (mutationListener == null)
+            return computeInner(remapping, path.keys);
+
+        ObservedRemapping observed = new ObservedRemapping(remapping);
+        int before = getSize();
+        Object value = computeInner(observed, path.keys);
+        computed(path.keys, observed, value, before);
+        return value;
+    }
+
+    /**
+     * Removes a value, or a submap when the path is shorter than the dimensions.  Inner maps
+     * left empty are removed too.
+     *
+     * @param path  Keys of some levels from the top down
+     * @return      Number of values removed
+     */
+    public int remove(KeyPath path) {
+        checkLength(path);
+        if (stats != null)
+            stats.recordRemove();
+        Object[] keys = path.keys;
+        MultiDMap[] nodes = path.nodes;
+        long[] hashes = path.hashes;
+        int last = path.length - 1;
+
+        MultiDMap node = this;
+        for (int level = 0; level < last; ++level) {
+            nodes[level] = node;
+            node = (MultiDMap) node.data.get(keys[level]);
+            if (node == null)
+                return 0;
+            hashes[level] = node.structuralHash;
+        }
+        nodes[last] = node;
+
+        int removed;
+        if (node.getDimensions() == 1) {
+            removed = ((MultiDMap1<?, ?>) node).removeLeaf(keys[last]);
+        } else {
+            MultiDMap submap = (MultiDMap) node.data.remove(keys[last]);
+            removed = submap == null ? 0 : submap.getSize();
+            if (submap != null)
+                node.structuralHash -= hashTerm(keys[last], submap.structuralHash);
+            node.addSize(-removed);
+        }
+        if (removed == 0)
+            return 0;
+
+        // Back up the path, pruning the maps left empty
+        for (int level = last - 1; level >= 0; --level) {
+            MultiDMap parent = nodes[level];
+            MultiDMap child = nodes[level + 1];
+            parent.addSize(-removed);
+            parent.structuralHash -= hashTerm(keys[level], hashes[level]);
+            if (child.getSize() == 0) {
+                parent.data.remove(keys[level]);
+                if (stats != null)
+                    stats.recordInnerMapPruned();
+            } else
+                parent.structuralHash += hashTerm(keys[level], child.structuralHash);
+        }
+        if (mutationListener != null)
+            mutationListener.remove(keys, path.length);
+        return removed;
+    }
+
+    @Override
+    public Object get(Object... keys) { return super.get(keys); }
+
+    @Override
+    public Object put(Object... o) {
+        if (o.length != getDimensions() + 1)
+            throw new IllegalArgumentException(
+                    "incorrect number of arguments, must be " + (getDimensions() + 1) + ", got " + o.length);
+        return super.put(o);
+    }
+
+    @Override
+    public int remove(Object... keys) { return super.remove(keys); }
+
+    private Object find(KeyPath path) {
+        Object[] keys = path.keys;
+        int length = path.length;
+        Object found = this;
+        for (int level = 0; level < length && found != null; ++level)
+            found = ((MultiDMap) found).data.get(keys[level]);
+        return found;
+    }
+
+    private void checkFull(KeyPath path) {
+        if (path.keys.length != getDimensions() || path.length != getDimensions())
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, must be " + getDimensions() + ", got " + path.length);
+    }
+
+    private void checkLength(KeyPath path) {
+        if (path.keys.length != getDimensions())
+            throw new IllegalArgumentException(
+                    "path is for " + path.keys.length + " dimensions, map has " + getDimensions());
+    }
+}
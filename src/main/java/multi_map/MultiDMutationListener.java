@@ -0,0 +1,38 @@
+package multi_map;
+
+/**
+ * Receives the changes made to a {@link MultiDMap} through its own methods, see
+ * {@link MultiDMap#setMutationListener(MultiDMutationListener)}.  Changes made through the submaps
+ * returned by get aren't reported.
+ *
+ * Every put is reported, even one storing a value equal to the one it replaces, values not
+ * being compared.  A compute is reported unless it leaves the entry as it was: when its function
+ * returns the very value it was given, as a computeIfAbsent finding a value does, or returns null
+ * for an absent entry.  A remove is only reported when it removes something.
+ *
+ * The arrays passed may be reused by the caller once the method returns, they must not be kept
+ * or modified.
+ */
+public interface MultiDMutationListener {
+
+    /**
+     * Called once a value has been stored, by a put or a compute.
+     *
+     * @param keys  Array whose first positions hold the keys of every level, from the top down
+     * @param value The value stored
+     */
+    void put(Object[] keys, Object value);
+
+    /**
+     * Called once a value, or a submap when fewer keys than dimensions are given, has been removed.
+     *
+     * @param keys      Array whose first positions hold the keys
+     * @param length    Number of keys
+     */
+    void remove(Object[] keys, int length);
+
+    /**
+     * Called once the whole content of the map has been replaced, as by a bulk load.
+     */
+    default void replaced(MultiDMap map) {}
+}
@@ -0,0 +1,280 @@
+package multi_map;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A selection of entries of a {@link MultiDMap} made of one constraint per level: any key, one
+ * key, a set of keys, a range of keys or keys matching a predicate.  Levels with no constraint
+ * accept any key, so a query only needs to mention the levels it restricts.
+ *
+ * Unlike filteredEntries, which asks an opaque filter about every key, the query knows what
+ * each constraint means.  One key or a set of keys is looked up in each map of the level instead
+ * of being searched for, and a range is served as a view of the levels held in a
+ * {@link NavigableMap}, as those of the sorted maps are.  Only predicates, and ranges over
+ * unsorted levels, visit every key of their level, so the work done grows with the entries
+ * matched rather than with the size of the map.
+ *
+ * Queries are not bound to a map, the same instance can be run against several maps, see
+ * {@link MultiDMap#query(MultiDQuery)} and {@link MultiDMap#forEach(MultiDQuery, EntryVisitor)}.
+ */
+public final class MultiDQuery {
+
+    /**
+     * Selects the keys of one level of a map.
+     */
+    private interface Constraint {
+        Stream<Map.Entry<Object, Object>> select(Map<Object, Object> level);
+
+        /**
+         * @return  false if the action ended the selection early, true otherwise
+         */
+        boolean forEach(Map<Object, Object> level, LevelAction action);
+    }
+
+    private interface LevelAction {
+        /**
+         * @param key   Key selected
+         * @param child Its value or submap
+         * @return      false to end the selection
+         */
+        boolean accept(Object key, Object child);
+    }
+
+    private static final Constraint ANY = new Constraint() {
+        @Override
+        public Stream<Map.Entry<Object, Object>> select(Map<Object, Object> level) {
+            return level.entrySet().stream();
+        }
+
+        @Override
+        public boolean forEach(Map<Object, Object> level, LevelAction action) {
+            for (Map.Entry<Object, Object> entry : level.entrySet()) {
+                if (!action.accept(entry.getKey(), entry.getValue()))
+                    return false;
+            }
+            return true;
+        }
+    };
+
+    // Constraint of each level down to the last one restricted, the levels past the end accept any key
+    private final List<Constraint> constraints = new ArrayList<>();
+
+    /**
+     * Accepts any key at a level, undoing any constraint set on it before.
+     *
+     * @param level Level, 0 being the top level
+     * @return      this query
+     */
+    public MultiDQuery any(int level) {
+        return set(level, ANY);
+    }
+
+    /**
+     * Accepts a single key at a level, found with one lookup in each map of the level.
+     *
+     * @param level Level, 0 being the top level
+     * @param key   Key to accept
+     * @return      this query
+     */
+    public MultiDQuery eq(int level, Object key) {
+        return set(level, new Constraint() {
+            @Override
+            public Stream<Map.Entry<Object, Object>> select(Map<Object, Object> level) {
+                Map.Entry<Object, Object> entry = lookup(level, key);
+                return entry == null ? Stream.empty() : Stream.of(entry);
+            }
+
+            @Override
+            public boolean forEach(Map<Object, Object> level, LevelAction action) {
+                Object child = level.get(key);
+                return (child == null && !level.containsKey(key)) || action.accept(key, child);
+            }
+        });
+    }
+
+    /**
+     * Accepts a set of keys at a level.  Each map of the level is probed for every key of the
+     * set, or scanned when it holds fewer keys than the set.
+     *
+     * @param level Level, 0 being the top level
+     * @param keys  Keys to accept
+     * @return      this query
+     */
+    public MultiDQuery in(int level, Collection<?> keys) {
+        Set<Object> set = new LinkedHashSet<>(keys);
+        return set(level, new Constraint() {
+            @Override
+            public Stream<Map.Entry<Object, Object>> select(Map<Object, Object> level) {
+                if (level.size() < set.size())
+                    return level.entrySet().stream().filter(entry -> set.contains(entry.getKey()));
+                return set.stream().map(key -> lookup(level, key)).filter(Objects::nonNull);
+            }
+
+            @Override
+            public boolean forEach(Map<Object, Object> level, LevelAction action) {
+                if (level.size() < set.size())
+                    return ANY.forEach(level, (key, child) -> !set.contains(key) || action.accept(key, child));
+
+                for (Object key : set) {
+                    Object child = level.get(key);
+                    if ((child != null || level.containsKey(key)) && !action.accept(key, child))
+                        return false;
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Accepts the keys in [from, to) at a level, ordered as the maps of the level are, or by their
+     * natural ordering for levels which aren't sorted.  Sorted levels only visit the keys in range,
+     * in order; other levels are scanned.
+     *
+     * @param level Level, 0 being the top level
+     * @param from  Lowest key, inclusive, or null for no lower bound
+     * @param to    Highest key, exclusive, or null for no upper bound
+     * @return      this query
+     */
+    public MultiDQuery range(int level, Object from, Object to) {
+        return set(level, new Constraint() {
+            @Override
+            public Stream<Map.Entry<Object, Object>> select(Map<Object, Object> level) {
+                if (level instanceof NavigableMap)
+                    return subMap((NavigableMap<Object, Object>) level).entrySet().stream();
+                return level.entrySet().stream().filter(entry -> inRange(entry.getKey()));
+            }
+
+            @Override
+            public boolean forEach(Map<Object, Object> level, LevelAction action) {
+                if (level instanceof NavigableMap)
+                    return ANY.forEach(subMap((NavigableMap<Object, Object>) level), action);
+                return ANY.forEach(level, (key, child) -> !inRange(key) || action.accept(key, child));
+            }
+
+            private NavigableMap<Object, Object> subMap(NavigableMap<Object, Object> level) {
+                if (from != null && to != null)
+                    return level.subMap(from, true, to, false);
+                if (from != null)
+                    return level.tailMap(from, true);
+                if (to != null)
+                    return level.headMap(to, false);
+                return level;
+            }
+
+            @SuppressWarnings("unchecked")
+            private boolean inRange(Object key) {
+                Comparable<Object> comparable = (Comparable<Object>) key;
+                return (from == null || comparable.compareTo(from) >= 0) && (to == null || comparable.compareTo(to) < 0);
+            }
+        });
+    }
+
+    /**
+     * Accepts the keys of a level matching a predicate, which is asked about every key of every
+     * map of the level.
+     *
+     * @param level     Level, 0 being the top level
+     * @param predicate Test of the keys
+     * @return          this query
+     */
+    public MultiDQuery where(int level, Predicate<Object> predicate) {
+        return set(level, new Constraint() {
+            @Override
+            public Stream<Map.Entry<Object, Object>> select(Map<Object, Object> level) {
+                return level.entrySet().stream().filter(entry -> predicate.test(entry.getKey()));
+            }
+
+            @Override
+            public boolean forEach(Map<Object, Object> level, LevelAction action) {
+                return ANY.forEach(level, (key, child) -> !predicate.test(key) || action.accept(key, child));
+            }
+        });
+    }
+
+    private MultiDQuery set(int level, Constraint constraint) {
+        if (level < 0)
+            throw new IllegalArgumentException("level can't be negative, got " + level);
+        while (constraints.size() <= level)
+            constraints.add(ANY);
+        constraints.set(level, constraint);
+        while (!constraints.isEmpty() && constraints.get(constraints.size() - 1) == ANY)
+            constraints.remove(constraints.size() - 1);
+        return this;
+    }
+
+    private static Map.Entry<Object, Object> lookup(Map<Object, Object> level, Object key) {
+        Object child = level.get(key);
+        if (child == null && !level.containsKey(key))
+            return null;
+        return new AbstractMap.SimpleImmutableEntry<>(key, child);
+    }
+
+    private void check(MultiDMap map) {
+        if (constraints.size() > map.getDimensions())
+            throw new IllegalArgumentException(
+                    "incorrect number of levels, accepts at most " + map.getDimensions() + ", got " + constraints.size());
+    }
+
+    Stream<Object[]> stream(MultiDMap map) {
+        check(map);
+        return stream(map, 0, map.getDimensions());
+    }
+
+    private Stream<Object[]> stream(MultiDMap node, int level, int maxDimensions) {
+        // Below the last constraint every key is accepted, as by entries
+        if (level >= constraints.size())
+            return node.constructiveEntries(maxDimensions);
+
+        Stream<Map.Entry<Object, Object>> selected = constraints.get(level).select(node.data);
+
+        if (node.getDimensions() == 1) {
+            return selected.map(
+                    entry -> {
+                        Object[] result = new Object[maxDimensions + 1];
+                        result[maxDimensions] = entry.getValue();
+                        result[maxDimensions - 1] = entry.getKey();
+                        return result;
+                    }
+            );
+        }
+
+        return selected.flatMap(
+                entry -> stream((MultiDMap) entry.getValue(), level + 1, maxDimensions).map(
+                        array -> {
+                            array[level] = entry.getKey();
+                            return array;
+                        }
+                )
+        );
+    }
+
+    boolean forEach(MultiDMap map, EntryVisitor visitor) {
+        check(map);
+        return forEach(map, 0, new Object[map.getDimensions()], visitor);
+    }
+
+    private boolean forEach(MultiDMap node, int level, Object[] keys, EntryVisitor visitor) {
+        if (level >= constraints.size())
+            return node.forEachInner(visitor, keys, level);
+
+        return constraints.get(level).forEach(
+                node.data,
+                (key, child) -> {
+                    keys[level] = key;
+                    if (node.getDimensions() == 1)
+                        return visitor.visit(keys, child);
+
+                    switch (visitor.enterSubtree(keys, level)) {
+                        case STOP:
+                            return false;
+                        case SKIP:
+                            return true;
+                        default:
+                            return forEach((MultiDMap) child, level + 1, keys, visitor);
+                    }
+                }
+        );
+    }
+}
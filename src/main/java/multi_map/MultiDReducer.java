@@ -0,0 +1,241 @@
+package multi_map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Reduces the values of a {@link MultiDMap} on the common fork/join pool, see
+ * {@link MultiDMap#reduce(Object, BiFunction, BinaryOperator)} and
+ * {@link MultiDMap#reduceTo(int, Object, BiFunction, BinaryOperator)}.
+ *
+ * The tree is split along its own levels: a subtree holding more than
+ * {@link #SEQUENTIAL_THRESHOLD} values is reduced by one task per key of its top level, a smaller
+ * one by a plain loop.  Reductions to some levels group the values by the submaps found at the
+ * level below the ones kept, so the grouping keys are never built or hashed again.
+ */
+final class MultiDReducer {
+
+    /**
+     * Number of values below which a subtree is reduced by the task which reaches it.
+     */
+    static final int SEQUENTIAL_THRESHOLD = 1 << 12;
+
+    private MultiDReducer() {}
+
+    /**
+     * Reduces a subtree to a double without boxing any intermediate result.
+     */
+    private static final class DoubleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final MultiDMap node;
+        private final ToDoubleFunction<Object> value;
+        private final DoubleBinaryOperator operator;
+        private final double identity;
+        double result;
+
+        DoubleTask(MultiDMap node, ToDoubleFunction<Object> value, DoubleBinaryOperator operator, double identity) {
+            this.node = node;
+            this.value = value;
+            this.operator = operator;
+            this.identity = identity;
+        }
+
+        @Override
+        protected void compute() {
+            if (node.getDimensions() == 1 || node.getSize() <= SEQUENTIAL_THRESHOLD) {
+                result = reduce(node, identity);
+                return;
+            }
+
+            List<DoubleTask> subtasks = new ArrayList<>(node.data.size());
+            for (Object inner : node.data.values())
+                subtasks.add(new DoubleTask((MultiDMap) inner, value, operator, identity));
+            invokeAll(subtasks);
+
+            result = identity;
+            for (DoubleTask subtask : subtasks)
+                result = operator.applyAsDouble(result, subtask.result);
+        }
+
+        private double reduce(MultiDMap node, double result) {
+            if (node.getDimensions() == 1) {
+                for (Object v : node.data.values())
+                    result = operator.applyAsDouble(result, value.applyAsDouble(v));
+                return result;
+            }
+            for (Object inner : node.data.values())
+                result = reduce((MultiDMap) inner, result);
+            return result;
+        }
+    }
+
+    /**
+     * Reduces a subtree to any type of result.
+     */
+    private static final class Task<R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final MultiDMap node;
+        private final R identity;
+        private final BiFunction<R, Object, R> accumulator;
+        private final BinaryOperator<R> combiner;
+        R result;
+
+        Task(MultiDMap node, R identity, BiFunction<R, Object, R> accumulator, BinaryOperator<R> combiner) {
+            this.node = node;
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected void compute() {
+            if (node.getDimensions() == 1 || node.getSize() <= SEQUENTIAL_THRESHOLD) {
+                result = accumulate(node, identity, accumulator);
+                return;
+            }
+
+            List<Task<R>> subtasks = new ArrayList<>(node.data.size());
+            for (Object inner : node.data.values())
+                subtasks.add(new Task<>((MultiDMap) inner, identity, accumulator, combiner));
+            invokeAll(subtasks);
+
+            result = subtasks.get(0).result;
+            for (int i = 1; i < subtasks.size(); ++i)
+                result = combiner.apply(result, subtasks.get(i).result);
+        }
+    }
+
+    /**
+     * Accumulates every value of a subtree into a result, on the calling thread.
+     */
+    private static <R> R accumulate(MultiDMap node, R result, BiFunction<R, Object, R> accumulator) {
+        if (node.getDimensions() == 1) {
+            for (Object v : node.data.values())
+                result = accumulator.apply(result, v);
+            return result;
+        }
+        for (Object inner : node.data.values())
+            result = accumulate((MultiDMap) inner, result, accumulator);
+        return result;
+    }
+
+    static double reduceDouble(MultiDMap map, ToDoubleFunction<Object> value, DoubleBinaryOperator operator, double identity) {
+        DoubleTask task = new DoubleTask(map, value, operator, identity);
+        ForkJoinPool.commonPool().invoke(task);
+        return task.result;
+    }
+
+    /**
+     * Reduces a map on the calling thread only, whatever its size, for callers which must keep the
+     * map to their own thread, as {@link ShardedMultiDMap} does.
+     */
+    static <R> R reduceSequentially(MultiDMap map, R identity, BiFunction<R, Object, R> accumulator) {
+        return accumulate(map, identity, accumulator);
+    }
+
+    static <R> R reduce(MultiDMap map, R identity, BiFunction<R, Object, R> accumulator, BinaryOperator<R> combiner) {
+        if (map.getSize() == 0)
+            return identity;
+        Task<R> task = new Task<>(map, identity, accumulator, combiner);
+        ForkJoinPool.commonPool().invoke(task);
+        return task.result;
+    }
+
+    static MultiDMap reduceDoubleTo(
+            MultiDMap map, int levels, ToDoubleFunction<Object> value, DoubleBinaryOperator operator, double identity) {
+        return reduceTo(map, levels, node -> new DoubleTask(node, value, operator, identity), task -> task.result);
+    }
+
+    static <R> MultiDMap reduceTo(
+            MultiDMap map, int levels, R identity, BiFunction<R, Object, R> accumulator, BinaryOperator<R> combiner) {
+        return reduceTo(map, levels, node -> new Task<>(node, identity, accumulator, combiner), task -> task.result);
+    }
+
+    static MultiDMap countTo(MultiDMap map, int levels) {
+        checkLevels(map, levels);
+        MultiDMap result = newMap(levels);
+        forEachGroup(map, levels, new Object[levels + 1], 0, (keys, group) -> {
+            keys[levels] = group.getSize();
+            result.put(keys.clone());
+        });
+        return result;
+    }
+
+    private static <T extends ForkJoinTask<?>> MultiDMap reduceTo(
+            MultiDMap map, int levels, Function<MultiDMap, T> taskFor, Function<T, Object> resultOf) {
+        checkLevels(map, levels);
+        List<Object[]> entries = new ArrayList<>();
+        List<T> tasks = new ArrayList<>();
+        forEachGroup(map, levels, new Object[levels + 1], 0, (keys, group) -> {
+            entries.add(keys.clone());
+            tasks.add(taskFor.apply(group));
+        });
+
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        MultiDMap result = newMap(levels);
+        for (int i = 0; i < entries.size(); ++i) {
+            Object[] entry = entries.get(i);
+            entry[levels] = resultOf.apply(tasks.get(i));
+            result.put(entry);
+        }
+        return result;
+    }
+
+    private interface GroupAction {
+        /**
+         * @param keys  Keys of the group in positions 0 to levels - 1, the buffer is shared
+         * @param group Submap holding the values of the group
+         */
+        void accept(Object[] keys, MultiDMap group);
+    }
+
+    private static void forEachGroup(MultiDMap node, int levels, Object[] keys, int level, GroupAction action) {
+        for (Map.Entry<Object, Object> entry : node.data.entrySet()) {
+            keys[level] = entry.getKey();
+            MultiDMap inner = (MultiDMap) entry.getValue();
+            if (level == levels - 1)
+                action.accept(keys, inner);
+            else
+                forEachGroup(inner, levels, keys, level + 1, action);
+        }
+    }
+
+    private static void checkLevels(MultiDMap map, int levels) {
+        if (levels < 1 || levels >= map.getDimensions())
+            throw new IllegalArgumentException(
+                    "levels must be between 1 and " + (map.getDimensions() - 1) + ", got " + levels);
+    }
+
+    /**
+     * @return  an empty map of the given dimensions to hold the results
+     */
+    private static MultiDMap newMap(int dimensions) {
+        switch (dimensions) {
+            case 1:
+                return new MultiDMap1<>();
+            case 2:
+                return new MultiDMap2<>();
+            case 3:
+                return new MultiDMap3<>();
+            default:
+                return new MultiDMapN<>(dimensions);
+        }
+    }
+}
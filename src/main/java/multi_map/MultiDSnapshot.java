@@ -0,0 +1,281 @@
+package multi_map;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Saves {@link MultiDMap}s to, and loads them from, a compact binary format.
+ *
+ * The map is written depth first, so each key is written once however many entries lie below
+ * it: every level is the number of its keys followed by each key and its submap, or value at
+ * the innermost level.  Keys and values are encoded by the {@link MultiDCodec} of their level,
+ * encodings of variable width being preceded by their length.  Counts and lengths are written
+ * as variable length integers.  A header with the dimensions, the codec widths and the number of
+ * values comes first so that a snapshot is never loaded with codecs other than its own.
+ *
+ * Both directions stream through a buffer of {@link #BUFFER_SIZE} bytes, the image of the map
+ * is never held in memory.  Loading builds each submap bottom up, presized to the number of
+ * keys read, and attaches it whole to its parent, so no lookup is made and no map rehashes.
+ */
+public class MultiDSnapshot {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x4D444D53;
+    private static final int VERSION = 1;
+
+    private final MultiDCodec<Object>[] keyCodecs;
+    private final MultiDCodec<Object> valueCodec;
+
+    /**
+     * @param keyCodecs     Codec of each level's keys, from the top level down
+     * @param valueCodec    Codec of the values
+     */
+    public MultiDSnapshot(MultiDCodec<?>[] keyCodecs, MultiDCodec<?> valueCodec) {
+        this.keyCodecs = MultiDCodecs.untyped(keyCodecs);
+        this.valueCodec = MultiDCodecs.untyped(valueCodec);
+    }
+
+    public int getDimensions() { return keyCodecs.length; }
+
+    /**
+     * Writes a snapshot of the map to a file, replacing its content.
+     */
+    public void save(MultiDMap map, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(map, channel);
+        }
+    }
+
+    /**
+     * Loads the snapshot held in a file into an empty map.
+     *
+     * @return  the map given
+     */
+    public <M extends MultiDMap> M load(Path file, M target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel, target);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the map to a channel, which is left open.
+     */
+    public void write(MultiDMap map, WritableByteChannel channel) throws IOException {
+        checkDimensions(map);
+
+        Output out = new Output(channel);
+        out.ensure(16 + 4 * keyCodecs.length);
+        out.buffer.putInt(MAGIC).putInt(VERSION).putInt(keyCodecs.length).putInt(valueCodec.width());
+        for (MultiDCodec<?> codec : keyCodecs)
+            out.buffer.putInt(codec.width());
+        out.writeLong(map.getSize());
+
+        writeLevel(map, 0, out);
+        out.flush();
+    }
+
+    private void writeLevel(MultiDMap map, int level, Output out) throws IOException {
+        out.writeCount(map.data.size());
+        boolean innermost = map.getDimensions() == 1;
+        for (Map.Entry<Object, Object> entry : map.data.entrySet()) {
+            out.write(keyCodecs[level], entry.getKey());
+            if (innermost)
+                out.write(valueCodec, entry.getValue());
+            else
+                writeLevel((MultiDMap) entry.getValue(), level + 1, out);
+        }
+    }
+
+    /**
+     * Loads a snapshot from a channel into an empty map.
+     *
+     * @param channel   Channel positioned at the start of the snapshot
+     * @param target    Empty map of the snapshot's dimensions, whose inner maps will hold the data
+     * @return          the map given
+     * @throws IOException  if the channel doesn't hold a snapshot made with the same codecs
+     */
+    public <M extends MultiDMap> M read(ReadableByteChannel channel, M target) throws IOException {
+        checkDimensions(target);
+        if (target.getSize() != 0)
+            throw new IllegalArgumentException("snapshots can only be loaded into an empty map");
+
+        Input in = new Input(channel);
+        in.require(16);
+        if (in.buffer.getInt() != MAGIC)
+            throw new IOException("not a multi-level map snapshot");
+        int version = in.buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("unsupported snapshot version " + version);
+
+        int dimensions = in.buffer.getInt();
+        int valueWidth = in.buffer.getInt();
+        boolean sameShape = dimensions == keyCodecs.length && valueWidth == valueCodec.width();
+        in.require(4 * keyCodecs.length);
+        for (MultiDCodec<?> codec : keyCodecs)
+            sameShape &= in.buffer.getInt() == codec.width();
+        if (!sameShape)
+            throw new IOException("snapshot was written with codecs of other dimensions or widths");
+
+        long expectedSize = in.readLong();
+        readLevel(target, 0, in);
+        if (target.getSize() != expectedSize)
+            throw new IOException("snapshot holds " + target.getSize() + " values, expected " + expectedSize);
+        return target;
+    }
+
+    private void readLevel(MultiDMap map, int level, Input in) throws IOException {
+        int count = in.readCount();
+        map.presize(count);
+        boolean innermost = map.getDimensions() == 1;
+        for (int i = 0; i < count; ++i) {
+            Object key = in.read(keyCodecs[level]);
+            if (innermost) {
+                ((MultiDMap1<?, ?>) map).putLeaf(key, in.read(valueCodec));
+                continue;
+            }
+
+            MultiDMap inner = map.newInnerMap();
+            readLevel(inner, level + 1, in);
+            map.attach(key, inner);
+        }
+    }
+
+    private void checkDimensions(MultiDMap map) {
+        if (map.getDimensions() != keyCodecs.length)
+            throw new IllegalArgumentException(
+                    "incorrect number of dimensions, must be " + keyCodecs.length + ", got " + map.getDimensions());
+    }
+
+    private static final class Output {
+
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Makes room for the given number of bytes, at most {@link #BUFFER_SIZE}.
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes)
+                flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void writeCount(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void write(MultiDCodec<Object> codec, Object value) throws IOException {
+            int length = codec.encodedSize(value);
+            if (codec.width() == MultiDCodec.VARIABLE)
+                writeCount(length);
+
+            if (length <= BUFFER_SIZE) {
+                ensure(length);
+                codec.write(value, buffer);
+                return;
+            }
+
+            // Too large for the buffer, so written on its own
+            flush();
+            ByteBuffer large = ByteBuffer.allocate(length);
+            codec.write(value, large);
+            large.flip();
+            while (large.hasRemaining())
+                channel.write(large);
+        }
+    }
+
+    private static final class Input {
+
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        Input(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        /**
+         * Reads until the given number of bytes, at most {@link #BUFFER_SIZE}, are buffered.
+         */
+        void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes)
+                return;
+
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0)
+                    throw new EOFException("snapshot is truncated");
+            }
+            buffer.flip();
+        }
+
+        long readLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        int readCount() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                require(1);
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    return value;
+            }
+            throw new IOException("malformed count in snapshot");
+        }
+
+        Object read(MultiDCodec<?> codec) throws IOException {
+            int length = codec.width() == MultiDCodec.VARIABLE ? readCount() : codec.width();
+            if (length <= BUFFER_SIZE) {
+                require(length);
+                return codec.read(buffer, length);
+            }
+
+            // Too large for the buffer, so gathered on its own
+            ByteBuffer large = ByteBuffer.allocate(length);
+            int buffered = Math.min(buffer.remaining(), length);
+            ByteBuffer slice = buffer.slice();
+            slice.limit(buffered);
+            large.put(slice);
+            buffer.position(buffer.position() + buffered);
+            while (large.hasRemaining()) {
+                if (channel.read(large) < 0)
+                    throw new EOFException("snapshot is truncated");
+            }
+            large.flip();
+            return codec.read(large, length);
+        }
+    }
+}
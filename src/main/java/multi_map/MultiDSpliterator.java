@@ -0,0 +1,199 @@
+package multi_map;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * {@link Spliterator} over the entries of a {@link MultiDMap}, producing the same arrays as
+ * {@link MultiDMap#entries()}.
+ *
+ * A spliterator covers a run of subtrees, each weighted by its exact number of values taken
+ * from the maps' size bookkeeping, so it is {@link #SIZED} and {@link #SUBSIZED}.  Splitting
+ * divides the run where the weights balance rather than where the subtree count does.  When the
+ * subtree in the middle is too heavy for a balanced split it is first replaced by its children,
+ * one level down.  This way a map with only a few top level keys, or one huge subtree, still
+ * splits into evenly sized pieces.
+ */
+class MultiDSpliterator implements Spliterator<Object[]> {
+
+    private final int maxDimensions;
+
+    // Subtree i is nodes[i], reached through the keys in paths[i].  A node is either a MultiDMap
+    // or, one level below a MultiDMap1, a value.  Subtrees lo to hi - 1 belong to this instance and
+    // weights[i] is the number of values in subtrees 0 to i - 1.
+    private Object[] nodes;
+    private Object[][] paths;
+    private long[] weights;
+    private int lo;
+    private int hi;
+
+    // Walks the subtree at lo during tryAdvance, counting the values already produced from it
+    private MultiDCursor cursor;
+    private long consumed;
+
+    MultiDSpliterator(MultiDMap map) {
+        this(map.getDimensions(), new Object[] {map}, new Object[][] {new Object[0]}, new long[] {0, map.getSize()}, 0, 1);
+    }
+
+    private MultiDSpliterator(int maxDimensions, Object[] nodes, Object[][] paths, long[] weights, int lo, int hi) {
+        this.maxDimensions = maxDimensions;
+        this.nodes = nodes;
+        this.paths = paths;
+        this.weights = weights;
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Object[]> action) {
+        while (lo < hi) {
+            Object node = nodes[lo];
+            Object[] path = paths[lo];
+
+            if (!(node instanceof MultiDMap)) {
+                ++lo;
+                action.accept(entry(path, node));
+                return true;
+            }
+
+            if (cursor == null)
+                cursor = ((MultiDMap) node).cursor();
+            if (cursor.next()) {
+                Object[] entry = entry(path, cursor.value());
+                for (int i = 0; i < cursor.getDimensions(); ++i)
+                    entry[path.length + i] = cursor.key(i);
+                ++consumed;
+                action.accept(entry);
+                return true;
+            }
+
+            cursor = null;
+            consumed = 0;
+            ++lo;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Object[]> action) {
+        if (cursor != null) {
+            // Finish the partially walked subtree first
+            while (tryAdvance(action) && cursor != null);
+        }
+
+        for (; lo < hi; ++lo) {
+            Object node = nodes[lo];
+            Object[] path = paths[lo];
+
+            if (!(node instanceof MultiDMap)) {
+                action.accept(entry(path, node));
+                continue;
+            }
+
+            Object[] keys = Arrays.copyOf(path, maxDimensions);
+            ((MultiDMap) node).forEachInner(
+                    (k, value) -> {
+                        Object[] entry = Arrays.copyOf(k, maxDimensions + 1);
+                        entry[maxDimensions] = value;
+                        action.accept(entry);
+                        return true;
+                    },
+                    keys, path.length);
+        }
+    }
+
+    @Override
+    public Spliterator<Object[]> trySplit() {
+        if (cursor != null)
+            return null;
+
+        while (true) {
+            long total = weights[hi] - weights[lo];
+            if (total < 2)
+                return null;
+
+            // The subtree holding the middle value, and the better of the boundaries on its sides
+            long half = weights[lo] + total / 2;
+            int index = Arrays.binarySearch(weights, lo, hi, half);
+            int straddling = index >= 0 ? index : -index - 2;
+            int mid = half - weights[straddling] <= weights[straddling + 1] - half ? straddling : straddling + 1;
+
+            long smaller = Math.min(weights[mid] - weights[lo], weights[hi] - weights[mid]);
+            if (smaller * 4 >= total || (mid > lo && mid < hi && smaller > 0 && !expandable(straddling))) {
+                MultiDSpliterator prefix = new MultiDSpliterator(maxDimensions, nodes, paths, weights, lo, mid);
+                lo = mid;
+                return prefix;
+            }
+
+            // The middle subtree is too heavy to leave whole, so replace it with its children
+            if (!expandable(straddling))
+                return null;
+            expand(straddling);
+        }
+    }
+
+    private boolean expandable(int i) {
+        return nodes[i] instanceof MultiDMap && ((MultiDMap) nodes[i]).data.size() > 0;
+    }
+
+    /**
+     * Replaces subtree i of this instance by its children.
+     */
+    private void expand(int i) {
+        MultiDMap map = (MultiDMap) nodes[i];
+        int count = map.data.size();
+        int length = hi - lo - 1 + count;
+
+        Object[] newNodes = new Object[length];
+        Object[][] newPaths = new Object[length][];
+        long[] newWeights = new long[length + 1];
+
+        int before = i - lo;
+        System.arraycopy(nodes, lo, newNodes, 0, before);
+        System.arraycopy(paths, lo, newPaths, 0, before);
+        for (int j = 0; j < before; ++j)
+            newWeights[j + 1] = newWeights[j] + weights[lo + j + 1] - weights[lo + j];
+
+        Object[] path = paths[i];
+        int j = before;
+        for (Map.Entry<Object, Object> entry : map.data.entrySet()) {
+            Object[] childPath = Arrays.copyOf(path, path.length + 1);
+            childPath[path.length] = entry.getKey();
+            newNodes[j] = entry.getValue();
+            newPaths[j] = childPath;
+            long weight = map.getDimensions() == 1 ? 1 : ((MultiDMap) entry.getValue()).getSize();
+            newWeights[j + 1] = newWeights[j] + weight;
+            ++j;
+        }
+
+        int after = hi - i - 1;
+        System.arraycopy(nodes, i + 1, newNodes, j, after);
+        System.arraycopy(paths, i + 1, newPaths, j, after);
+        for (int k = 0; k < after; ++k, ++j)
+            newWeights[j + 1] = newWeights[j] + weights[i + k + 2] - weights[i + k + 1];
+
+        nodes = newNodes;
+        paths = newPaths;
+        weights = newWeights;
+        lo = 0;
+        hi = length;
+    }
+
+    private Object[] entry(Object[] path, Object value) {
+        Object[] entry = Arrays.copyOf(path, maxDimensions + 1);
+        entry[maxDimensions] = value;
+        return entry;
+    }
+
+    @Override
+    public long estimateSize() {
+        return weights[hi] - weights[lo] - consumed;
+    }
+
+    @Override
+    public int characteristics() {
+        return SIZED | SUBSIZED | NONNULL;
+    }
+}
@@ -0,0 +1,209 @@
+package multi_map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a {@link MultiDMap}, collected once enabled by {@link MultiDMap#enableStats()}.
+ *
+ * The operations are counted as they happen, by {@link LongAdder}s so that threads reading a
+ * map concurrently don't contend on the counters.  While statistics are disabled, the only cost
+ * left is a test of a field of the map against null.  The shape of the map, its inner maps,
+ * their fan-out and the heap they hold, is computed from the map itself by {@link #snapshot()},
+ * so it costs nothing until asked for; like a read of the map, it must not run concurrently
+ * with changes of the map.  For that reason the MBean only exposes the counters and the size:
+ * the thread owning the map takes the snapshots, and the last one is kept for other threads, see
+ * {@link #getLastSnapshot()}.
+ */
+public final class MultiDStats implements MultiDStatsMBean {
+
+    // Sizes in bytes on a 64 bit JVM with compressed references
+    private static final int MAP_NODE_BYTES = 40;
+    private static final int MAP_OBJECT_BYTES = 48;
+    private static final int HASH_ENTRY_BYTES = 32;
+    private static final int TREE_ENTRY_BYTES = 40;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final MultiDMap map;
+    private final LongAdder gets = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder removes = new LongAdder();
+    private final LongAdder innerMapsCreated = new LongAdder();
+    private final LongAdder innerMapsPruned = new LongAdder();
+    private volatile MultiDStatsSnapshot lastSnapshot;
+    private ObjectName objectName;
+
+    MultiDStats(MultiDMap map) {
+        this.map = map;
+    }
+
+    void recordGet(boolean hit) {
+        gets.increment();
+        if (hit)
+            hits.increment();
+    }
+
+    void recordPut() { puts.increment(); }
+
+    void recordRemove() { removes.increment(); }
+
+    void recordInnerMapCreated() { innerMapsCreated.increment(); }
+
+    void recordInnerMapPruned() { innerMapsPruned.increment(); }
+
+    @Override
+    public long getGets() { return gets.sum(); }
+
+    @Override
+    public long getHits() { return hits.sum(); }
+
+    @Override
+    public long getMisses() { return gets.sum() - hits.sum(); }
+
+    @Override
+    public long getPuts() { return puts.sum(); }
+
+    @Override
+    public long getRemoves() { return removes.sum(); }
+
+    @Override
+    public long getInnerMapsCreated() { return innerMapsCreated.sum(); }
+
+    @Override
+    public long getInnerMapsPruned() { return innerMapsPruned.sum(); }
+
+    @Override
+    public int getSize() { return map.getSize(); }
+
+    /**
+     * Sets all the counters back to 0.
+     */
+    @Override
+    public void reset() {
+        gets.reset();
+        hits.reset();
+        puts.reset();
+        removes.reset();
+        innerMapsCreated.reset();
+        innerMapsPruned.reset();
+    }
+
+    /**
+     * Reads the counters and walks the map to describe its shape.  The walk reads the map, so it
+     * must not run concurrently with changes of the map.
+     *
+     * @return  the statistics as of now, also kept as the {@link #getLastSnapshot() last snapshot}
+     */
+    public MultiDStatsSnapshot snapshot() {
+        int depth = map.getDimensions();
+        long[][] fanOut = new long[depth][Integer.SIZE];
+        long[] totals = new long[2];  // inner maps, estimated bytes
+        walk(map, 0, fanOut, totals);
+        MultiDStatsSnapshot snapshot = new MultiDStatsSnapshot(
+                gets.sum(), hits.sum(), puts.sum(), removes.sum(), innerMapsCreated.sum(), innerMapsPruned.sum(),
+                map.getSize(), totals[0], fanOut, totals[1] + MAP_NODE_BYTES + levelBytes(map.data));
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * @return  the last snapshot taken by {@link #snapshot()}, or null if none was.  Any thread can
+     *          read it, such as a monitoring thread while the owner of the map changes it.
+     */
+    public MultiDStatsSnapshot getLastSnapshot() { return lastSnapshot; }
+
+    private static void walk(MultiDMap node, int level, long[][] fanOut, long[] totals) {
+        int keys = node.data.size();
+        if (keys > 0)
+            ++fanOut[level][31 - Integer.numberOfLeadingZeros(keys)];
+
+        for (Map.Entry<Object, Object> entry : node.data.entrySet()) {
+            totals[1] += objectBytes(entry.getKey());
+            if (node.getDimensions() == 1) {
+                totals[1] += objectBytes(entry.getValue());
+                continue;
+            }
+            MultiDMap inner = (MultiDMap) entry.getValue();
+            ++totals[0];
+            totals[1] += MAP_NODE_BYTES + levelBytes(inner.data);
+            walk(inner, level + 1, fanOut, totals);
+        }
+    }
+
+    /**
+     * @return  estimate of the bytes of the map holding a level, its entries included
+     */
+    private static long levelBytes(Map<Object, Object> level) {
+        int size = level.size();
+        if (level instanceof CompactMap)
+            return ((CompactMap) level).estimatedBytes();
+        if (level instanceof NavigableMap)
+            return MAP_OBJECT_BYTES + (long) TREE_ENTRY_BYTES * size;
+
+        // Hash tables double when 3/4 full, from 16 buckets
+        long buckets = 16;
+        while (buckets * 3 / 4 < size)
+            buckets <<= 1;
+        return MAP_OBJECT_BYTES + ARRAY_HEADER_BYTES + REFERENCE_BYTES * buckets + (long) HASH_ENTRY_BYTES * size;
+    }
+
+    /**
+     * @return  estimate of the bytes of a key or value, for the usual boxed primitives and strings
+     */
+    private static long objectBytes(Object object) {
+        if (object == null)
+            return 0;
+        if (object instanceof Long || object instanceof Double)
+            return 24;
+        if (object instanceof Number || object instanceof Boolean || object instanceof Character)
+            return 16;
+        if (object instanceof String)
+            return 24 + align(ARRAY_HEADER_BYTES + ((String) object).length());
+        return 16;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server, under
+     * {@code multi_map:type=MultiDMap,name=<name>}.
+     *
+     * @param name  Name of the map, unique among the maps registered
+     * @return      the name registered
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        if (objectName != null)
+            throw new IllegalStateException("already registered as " + objectName);
+        ObjectName registered = new ObjectName("multi_map:type=MultiDMap,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, registered);
+        objectName = registered;
+        return registered;
+    }
+
+    /**
+     * Removes these statistics from the platform MBean server, if registered.
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName == null)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName))
+            server.unregisterMBean(objectName);
+        objectName = null;
+    }
+
+    @Override
+    public String toString() {
+        return "MultiDStats{gets=" + gets + ", hits=" + hits + ", puts=" + puts + ", removes=" + removes +
+                ", innerMapsCreated=" + innerMapsCreated + ", innerMapsPruned=" + innerMapsPruned + "}";
+    }
+}
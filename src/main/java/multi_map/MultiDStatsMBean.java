@@ -0,0 +1,27 @@
+package multi_map;
+
+/**
+ * Management interface of {@link MultiDStats}, see {@link MultiDStats#register(String)}.
+ * Only the counters and the size are exposed, as they can be read while the map changes.  The
+ * shape of the map is described by {@link MultiDStats#snapshot()}, taken by the thread owning it.
+ */
+public interface MultiDStatsMBean {
+
+    long getGets();
+
+    long getHits();
+
+    long getMisses();
+
+    long getPuts();
+
+    long getRemoves();
+
+    long getInnerMapsCreated();
+
+    long getInnerMapsPruned();
+
+    int getSize();
+
+    void reset();
+}
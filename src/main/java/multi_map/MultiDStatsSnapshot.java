@@ -0,0 +1,137 @@
+package multi_map;
+
+import java.util.StringJoiner;
+
+/**
+ * Counts of the operations of a {@link MultiDMap}, and the shape of the map, taken at some
+ * point, see {@link MultiDStats#snapshot()}.
+ */
+public final class MultiDStatsSnapshot {
+
+    private final long gets;
+    private final long hits;
+    private final long puts;
+    private final long removes;
+    private final long innerMapsCreated;
+    private final long innerMapsPruned;
+    private final int size;
+    private final long innerMaps;
+    private final long[][] fanOut;
+    private final long estimatedBytes;
+
+    MultiDStatsSnapshot(long gets, long hits, long puts, long removes, long innerMapsCreated, long innerMapsPruned,
+                        int size, long innerMaps, long[][] fanOut, long estimatedBytes) {
+        this.gets = gets;
+        this.hits = hits;
+        this.puts = puts;
+        this.removes = removes;
+        this.innerMapsCreated = innerMapsCreated;
+        this.innerMapsPruned = innerMapsPruned;
+        this.size = size;
+        this.innerMaps = innerMaps;
+        this.fanOut = fanOut;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * @return  Number of gets, of values or submaps
+     */
+    public long getGets() { return gets; }
+
+    /**
+     * @return  Number of gets which found a value or submap
+     */
+    public long getHits() { return hits; }
+
+    /**
+     * @return  Number of gets which found nothing
+     */
+    public long getMisses() { return gets - hits; }
+
+    /**
+     * @return  Number of puts, whether they added a value or replaced one
+     */
+    public long getPuts() { return puts; }
+
+    /**
+     * @return  Number of removes, of values or submaps, whether they found anything or not
+     */
+    public long getRemoves() { return removes; }
+
+    /**
+     * @return  Number of inner maps added to the map
+     */
+    public long getInnerMapsCreated() { return innerMapsCreated; }
+
+    /**
+     * @return  Number of inner maps removed because the removal of their last value left them empty
+     */
+    public long getInnerMapsPruned() { return innerMapsPruned; }
+
+    /**
+     * @return  Number of values of the map
+     */
+    public int getSize() { return size; }
+
+    /**
+     * @return  Number of inner maps of the map, the map itself excluded
+     */
+    public long getInnerMaps() { return innerMaps; }
+
+    /**
+     * @return  Number of levels of the map
+     */
+    public int getDepth() { return fanOut.length; }
+
+    /**
+     * The fan-out of a map is its number of keys.  Bucket 0 counts the maps of the level with
+     * one key, and bucket i > 0 those with 2^i to 2^(i+1) - 1 keys.
+     *
+     * @param level Level, 0 being the top level
+     * @return      the histogram of the fan-out of the maps of the level
+     */
+    public long[] getFanOutHistogram(int level) {
+        return fanOut[level].clone();
+    }
+
+    /**
+     * @return  Estimate of the heap held by the map, its keys and its values, in bytes, assuming
+     *          a 64 bit JVM with compressed references.  Keys and values shared with other
+     *          objects are counted as if held by the map alone.
+     */
+    public long getEstimatedBytes() { return estimatedBytes; }
+
+    /**
+     * @return  the histogram of a level, as bucket ranges and counts, omitting empty buckets
+     */
+    private String describeFanOut(int level) {
+        StringBuilder builder = new StringBuilder("level ").append(level).append(':');
+        long[] histogram = fanOut[level];
+        for (int bucket = 0; bucket < histogram.length; ++bucket) {
+            if (histogram[bucket] == 0)
+                continue;
+            long low = bucket == 0 ? 1 : 1L << bucket;
+            long high = (1L << (bucket + 1)) - 1;
+            builder.append(' ').append(low);
+            if (high > low)
+                builder.append('-').append(high);
+            builder.append('=').append(histogram[bucket]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Describes the counters and the shape, the fan-out of each level as in "level 1: 1=2 2-3=5",
+     * the maps of level 1 being 2 of one key and 5 of 2 or 3 keys.
+     */
+    @Override
+    public String toString() {
+        StringJoiner histograms = new StringJoiner(", ", "[", "]");
+        for (int level = 0; level < fanOut.length; ++level)
+            histograms.add(describeFanOut(level));
+        return "MultiDStatsSnapshot{gets=" + gets + ", hits=" + hits + ", puts=" + puts + ", removes=" + removes +
+                ", innerMapsCreated=" + innerMapsCreated + ", innerMapsPruned=" + innerMapsPruned +
+                ", size=" + size + ", innerMaps=" + innerMaps + ", fanOut=" + histograms +
+                ", estimatedBytes=" + estimatedBytes + "}";
+    }
+}
@@ -0,0 +1,507 @@
+package multi_map;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A multi-level map kept outside the heap, in a memory-mapped file.  Keys and values are stored
+ * as bytes by fixed-width {@link MultiDCodec}s, so however many entries the map holds the heap
+ * only carries this instance and the mapping of the file.
+ *
+ * The file is a header followed by a single open-addressed table keyed by the complete key
+ * tuple, as in {@link FlatMultiDMap}.  Each slot holds the hash of the tuple, 0 marking an empty
+ * slot, then the encoded keys and value.  Keys are compared as encoded bytes, so codecs must
+ * encode equal keys identically.  Operations on a key prefix scan the whole table.
+ *
+ * Writes go straight to the mapping and reach the file when the operating system pages them
+ * out, or on {@link #force()} and {@link #close()}.  Opening an existing file maps it again
+ * with all its entries.  Instances are not thread safe, and null keys or values are not
+ * permitted.
+ */
+public abstract class OffHeapMultiDMap implements Closeable {
+
+    private static final int MAGIC = 0x4D444D4F;
+    private static final int VERSION = 1;
+
+    // magic, version, dimensions, value width, capacity, size, then the width of each key
+    private static final int HEADER_SIZE = 64;
+    private static final int SIZE_OFFSET = 20;
+    private static final int KEY_WIDTHS_OFFSET = 28;
+    private static final int MAX_DIMENSIONS = (HEADER_SIZE - KEY_WIDTHS_OFFSET) / Integer.BYTES;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Slots are mapped in chunks of at most 1GB, a MappedByteBuffer being limited to 2GB
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    private final Path file;
+    private final int dimensions;
+    private final MultiDCodec<Object>[] keyCodecs;
+    private final MultiDCodec<Object> valueCodec;
+    private final int[] keyOffsets;
+    private final int keysWidth;
+    private final int slotWidth;
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+    private int chunkShift;
+    private int capacity;
+    private int size;
+
+    // Reused buffers for the encoded keys being looked up, and for slots being moved
+    private final ByteBuffer probe;
+    private final ByteBuffer slotBuffer;
+
+    /**
+     * Opens the map stored in a file, creating the file if it doesn't exist.
+     *
+     * @param file          File holding the map
+     * @param keyCodecs     Codec of each level's keys, all of fixed width
+     * @param valueCodec    Codec of the values, of fixed width
+     * @throws IOException  if the file can't be mapped, or holds a map of other dimensions or widths
+     */
+    protected OffHeapMultiDMap(Path file, MultiDCodec<?>[] keyCodecs, MultiDCodec<?> valueCodec) throws IOException {
+        if (keyCodecs.length > MAX_DIMENSIONS)
+            throw new IllegalArgumentException(
+                    "too many dimensions, accepts at most " + MAX_DIMENSIONS + ", got " + keyCodecs.length);
+
+        this.file = file;
+        this.dimensions = keyCodecs.length;
+        this.keyCodecs = MultiDCodecs.untyped(keyCodecs);
+        this.valueCodec = MultiDCodecs.untyped(valueCodec);
+
+        keyOffsets = new int[dimensions + 1];
+        keyOffsets[0] = Integer.BYTES;
+        for (int i = 0; i < dimensions; ++i)
+            keyOffsets[i + 1] = keyOffsets[i] + fixedWidth(keyCodecs[i]);
+        keysWidth = keyOffsets[dimensions] - Integer.BYTES;
+        slotWidth = keyOffsets[dimensions] + fixedWidth(valueCodec);
+
+        probe = ByteBuffer.allocate(keysWidth);
+        slotBuffer = ByteBuffer.allocate(slotWidth);
+
+        // Left by a resize which didn't complete, the file itself being then untouched
+        Files.deleteIfExists(resizeFile());
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0)
+                initialize(channel, INITIAL_CAPACITY);
+            map();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int fixedWidth(MultiDCodec<?> codec) {
+        if (codec.width() <= 0)
+            throw new IllegalArgumentException("codecs must be of fixed width, got " + codec.width());
+        return codec.width();
+    }
+
+    public int getDimensions() { return dimensions; }
+
+    /**
+     * The number of values with distinct keys in the instance.
+     * @return  The number of values contained
+     */
+    public int getSize() { return size; }
+
+    public Path getFile() { return file; }
+
+    /**
+     * Implementation of internal get logic.  When all keys are supplied the value is returned,
+     * otherwise a {@link MultiDMap} holding a copy of the matching entries, found by scanning
+     * the table, is returned.
+     *
+     * @param keys  Array of keys, at most one for each level of the instance
+     * @return      Value or copied submap found, null if there is none
+     */
+    protected Object get(Object... keys) {
+        checkKeys(keys);
+        if (keys.length == dimensions) {
+            int slot = find(encodeKeys(keys));
+            return slot < 0 ? null : readValue(slot);
+        }
+
+        MultiDMap copy = copyMap(dimensions - keys.length);
+        int prefixWidth = keyOffsets[keys.length] - Integer.BYTES;
+        encodePrefix(keys);
+        for (int slot = 0; slot < capacity; ++slot) {
+            if (hashAt(slot) != 0 && prefixMatches(slot, prefixWidth)) {
+                Object[] entry = new Object[dimensions - keys.length + 1];
+                for (int i = keys.length; i < dimensions; ++i)
+                    entry[i - keys.length] = readKey(slot, i);
+                entry[entry.length - 1] = readValue(slot);
+                copy.put(entry);
+            }
+        }
+        return copy.getSize() == 0 ? null : copy;
+    }
+
+    /**
+     * Implementation of internal put logic.
+     *
+     * @param   o Array containing keys for each level of the map and the relevant value.
+     * @return  if there was already a value at the specified key, that value is returned, otherwise null
+     */
+    protected Object put(Object... o) {
+        if (o.length != dimensions + 1)
+            throw new IllegalArgumentException(
+                    "incorrect number of arguments, must be " + (dimensions + 1) + ", got " + o.length);
+
+        int hash = encodeKeys(o);
+        int slot = find(hash);
+        if (slot >= 0) {
+            Object old = readValue(slot);
+            writeValue(slot, o[dimensions]);
+            return old;
+        }
+
+        if ((size + 1) * 4L > capacity * 3L) {
+            resize(capacity * 2);
+            slot = find(hash);
+        }
+
+        slot = -slot - 1;
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putInt(offset, hash);
+        for (int i = 0; i < keysWidth; ++i)
+            chunk.put(offset + Integer.BYTES + i, probe.get(i));
+        writeValue(slot, o[dimensions]);
+        setSize(size + 1);
+        return null;
+    }
+
+    /**
+     * Removes a value or all values below a key prefix, the latter scanning the whole table.
+     *
+     * @param keys  Array of keys identifying what is to be deleted
+     * @return      Number of values removed
+     */
+    protected int remove(Object... keys) {
+        checkKeys(keys);
+        if (keys.length == dimensions) {
+            int slot = find(encodeKeys(keys));
+            if (slot < 0)
+                return 0;
+            removeSlot(slot);
+            setSize(size - 1);
+            return 1;
+        }
+
+        int prefixWidth = keyOffsets[keys.length] - Integer.BYTES;
+        encodePrefix(keys);
+        int removed = 0;
+        for (int slot = 0; slot < capacity; ) {
+            // Removing shifts later slots back, possibly into this one, which is then checked again
+            if (hashAt(slot) != 0 && prefixMatches(slot, prefixWidth)) {
+                removeSlot(slot);
+                ++removed;
+            } else {
+                ++slot;
+            }
+        }
+        setSize(size - removed);
+        return removed;
+    }
+
+    /**
+     * Generate iterable of all key-values, similar to @{@link java.util.Map}'s entries method.
+     * Entries are decoded as the stream is consumed, and the map must not be modified meanwhile.
+     *
+     * @return  Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    protected Stream<Object[]> entries() {
+        return IntStream.range(0, capacity)
+                .filter(slot -> hashAt(slot) != 0)
+                .mapToObj(slot -> {
+                    Object[] entry = new Object[dimensions + 1];
+                    for (int i = 0; i < dimensions; ++i)
+                        entry[i] = readKey(slot, i);
+                    entry[dimensions] = readValue(slot);
+                    return entry;
+                });
+    }
+
+    /**
+     * Writes all changes made to the mapping to the file.
+     */
+    public void force() {
+        header.force();
+        for (MappedByteBuffer chunk : chunks)
+            chunk.force();
+    }
+
+    /**
+     * Forces the changes to the file and closes it.  The instance can't be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel == null)
+            return;
+        force();
+        channel.close();
+        channel = null;
+        header = null;
+        chunks = null;
+    }
+
+    private void checkKeys(Object[] keys) {
+        if (keys.length > dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, accepts at most " + dimensions + ", got " + keys.length);
+    }
+
+    /**
+     * Creates an empty map of the given dimensions for copies of subtrees.
+     */
+    private static MultiDMap copyMap(int dimensions) {
+        switch (dimensions) {
+            case 1: return new MultiDMap1<>();
+            case 2: return new MultiDMap2<>();
+            case 3: return new MultiDMap3<>();
+            default: return new MultiDMapN<>(dimensions);
+        }
+    }
+
+    /**
+     * Encodes the first {@link #dimensions} elements of an array into {@link #probe}.
+     *
+     * @return the hash of the encoded keys, never 0
+     */
+    private int encodeKeys(Object[] keys) {
+        probe.clear();
+        for (int i = 0; i < dimensions; ++i)
+            keyCodecs[i].write(keys[i], probe);
+
+        int h = 0x811C9DC5;
+        byte[] bytes = probe.array();
+        for (int i = 0; i < keysWidth; ++i)
+            h = (h ^ bytes[i]) * 0x01000193;
+        return FlatMultiDMap.spread(h);
+    }
+
+    private void encodePrefix(Object[] keys) {
+        probe.clear();
+        for (int i = 0; i < keys.length; ++i)
+            keyCodecs[i].write(keys[i], probe);
+    }
+
+    /**
+     * Finds the slot holding the keys encoded in {@link #probe}.
+     *
+     * @return the slot, or if the keys are absent -(slot at which they would be inserted) - 1
+     */
+    private int find(int hash) {
+        int mask = capacity - 1;
+        int slot = hash & mask;
+        while (true) {
+            int h = hashAt(slot);
+            if (h == 0)
+                return -slot - 1;
+            if (h == hash && prefixMatches(slot, keysWidth))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean prefixMatches(int slot, int width) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot) + Integer.BYTES;
+        byte[] bytes = probe.array();
+        for (int i = 0; i < width; ++i) {
+            if (chunk.get(offset + i) != bytes[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Empties a slot, shifting back the slots of the same probe run behind it so that no
+     * tombstone is needed.
+     */
+    private void removeSlot(int slot) {
+        int mask = capacity - 1;
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int h = hashAt(next);
+            if (h == 0)
+                break;
+
+            // The slot at next may fill the hole unless its home lies cyclically in (hole, next]
+            int home = h & mask;
+            if (hole <= next ? (hole < home && home <= next) : (hole < home || home <= next))
+                continue;
+
+            copySlot(next, hole);
+            hole = next;
+        }
+        chunk(hole).putInt(offset(hole), 0);
+    }
+
+    private void copySlot(int from, int to) {
+        ByteBuffer source = chunk(from);
+        source.position(offset(from));
+        slotBuffer.clear();
+        source.get(slotBuffer.array(), 0, slotWidth);
+
+        ByteBuffer target = chunk(to);
+        target.position(offset(to));
+        target.put(slotBuffer.array(), 0, slotWidth);
+    }
+
+    private int hashAt(int slot) {
+        return chunk(slot).getInt(offset(slot));
+    }
+
+    private Object readKey(int slot, int level) {
+        ByteBuffer chunk = chunk(slot);
+        chunk.position(offset(slot) + keyOffsets[level]);
+        return keyCodecs[level].read(chunk, keyCodecs[level].width());
+    }
+
+    private Object readValue(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        chunk.position(offset(slot) + keyOffsets[dimensions]);
+        return valueCodec.read(chunk, valueCodec.width());
+    }
+
+    private void writeValue(int slot, Object value) {
+        ByteBuffer chunk = chunk(slot);
+        chunk.position(offset(slot) + keyOffsets[dimensions]);
+        valueCodec.write(value, chunk);
+    }
+
+    private MappedByteBuffer chunk(int slot) {
+        return chunks[slot >>> chunkShift];
+    }
+
+    private int offset(int slot) {
+        return (slot & ((1 << chunkShift) - 1)) * slotWidth;
+    }
+
+    private void setSize(int newSize) {
+        size = newSize;
+        header.putLong(SIZE_OFFSET, newSize);
+    }
+
+    /**
+     * Writes the header of an empty table to a new file and extends the file to hold the slots.
+     */
+    private void initialize(FileChannel target, int newCapacity) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(valueCodec.width());
+        buffer.putInt(newCapacity).putLong(0);
+        for (MultiDCodec<?> codec : keyCodecs)
+            buffer.putInt(codec.width());
+        buffer.clear();
+        target.write(buffer, 0);
+
+        // Extending the file with a single byte at its end leaves the table zeroed, that is empty
+        target.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) newCapacity * slotWidth - 1);
+    }
+
+    /**
+     * Maps the header and slots of {@link #channel}, checking that it holds a map of this shape.
+     */
+    private void map() throws IOException {
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            throw new IOException(file + " does not hold a multi-level map");
+
+        boolean sameShape = header.getInt(8) == dimensions && header.getInt(12) == valueCodec.width();
+        for (int i = 0; i < dimensions && sameShape; ++i)
+            sameShape = header.getInt(KEY_WIDTHS_OFFSET + i * Integer.BYTES) == keyCodecs[i].width();
+        if (!sameShape)
+            throw new IOException(file + " holds a map of other dimensions or key and value widths");
+
+        capacity = header.getInt(16);
+        size = (int) header.getLong(SIZE_OFFSET);
+
+        int chunkSlots = Math.min(capacity, Integer.highestOneBit(MAX_CHUNK_BYTES / slotWidth));
+        chunkShift = Integer.numberOfTrailingZeros(chunkSlots);
+        chunks = new MappedByteBuffer[capacity / chunkSlots];
+        for (int i = 0; i < chunks.length; ++i) {
+            long start = HEADER_SIZE + (long) i * chunkSlots * slotWidth;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, (long) chunkSlots * slotWidth);
+        }
+    }
+
+    /**
+     * @return  the file a resize builds the new table in, next to the map's file
+     */
+    private Path resizeFile() {
+        return file.resolveSibling(file.getFileName() + ".resize");
+    }
+
+    /**
+     * Rehashes every entry into a new file of the given capacity, which then replaces the current
+     * one.  Until the replacement the current file is left untouched, so a crash during a resize
+     * leaves the map as it was.
+     */
+    private void resize(int newCapacity) {
+        if (newCapacity <= 0)
+            throw new IllegalStateException("table can't grow beyond " + capacity + " slots");
+
+        Path resized = resizeFile();
+        try {
+            MappedByteBuffer[] oldChunks = chunks;
+            int oldShift = chunkShift;
+            int oldCapacity = capacity;
+            int entries = size;
+
+            try (FileChannel target = FileChannel.open(resized, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                initialize(target, newCapacity);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(resized);
+                throw e;
+            }
+
+            channel.close();
+            channel = FileChannel.open(resized, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map();
+
+            int mask = newCapacity - 1;
+            byte[] bytes = slotBuffer.array();
+            for (int slot = 0; slot < oldCapacity; ++slot) {
+                ByteBuffer source = oldChunks[slot >>> oldShift];
+                int offset = (slot & ((1 << oldShift) - 1)) * slotWidth;
+                int h = source.getInt(offset);
+                if (h == 0)
+                    continue;
+
+                int target = h & mask;
+                while (hashAt(target) != 0)
+                    target = (target + 1) & mask;
+                source.position(offset);
+                source.get(bytes, 0, slotWidth);
+                ByteBuffer chunk = chunk(target);
+                chunk.position(offset(target));
+                chunk.put(bytes, 0, slotWidth);
+            }
+            setSize(entries);
+            force();
+
+            Files.move(resized, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to resize " + file, e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package multi_map;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@SuppressWarnings("unchecked")
+public class OffHeapMultiDMap2<K1,K2,V> extends OffHeapMultiDMap {
+
+    public OffHeapMultiDMap2(Path file, MultiDCodec<K1> k1Codec, MultiDCodec<K2> k2Codec, MultiDCodec<V> valueCodec)
+            throws IOException {
+        super(file, new MultiDCodec<?>[] {k1Codec, k2Codec}, valueCodec);
+    }
+
+    public V put(K1 k1, K2 k2, V v) {
+        return (V) super.put(k1, k2, v);
+    }
+
+    public V get(K1 k1, K2 k2) { return (V) super.get(k1, k2); }
+
+    /**
+     * Unlike {@link MultiDMap2#get(Object)} the returned map is a copy, changes to it are not
+     * reflected in this instance.
+     */
+    public MultiDMap1<K2,V> get(K1 k1) { return (MultiDMap1<K2, V>) super.get(k1); }
+
+    public int remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public int remove(K1 k1) { return super.remove(k1); }
+}
@@ -0,0 +1,37 @@
+package multi_map;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@SuppressWarnings("unchecked")
+public class OffHeapMultiDMap3<K1,K2,K3,V> extends OffHeapMultiDMap {
+
+    public OffHeapMultiDMap3(Path file, MultiDCodec<K1> k1Codec, MultiDCodec<K2> k2Codec, MultiDCodec<K3> k3Codec,
+                             MultiDCodec<V> valueCodec) throws IOException {
+        super(file, new MultiDCodec<?>[] {k1Codec, k2Codec, k3Codec}, valueCodec);
+    }
+
+    public V put(K1 k1, K2 k2, K3 k3, V v) {
+        return (V) super.put(k1, k2, k3, v);
+    }
+
+    public V get(K1 k1, K2 k2, K3 k3) { return (V) super.get(k1, k2, k3); }
+
+    /**
+     * Unlike {@link MultiDMap3#get(Object, Object)} the returned map is a copy, changes to it are
+     * not reflected in this instance.
+     */
+    public MultiDMap1<K3,V> get(K1 k1, K2 k2) { return (MultiDMap1<K3, V>) super.get(k1, k2); }
+
+    /**
+     * Unlike {@link MultiDMap3#get(Object)} the returned map is a copy, changes to it are not
+     * reflected in this instance.
+     */
+    public MultiDMap2<K2,K3,V> get(K1 k1) { return (MultiDMap2<K2, K3, V>) super.get(k1); }
+
+    public int remove(K1 k1, K2 k2, K3 k3) { return super.remove(k1, k2, k3); }
+
+    public int remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public int remove(K1 k1) { return super.remove(k1); }
+}
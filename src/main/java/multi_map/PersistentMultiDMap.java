@@ -0,0 +1,201 @@
+package multi_map;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable multi-level map.  Every level is a hash array mapped trie, and every put or remove
+ * returns a new version which shares all untouched subtrees, and all untouched trie nodes within
+ * the modified levels, with the version it was derived from.
+ *
+ * Since a version never changes it is its own snapshot: a writer can publish each new version
+ * through a volatile field or an {@link java.util.concurrent.atomic.AtomicReference} and readers
+ * simply keep the version they read for as long as they need a consistent view.
+ *
+ * Neither keys nor values may be null.
+ */
+public abstract class PersistentMultiDMap {
+
+    protected final HashTrie data;
+    private final int dimensions;
+    private final int size;
+    private int hash = 0;
+
+    protected PersistentMultiDMap(int dimensions, HashTrie data, int size) {
+        this.dimensions = dimensions;
+        this.data = data;
+        this.size = size;
+    }
+
+    /**
+     * Creates a map of the same type holding the given data.
+     */
+    protected abstract PersistentMultiDMap create(HashTrie data, int size);
+
+    /**
+     * Creates an empty 'inner' map suitable for use as the value entry of data.
+     */
+    protected abstract PersistentMultiDMap emptyInnerMap();
+
+    public int getDimensions() { return dimensions; }
+
+    /**
+     * The number of values with distinct keys in the instance.
+     * @return  The number of values contained
+     */
+    public int getSize() { return size; }
+
+    /**
+     * Implementation of internal get logic.  Note that there is no type checking, hence its 'protected' status.
+     * @param keys  Array of keys, one for each level of the instance
+     * @return      Value or submap found in innermost map
+     */
+    protected Object get(Object... keys) {
+        if (keys.length > dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, accepts at most " + dimensions + ", got " + keys.length);
+
+        PersistentMultiDMap map = this;
+        for (int i = 0; ; ++i) {
+            Object sub = map.data.get(keys[i]);
+            if (sub == null || i == keys.length - 1)
+                return sub;
+            map = (PersistentMultiDMap) sub;
+        }
+    }
+
+    /**
+     * Implementation of internal put logic.  Note that there is no type checking, hence its 'protected' status.
+     *
+     * @param   o Array containing keys for each level of the map and the relevant value.
+     * @return  the new version, or this instance if the value was already present
+     */
+    protected PersistentMultiDMap put(Object... o) {
+        if (o.length != dimensions + 1)
+            throw new IllegalArgumentException(
+                    "incorrect number of arguments, must be " + (dimensions+1) + ", got " + o.length);
+
+        return putInner(o);
+    }
+
+    protected PersistentMultiDMap putInner(Object... o) {
+        Object key = o[o.length - 1 - dimensions];
+        if (dimensions == 1) {
+            HashTrie updated = data.with(key, o[o.length - 1]);
+            return updated == data ? this : create(updated, updated.size());
+        }
+
+        PersistentMultiDMap inner = (PersistentMultiDMap) data.get(key);
+        if (inner == null)
+            inner = emptyInnerMap();
+
+        PersistentMultiDMap updatedInner = inner.putInner(o);
+        if (updatedInner == inner)
+            return this;
+        return create(data.with(key, updatedInner), size + updatedInner.size - inner.size);
+    }
+
+    /**
+     * Removes a value or an entire submap.  If the number of keys supplied is less than the
+     * number of dimensions the submap found with those keys will be removed.
+     *
+     * @param keys  Array of keys identifying what is to be deleted
+     * @return      the new version, or this instance if there was nothing to remove
+     */
+    protected PersistentMultiDMap remove(Object... keys) {
+        if (keys.length > dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, accepts at most " + dimensions + ", got " + keys.length);
+
+        return removeInner(dimensions, keys);
+    }
+
+    private PersistentMultiDMap removeInner(int maxDimensions, Object... keys) {
+        int pos = maxDimensions - dimensions;
+        Object inner = data.get(keys[pos]);
+        if (inner == null)
+            return this;
+
+        if (keys.length - 1 == pos) {
+            int removed = dimensions == 1 ? 1 : ((PersistentMultiDMap) inner).size;
+            return create(data.without(keys[pos]), size - removed);
+        }
+
+        PersistentMultiDMap innerMap = (PersistentMultiDMap) inner;
+        PersistentMultiDMap updatedInner = innerMap.removeInner(maxDimensions, keys);
+        if (updatedInner == innerMap)
+            return this;
+
+        int newSize = size - innerMap.size + updatedInner.size;
+        HashTrie updated = updatedInner.size == 0 ? data.without(keys[pos]) : data.with(keys[pos], updatedInner);
+        return create(updated, newSize);
+    }
+
+    /**
+     * Generate iterable of all key-values, similar to @{@link Map}'s entries method.
+     *
+     * @return  Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    protected Stream<Object[]> entries() {
+        return constructiveEntries(dimensions);
+    }
+
+    protected Stream<Object[]> constructiveEntries(int maxDimensions) {
+        Stream<Map.Entry<Object, Object>> levelEntries = StreamSupport.stream(
+                Spliterators.spliterator(data.iterator(), data.size(), Spliterator.SIZED | Spliterator.IMMUTABLE), false);
+
+        if (dimensions == 1) {
+            return levelEntries.map(
+                    entry -> {
+                        Object[] result = new Object[maxDimensions + 1];
+                        result[maxDimensions] = entry.getValue();
+                        result[maxDimensions - 1] = entry.getKey();
+                        return result;
+                    }
+            );
+        }
+
+        return levelEntries.flatMap(
+                entry -> ((PersistentMultiDMap) entry.getValue()).constructiveEntries(maxDimensions).map(
+                        array -> {
+                            array[maxDimensions - dimensions] = entry.getKey();
+                            return array;
+                        }
+                )
+        );
+    }
+
+    /**
+     * Compares level by level.  Subtrees, and trie nodes within a level, which are the same
+     * object in both versions are not descended into, and the comparison ends at the first
+     * mapping found in one version only, so comparing two versions derived from each other costs
+     * time proportional to the changes between them, whether they are equal or not.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof PersistentMultiDMap)) return false;
+
+        PersistentMultiDMap that = (PersistentMultiDMap) obj;
+        return
+                that.dimensions == this.dimensions &&
+                that.size == this.size &&
+                HashTrie.equal(this.data, that.data, Objects::equals);
+    }
+
+    /**
+     * Computed once per version, subtrees shared with other versions keep their computed hash.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && size != 0) {
+            int[] sum = {dimensions};
+            data.forEach((key, value) -> sum[0] += key.hashCode() ^ value.hashCode());
+            h = sum[0];
+            hash = h;
+        }
+        return h;
+    }
+}
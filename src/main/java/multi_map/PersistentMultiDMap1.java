@@ -0,0 +1,38 @@
+package multi_map;
+
+/**
+ * Immutable one dimensional map, see {@link PersistentMultiDMap}.
+ */
+@SuppressWarnings("unchecked")
+public class PersistentMultiDMap1<K1,V> extends PersistentMultiDMap {
+
+    private static final PersistentMultiDMap1<?, ?> EMPTY = new PersistentMultiDMap1<>(HashTrie.EMPTY);
+
+    private PersistentMultiDMap1(HashTrie data) {
+        super(1, data, data.size());
+    }
+
+    public static <K1,V> PersistentMultiDMap1<K1,V> empty() {
+        return (PersistentMultiDMap1<K1, V>) EMPTY;
+    }
+
+    @Override
+    protected PersistentMultiDMap create(HashTrie data, int size) {
+        return new PersistentMultiDMap1<K1,V>(data);
+    }
+
+    @Override
+    protected PersistentMultiDMap emptyInnerMap() {
+        throw new RuntimeException("Inner-most map cannot create an inner map");
+    }
+
+    public V get(K1 k1) { return (V) data.get(k1); }
+
+    public PersistentMultiDMap1<K1,V> put(K1 k1, V v) {
+        return (PersistentMultiDMap1<K1, V>) super.put(k1, v);
+    }
+
+    public PersistentMultiDMap1<K1,V> remove(K1 k1) {
+        return (PersistentMultiDMap1<K1, V>) super.remove(k1);
+    }
+}
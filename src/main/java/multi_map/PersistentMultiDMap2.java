@@ -0,0 +1,44 @@
+package multi_map;
+
+/**
+ * Immutable two dimensional map, see {@link PersistentMultiDMap}.
+ */
+@SuppressWarnings("unchecked")
+public class PersistentMultiDMap2<K1,K2,V> extends PersistentMultiDMap {
+
+    private static final PersistentMultiDMap2<?, ?, ?> EMPTY = new PersistentMultiDMap2<>(HashTrie.EMPTY, 0);
+
+    private PersistentMultiDMap2(HashTrie data, int size) {
+        super(2, data, size);
+    }
+
+    public static <K1,K2,V> PersistentMultiDMap2<K1,K2,V> empty() {
+        return (PersistentMultiDMap2<K1, K2, V>) EMPTY;
+    }
+
+    @Override
+    protected PersistentMultiDMap create(HashTrie data, int size) {
+        return new PersistentMultiDMap2<K1,K2,V>(data, size);
+    }
+
+    @Override
+    protected PersistentMultiDMap emptyInnerMap() {
+        return PersistentMultiDMap1.<K2,V>empty();
+    }
+
+    public PersistentMultiDMap2<K1,K2,V> put(K1 k1, K2 k2, V v) {
+        return (PersistentMultiDMap2<K1, K2, V>) super.put(k1, k2, v);
+    }
+
+    public V get(K1 k1, K2 k2) { return (V) super.get(k1, k2); }
+
+    public PersistentMultiDMap1<K2,V> get(K1 k1) { return (PersistentMultiDMap1<K2, V>) super.get(k1); }
+
+    public PersistentMultiDMap2<K1,K2,V> remove(K1 k1, K2 k2) {
+        return (PersistentMultiDMap2<K1, K2, V>) super.remove(k1, k2);
+    }
+
+    public PersistentMultiDMap2<K1,K2,V> remove(K1 k1) {
+        return (PersistentMultiDMap2<K1, K2, V>) super.remove(k1);
+    }
+}
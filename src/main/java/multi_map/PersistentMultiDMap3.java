@@ -0,0 +1,62 @@
+package multi_map;
+
+/**
+ * Immutable three dimensional map, see {@link PersistentMultiDMap}.
+ */
+@SuppressWarnings("unchecked")
+public class PersistentMultiDMap3<K1,K2,K3,V> extends PersistentMultiDMap {
+
+    private static final PersistentMultiDMap3<?, ?, ?, ?> EMPTY = new PersistentMultiDMap3<>(HashTrie.EMPTY, 0);
+
+    private PersistentMultiDMap3(HashTrie data, int size) {
+        super(3, data, size);
+    }
+
+    public static <K1,K2,K3,V> PersistentMultiDMap3<K1,K2,K3,V> empty() {
+        return (PersistentMultiDMap3<K1, K2, K3, V>) EMPTY;
+    }
+
+    /**
+     * Builds a persistent copy of a {@link MultiDMap3}, e.g. to take the first version of data
+     * which is then updated incrementally.
+     */
+    public static <K1,K2,K3,V> PersistentMultiDMap3<K1,K2,K3,V> copyOf(MultiDMap3<K1,K2,K3,V> source) {
+        PersistentMultiDMap[] result = {empty()};
+        source.entries().forEach(entry -> result[0] = result[0].put(entry));
+        return (PersistentMultiDMap3<K1, K2, K3, V>) result[0];
+    }
+
+    @Override
+    protected PersistentMultiDMap create(HashTrie data, int size) {
+        return new PersistentMultiDMap3<K1,K2,K3,V>(data, size);
+    }
+
+    @Override
+    protected PersistentMultiDMap emptyInnerMap() {
+        return PersistentMultiDMap2.<K2,K3,V>empty();
+    }
+
+    public PersistentMultiDMap3<K1,K2,K3,V> put(K1 k1, K2 k2, K3 k3, V v) {
+        return (PersistentMultiDMap3<K1, K2, K3, V>) super.put(k1, k2, k3, v);
+    }
+
+    public V get(K1 k1, K2 k2, K3 k3) {
+        return (V) super.get(k1, k2, k3);
+    }
+
+    public PersistentMultiDMap1<K3,V> get(K1 k1, K2 k2) { return (PersistentMultiDMap1<K3, V>) super.get(k1, k2); }
+
+    public PersistentMultiDMap2<K2,K3,V> get(K1 k1) { return (PersistentMultiDMap2<K2, K3, V>) super.get(k1); }
+
+    public PersistentMultiDMap3<K1,K2,K3,V> remove(K1 k1, K2 k2, K3 k3) {
+        return (PersistentMultiDMap3<K1, K2, K3, V>) super.remove(k1, k2, k3);
+    }
+
+    public PersistentMultiDMap3<K1,K2,K3,V> remove(K1 k1, K2 k2) {
+        return (PersistentMultiDMap3<K1, K2, K3, V>) super.remove(k1, k2);
+    }
+
+    public PersistentMultiDMap3<K1,K2,K3,V> remove(K1 k1) {
+        return (PersistentMultiDMap3<K1, K2, K3, V>) super.remove(k1);
+    }
+}
@@ -0,0 +1,35 @@
+package multi_map;
+
+/**
+ * Hashing helpers shared by the open-addressed primitive key tables.
+ */
+final class PrimitiveHashing {
+
+    private PrimitiveHashing() {}
+
+    static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * The table length needed to hold a number of entries without exceeding the maximum load of 3/4.
+     */
+    static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.min(1L << 30, (long) expectedSize * 4 / 3 + 1);
+        return Math.max(8, Integer.highestOneBit(needed - 1) << 1);
+    }
+
+    /**
+     * Whether a table holding {@code size} entries should grow.
+     */
+    static boolean overloaded(int size, int length) {
+        return size * 4L > length * 3L;
+    }
+}
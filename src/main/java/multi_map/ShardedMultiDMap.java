@@ -0,0 +1,198 @@
+package multi_map;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A multi-level map shared between threads without locks, by partitioning it on the hash of the
+ * top level keys.
+ *
+ * Each shard is an ordinary {@link MultiDMap}, owned by a single worker thread: operations are
+ * queued to the worker of the shard of their top level key and run there one after the other,
+ * so a shard is only ever touched by its own thread and stays in that core's cache.  Operations
+ * on the same top level key run in the order they were submitted.  Point operations return a
+ * {@link CompletableFuture} of their result; scans run on every shard in parallel and merge the
+ * results of the shards.
+ *
+ * Callbacks attached to the futures without an executor may run on a worker thread: they must
+ * be short and must not wait for other futures of this map.  {@link #close()} stops the workers.
+ */
+public abstract class ShardedMultiDMap implements Closeable {
+
+    private final int dimensions;
+    private final MultiDMap[] shards;
+    private final ExecutorService[] workers;
+
+    /**
+     * Creates an empty shard, an ordinary map of this instance's dimensions.
+     */
+    protected abstract MultiDMap createShard();
+
+    /**
+     * @param dimensions    Number of dimensions
+     * @param shardCount    Number of shards, and of worker threads
+     */
+    protected ShardedMultiDMap(int dimensions, int shardCount) {
+        if (shardCount <= 0)
+            throw new IllegalArgumentException("shard count must be positive, got " + shardCount);
+        this.dimensions = dimensions;
+        shards = new MultiDMap[shardCount];
+        workers = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; ++i) {
+            shards[i] = createShard();
+            String name = "multi-d-shard-" + i;
+            workers[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int getDimensions() { return dimensions; }
+
+    public int getShardCount() { return shards.length; }
+
+    /**
+     * @return  the index of the shard holding the entries below a top level key
+     */
+    protected int shardOf(Object k1) {
+        return (PrimitiveHashing.mix(Objects.hashCode(k1)) & Integer.MAX_VALUE) % shards.length;
+    }
+
+    /**
+     * Runs an operation on the worker of the shard holding a top level key.
+     *
+     * @param k1        Top level key
+     * @param operation Operation on the shard, which must not keep it nor any submap of it
+     */
+    protected <R> CompletableFuture<R> submit(Object k1, Function<? super MultiDMap, ? extends R> operation) {
+        int shard = shardOf(k1);
+        return CompletableFuture.supplyAsync(() -> operation.apply(shards[shard]), workers[shard]);
+    }
+
+    /**
+     * Implementation of internal get logic, for the keys of every level.
+     */
+    protected CompletableFuture<Object> get(Object... keys) {
+        if (keys.length != dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, must be " + dimensions + ", got " + keys.length);
+        return submit(keys[0], shard -> shard.get(keys));
+    }
+
+    /**
+     * Implementation of internal put logic.
+     *
+     * @param   o Array containing keys for each level of the map and the relevant value.
+     * @return  future of the value replaced, or of null if there was none
+     */
+    protected CompletableFuture<Object> put(Object... o) {
+        if (o.length != dimensions + 1)
+            throw new IllegalArgumentException(
+                    "incorrect number of arguments, must be " + (dimensions + 1) + ", got " + o.length);
+        return submit(o[0], shard -> shard.put(o));
+    }
+
+    /**
+     * Removes a value, or the submap found with the keys if there are fewer than dimensions.
+     *
+     * @return  future of the number of values removed
+     */
+    protected CompletableFuture<Integer> remove(Object... keys) {
+        if (keys.length == 0 || keys.length > dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, must be between 1 and " + dimensions + ", got " + keys.length);
+        return submit(keys[0], shard -> shard.remove(keys));
+    }
+
+    /**
+     * Implementation of the compute family of methods, see {@link MultiDMap#computeEntry}.
+     *
+     * @return  future of the new value, or of null if there is none
+     */
+    protected CompletableFuture<Object> computeEntry(BiFunction<Object, Object, Object> remapping, Object... keys) {
+        if (keys.length != dimensions)
+            throw new IllegalArgumentException(
+                    "incorrect number of keys, must be " + dimensions + ", got " + keys.length);
+        return submit(keys[0], shard -> shard.computeEntry(remapping, keys));
+    }
+
+    /**
+     * Runs a task on every shard in parallel, each on its own worker, and merges the results.
+     *
+     * @param task  Task reading or changing a shard, which must not keep it nor any submap of it
+     * @param merge Merges the results of two shards
+     * @return      future of the merged results
+     */
+    public <R> CompletableFuture<R> fanOut(Function<? super MultiDMap, ? extends R> task, BinaryOperator<R> merge) {
+        List<CompletableFuture<R>> parts = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; ++i) {
+            MultiDMap shard = shards[i];
+            parts.add(CompletableFuture.supplyAsync(() -> task.apply(shard), workers[i]));
+        }
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> parts.stream().map(CompletableFuture::join).reduce(merge).get());
+    }
+
+    /**
+     * @return  future of the number of values held by all the shards
+     */
+    public CompletableFuture<Integer> size() {
+        return fanOut(MultiDMap::getSize, Integer::sum);
+    }
+
+    /**
+     * @return  future of all the key-values, as arrays in which each position holds the value for
+     *          the relevant dimension, grouped by shard
+     */
+    public CompletableFuture<List<Object[]>> entries() {
+        return fanOut(shard -> shard.entries().collect(Collectors.toList()), ShardedMultiDMap::concat);
+    }
+
+    /**
+     * @return  future of the key-values selected by the query, see {@link MultiDMap#query}
+     */
+    public CompletableFuture<List<Object[]>> query(MultiDQuery query) {
+        return fanOut(shard -> shard.query(query).collect(Collectors.toList()), ShardedMultiDMap::concat);
+    }
+
+    /**
+     * Reduces all the values, see {@link MultiDMap#reduce(Object, BiFunction, BinaryOperator)}.
+     * Each shard is reduced sequentially by its own worker, the shards being reduced in parallel.
+     */
+    public <R> CompletableFuture<R> reduce(R identity, BiFunction<R, Object, R> accumulator, BinaryOperator<R> combiner) {
+        return fanOut(shard -> MultiDReducer.reduceSequentially(shard, identity, accumulator), combiner);
+    }
+
+    private static <T> List<T> concat(List<T> a, List<T> b) {
+        a.addAll(b);
+        return a;
+    }
+
+    /**
+     * Stops the workers once the operations already submitted have run.  Operations submitted
+     * afterwards are rejected.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService worker : workers)
+            worker.shutdown();
+        try {
+            for (ExecutorService worker : workers)
+                worker.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
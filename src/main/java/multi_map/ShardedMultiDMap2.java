@@ -0,0 +1,50 @@
+package multi_map;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Two dimensional map partitioned between single writer shards, see {@link ShardedMultiDMap}.
+ */
+@SuppressWarnings("unchecked")
+public class ShardedMultiDMap2<K1,K2,V> extends ShardedMultiDMap {
+
+    /**
+     * Creates a map with one shard per available processor.
+     */
+    public ShardedMultiDMap2() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedMultiDMap2(int shardCount) {
+        super(2, shardCount);
+    }
+
+    @Override
+    protected MultiDMap createShard() {
+        return new MultiDMap2<K1,K2,V>();
+    }
+
+    public CompletableFuture<V> get(K1 k1, K2 k2) {
+        return (CompletableFuture<V>) (CompletableFuture<?>) super.get(k1, k2);
+    }
+
+    public CompletableFuture<V> put(K1 k1, K2 k2, V v) {
+        return (CompletableFuture<V>) (CompletableFuture<?>) super.put(k1, k2, v);
+    }
+
+    public CompletableFuture<V> compute(K1 k1, K2 k2, Function<? super V, ? extends V> remapping) {
+        return (CompletableFuture<V>) (CompletableFuture<?>)
+                computeEntry(MultiDMap.always((Function<Object, ?>) remapping), k1, k2);
+    }
+
+    public CompletableFuture<V> merge(K1 k1, K2 k2, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        return (CompletableFuture<V>) (CompletableFuture<?>)
+                computeEntry(MultiDMap.merging(value, (BiFunction<Object, Object, ?>) remapping), k1, k2);
+    }
+
+    public CompletableFuture<Integer> remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public CompletableFuture<Integer> remove(K1 k1) { return super.remove(k1); }
+}
@@ -0,0 +1,52 @@
+package multi_map;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Three dimensional map partitioned between single writer shards, see {@link ShardedMultiDMap}.
+ */
+@SuppressWarnings("unchecked")
+public class ShardedMultiDMap3<K1,K2,K3,V> extends ShardedMultiDMap {
+
+    /**
+     * Creates a map with one shard per available processor.
+     */
+    public ShardedMultiDMap3() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedMultiDMap3(int shardCount) {
+        super(3, shardCount);
+    }
+
+    @Override
+    protected MultiDMap createShard() {
+        return new MultiDMap3<K1,K2,K3,V>();
+    }
+
+    public CompletableFuture<V> get(K1 k1, K2 k2, K3 k3) {
+        return (CompletableFuture<V>) (CompletableFuture<?>) super.get(k1, k2, k3);
+    }
+
+    public CompletableFuture<V> put(K1 k1, K2 k2, K3 k3, V v) {
+        return (CompletableFuture<V>) (CompletableFuture<?>) super.put(k1, k2, k3, v);
+    }
+
+    public CompletableFuture<V> compute(K1 k1, K2 k2, K3 k3, Function<? super V, ? extends V> remapping) {
+        return (CompletableFuture<V>) (CompletableFuture<?>)
+                computeEntry(MultiDMap.always((Function<Object, ?>) remapping), k1, k2, k3);
+    }
+
+    public CompletableFuture<V> merge(K1 k1, K2 k2, K3 k3, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        return (CompletableFuture<V>) (CompletableFuture<?>)
+                computeEntry(MultiDMap.merging(value, (BiFunction<Object, Object, ?>) remapping), k1, k2, k3);
+    }
+
+    public CompletableFuture<Integer> remove(K1 k1, K2 k2, K3 k3) { return super.remove(k1, k2, k3); }
+
+    public CompletableFuture<Integer> remove(K1 k1, K2 k2) { return super.remove(k1, k2); }
+
+    public CompletableFuture<Integer> remove(K1 k1) { return super.remove(k1); }
+}
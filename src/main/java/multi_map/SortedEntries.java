@@ -0,0 +1,92 @@
+package multi_map;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Range queries over {@link MultiDMap}s whose levels are all {@link NavigableMap}s, as built by
+ * {@link SortedMultiDMap1}, {@link SortedMultiDMap2} and {@link SortedMultiDMap3}.
+ */
+final class SortedEntries {
+
+    private SortedEntries() {}
+
+    @SuppressWarnings("unchecked")
+    static Map<Object, Object> newLevel(Comparator<?> comparator) {
+        return new TreeMap<>((Comparator<Object>) comparator);
+    }
+
+    /**
+     * @return  an empty level ordered as the given one
+     */
+    static Map<Object, Object> newLevelLike(Map<Object, Object> level) {
+        return newLevel(((NavigableMap<Object, Object>) level).comparator());
+    }
+
+    /**
+     * Streams the entries below a key prefix whose key on the next level lies in [from, to).
+     * Only the submap reached by the prefix and, within it, the keys in range are visited.
+     *
+     * @param map           Map to query
+     * @param prefix        Keys of the levels above the range, possibly none
+     * @param from          Lowest key of the range, inclusive, or null for no lower bound
+     * @param to            Highest key of the range, exclusive, or null for no upper bound
+     * @param descending    Whether the entries are produced in descending order at every level
+     * @return              Stream of arrays in which each position holds the value for the relevant dimension
+     */
+    static Stream<Object[]> range(MultiDMap map, Object[] prefix, Object from, Object to, boolean descending) {
+        MultiDMap node = map;
+        for (Object key : prefix) {
+            node = (MultiDMap) node.data.get(key);
+            if (node == null)
+                return Stream.empty();
+        }
+
+        NavigableMap<Object, Object> level = (NavigableMap<Object, Object>) node.data;
+        if (from != null && to != null)
+            level = level.subMap(from, true, to, false);
+        else if (from != null)
+            level = level.tailMap(from, true);
+        else if (to != null)
+            level = level.headMap(to, false);
+
+        int maxDimensions = map.getDimensions();
+        return entries(node, level, maxDimensions, descending).map(
+                array -> {
+                    System.arraycopy(prefix, 0, array, 0, prefix.length);
+                    return array;
+                }
+        );
+    }
+
+    private static Stream<Object[]> entries(MultiDMap node, NavigableMap<Object, Object> level, int maxDimensions, boolean descending) {
+        int dimensions = node.getDimensions();
+        Stream<Map.Entry<Object, Object>> levelEntries = (descending ? level.descendingMap() : level).entrySet().stream();
+
+        if (dimensions == 1) {
+            return levelEntries.map(
+                    entry -> {
+                        Object[] result = new Object[maxDimensions + 1];
+                        result[maxDimensions] = entry.getValue();
+                        result[maxDimensions - 1] = entry.getKey();
+                        return result;
+                    }
+            );
+        }
+
+        return levelEntries.flatMap(
+                entry -> {
+                    MultiDMap inner = (MultiDMap) entry.getValue();
+                    return entries(inner, (NavigableMap<Object, Object>) inner.data, maxDimensions, descending).map(
+                            array -> {
+                                array[maxDimensions - dimensions] = entry.getKey();
+                                return array;
+                            }
+                    );
+                }
+        );
+    }
+}
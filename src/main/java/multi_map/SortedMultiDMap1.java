@@ -0,0 +1,46 @@
+package multi_map;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A {@link MultiDMap1} which keeps its keys sorted and supports range queries.
+ */
+public class SortedMultiDMap1<K1,V> extends MultiDMap1<K1,V> {
+
+    /**
+     * Creates a map ordered by the natural ordering of its keys.
+     */
+    public SortedMultiDMap1() {
+        this(null);
+    }
+
+    /**
+     * @param comparator1   Ordering of the keys, or null for their natural ordering
+     */
+    public SortedMultiDMap1(Comparator<? super K1> comparator1) {
+        super(SortedEntries.newLevel(comparator1));
+    }
+
+    @Override
+    protected Map<Object, Object> newData(int expectedKeys) {
+        return SortedEntries.newLevelLike(data);
+    }
+
+    /**
+     * @param k1From    Lowest key, inclusive, or null for no lower bound
+     * @param k1To      Highest key, exclusive, or null for no upper bound
+     * @return          Stream of the entries in range, in ascending order
+     */
+    public Stream<Object[]> range(K1 k1From, K1 k1To) {
+        return SortedEntries.range(this, new Object[0], k1From, k1To, false);
+    }
+
+    /**
+     * As {@link #range(Object, Object)}, in descending order.
+     */
+    public Stream<Object[]> descendingRange(K1 k1From, K1 k1To) {
+        return SortedEntries.range(this, new Object[0], k1From, k1To, true);
+    }
+}
@@ -0,0 +1,106 @@
+package multi_map;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A {@link MultiDMap3} which keeps the keys of every level sorted and supports range queries.
+ * A range query only visits the submaps and keys within its range.
+ */
+@SuppressWarnings("unchecked")
+public class SortedMultiDMap3<K1,K2,K3,V> extends MultiDMap3<K1,K2,K3,V> {
+
+    private final Comparator<? super K2> comparator2;
+    private final Comparator<? super K3> comparator3;
+
+    /**
+     * Creates a map ordered by the natural ordering of its keys.
+     */
+    public SortedMultiDMap3() {
+        this(null, null, null);
+    }
+
+    /**
+     * @param comparator1   Ordering of the K1 keys, or null for their natural ordering
+     * @param comparator2   Ordering of the K2 keys, or null for their natural ordering
+     * @param comparator3   Ordering of the K3 keys, or null for their natural ordering
+     */
+    public SortedMultiDMap3(Comparator<? super K1> comparator1, Comparator<? super K2> comparator2,
+                            Comparator<? super K3> comparator3) {
+        super(SortedEntries.newLevel(comparator1));
+        this.comparator2 = comparator2;
+        this.comparator3 = comparator3;
+    }
+
+    @Override
+    protected Map<Object, Object> newData(int expectedKeys) {
+        return SortedEntries.newLevelLike(data);
+    }
+
+    @Override
+    protected MultiDMap createInnerMap() {
+        return new SortedMultiDMap2<K2,K3,V>(comparator2, comparator3);
+    }
+
+    @Override
+    public SortedMultiDMap2<K2,K3,V> get(K1 k1) { return (SortedMultiDMap2<K2, K3, V>) super.get(k1); }
+
+    /**
+     * @return  Stream of all entries, in descending order
+     */
+    public Stream<Object[]> descendingEntries() {
+        return SortedEntries.range(this, new Object[0], null, null, true);
+    }
+
+    /**
+     * @param k1From    Lowest K1 key, inclusive, or null for no lower bound
+     * @param k1To      Highest K1 key, exclusive, or null for no upper bound
+     * @return          Stream of the entries in range, in ascending order
+     */
+    public Stream<Object[]> range(K1 k1From, K1 k1To) {
+        return SortedEntries.range(this, new Object[0], k1From, k1To, false);
+    }
+
+    /**
+     * @param k1        K1 key of the entries
+     * @param k2From    Lowest K2 key, inclusive, or null for no lower bound
+     * @param k2To      Highest K2 key, exclusive, or null for no upper bound
+     * @return          Stream of the entries in range, in ascending order
+     */
+    public Stream<Object[]> range(K1 k1, K2 k2From, K2 k2To) {
+        return SortedEntries.range(this, new Object[] {k1}, k2From, k2To, false);
+    }
+
+    /**
+     * @param k1        K1 key of the entries
+     * @param k2        K2 key of the entries
+     * @param k3From    Lowest K3 key, inclusive, or null for no lower bound
+     * @param k3To      Highest K3 key, exclusive, or null for no upper bound
+     * @return          Stream of the entries in range, in ascending order
+     */
+    public Stream<Object[]> range(K1 k1, K2 k2, K3 k3From, K3 k3To) {
+        return SortedEntries.range(this, new Object[] {k1, k2}, k3From, k3To, false);
+    }
+
+    /**
+     * As {@link #range(Object, Object)}, in descending order.
+     */
+    public Stream<Object[]> descendingRange(K1 k1From, K1 k1To) {
+        return SortedEntries.range(this, new Object[0], k1From, k1To, true);
+    }
+
+    /**
+     * As {@link #range(Object, Object, Object)}, in descending order.
+     */
+    public Stream<Object[]> descendingRange(K1 k1, K2 k2From, K2 k2To) {
+        return SortedEntries.range(this, new Object[] {k1}, k2From, k2To, true);
+    }
+
+    /**
+     * As {@link #range(Object, Object, Object, Object)}, in descending order.
+     */
+    public Stream<Object[]> descendingRange(K1 k1, K2 k2, K3 k3From, K3 k3To) {
+        return SortedEntries.range(this, new Object[] {k1, k2}, k3From, k3To, true);
+    }
+}
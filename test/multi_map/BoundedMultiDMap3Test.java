@@ -0,0 +1,106 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import multi_map.BoundedMultiDMap.Granularity;
+import multi_map.BoundedMultiDMap.Policy;
+
+public class BoundedMultiDMap3Test {
+
+    @Test
+    public void testLruLeaves() {
+        BoundedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new BoundedMultiDMap3<>(3, Policy.LRU, Granularity.LEAF);
+        md3.put(1, 1, 1, 111);
+        md3.put(1, 1, 2, 112);
+        md3.put(2, 1, 1, 211);
+        Assert.assertEquals(Integer.valueOf(111), md3.get(1, 1, 1));
+
+        // 1, 1, 2 is the least recently used
+        md3.put(3, 1, 1, 311);
+        Assert.assertEquals(3, md3.getSize());
+        Assert.assertNull(md3.get(1, 1, 2));
+        Assert.assertEquals(1, md3.get(1).getSize());
+
+        // Overwriting is a use, and doesn't grow the map
+        Assert.assertEquals(Integer.valueOf(211), md3.put(2, 1, 1, 2110));
+        md3.put(4, 1, 1, 411);
+        Assert.assertNull(md3.get(1, 1, 1));
+        Assert.assertNull(md3.get(1));
+        Assert.assertEquals(3, md3.getSize());
+
+        CacheStats stats = md3.stats();
+        Assert.assertEquals(2, stats.getEvictions());
+        Assert.assertEquals(2, stats.getHits());
+        Assert.assertEquals(3, stats.getMisses());
+    }
+
+    @Test
+    public void testTopLevelKeys() {
+        BoundedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new BoundedMultiDMap3<>(10, Policy.LRU, Granularity.TOP_LEVEL_KEY);
+        for (int k2 = 1; k2 <= 4; ++k2) {
+            md3.put(1, k2, 1, 100 + k2);
+            md3.put(2, k2, 1, 200 + k2);
+        }
+        Assert.assertNotNull(md3.get(1, 1));
+
+        // Key 2 is the least recently used, all its values go at once
+        md3.put(3, 1, 1, 311);
+        md3.put(3, 1, 2, 312);
+        md3.put(3, 1, 3, 313);
+        Assert.assertNull(md3.get(2));
+        Assert.assertEquals(7, md3.getSize());
+        Assert.assertEquals(7, md3.getWeight());
+        Assert.assertEquals(4, md3.stats().getEvictions());
+
+        // Removing values lightens the key, removing them all forgets it
+        Assert.assertEquals(1, md3.remove(1, 1));
+        Assert.assertEquals(6, md3.getWeight());
+        Assert.assertEquals(3, md3.remove(3));
+        Assert.assertEquals(3, md3.getWeight());
+        Assert.assertEquals(3, md3.getSize());
+    }
+
+    @Test
+    public void testWeigher() {
+        BoundedMultiDMap2<Integer, Integer, String> md2 = new BoundedMultiDMap2<>(
+                10, Policy.LRU, Granularity.LEAF, entry -> ((String) entry[2]).length());
+        md2.put(1, 1, "aaaa");
+        md2.put(1, 2, "bbbb");
+        Assert.assertEquals(8, md2.getWeight());
+        md2.put(1, 1, "a");
+        Assert.assertEquals(5, md2.getWeight());
+
+        // Overwriting 1, 1 made 1, 2 the least recently used
+        md2.put(2, 1, "cccccc");
+        Assert.assertEquals(2, md2.getSize());
+        Assert.assertNull(md2.get(1, 2));
+        Assert.assertEquals(7, md2.getWeight());
+    }
+
+    @Test
+    public void testTinyLfuKeepsFrequentEntries() {
+        BoundedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new BoundedMultiDMap3<>(100, Policy.W_TINY_LFU, Granularity.LEAF);
+        for (int i = 0; i < 100; ++i)
+            md3.put(0, 0, i, i);
+        for (int round = 0; round < 5; ++round)
+            for (int i = 0; i < 50; ++i)
+                md3.get(0, 0, i);
+
+        // A scan of entries used once doesn't flush out the frequently used ones
+        for (int i = 1000; i < 2000; ++i)
+            md3.put(1, 0, i, i);
+        Assert.assertEquals(100, md3.getSize());
+        for (int i = 0; i < 50; ++i)
+            Assert.assertEquals(Integer.valueOf(i), md3.get(0, 0, i));
+
+        // Under LRU the scan leaves none of them
+        BoundedMultiDMap3<Integer, Integer, Integer, Integer> lru = new BoundedMultiDMap3<>(100, Policy.LRU, Granularity.LEAF);
+        for (int i = 0; i < 100; ++i)
+            lru.put(0, 0, i, i);
+        for (int i = 1000; i < 2000; ++i)
+            lru.put(1, 0, i, i);
+        Assert.assertNull(lru.get(0));
+        Assert.assertEquals(900, lru.stats().getEvictions() - 100);
+    }
+}
@@ -0,0 +1,117 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class CompactMapTest {
+
+    // Few distinct hash codes, so that probing and backward shifts are exercised
+    private static final class Colliding {
+        final int id;
+
+        Colliding(int id) { this.id = id; }
+
+        @Override
+        public boolean equals(Object o) { return o instanceof Colliding && ((Colliding) o).id == id; }
+
+        @Override
+        public int hashCode() { return id % 3; }
+
+        @Override
+        public String toString() { return "C" + id; }
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20; ++round) {
+            CompactMap compact = new CompactMap();
+            Map<Object, Object> expected = new HashMap<>();
+            int keys = round % 2 == 0 ? 12 : 200;
+
+            for (int i = 0; i < 5000; ++i) {
+                int id = random.nextInt(keys);
+                Object key = id == 0 ? null : round % 4 < 2 ? (Object) id : new Colliding(id);
+                if (random.nextInt(3) == 0)
+                    Assert.assertEquals(expected.remove(key), compact.remove(key));
+                else
+                    Assert.assertEquals(expected.put(key, i), compact.put(key, i));
+
+                Assert.assertEquals(expected.size(), compact.size());
+                Assert.assertEquals(expected.containsKey(key), compact.containsKey(key));
+                Assert.assertEquals(expected.get(key), compact.get(key));
+            }
+            Assert.assertEquals(expected, compact);
+            Assert.assertEquals(compact, expected);
+            Assert.assertEquals(expected.keySet(), compact.keySet());
+            Assert.assertEquals(new HashSet<>(expected.values()), new HashSet<>(compact.values()));
+        }
+    }
+
+    @Test
+    public void testGrowAndShrink() {
+        CompactMap compact = new CompactMap();
+        long emptyBytes = compact.estimatedBytes();
+        compact.put(1, "a");
+        long oneBytes = compact.estimatedBytes();
+        Assert.assertTrue(oneBytes > emptyBytes);
+
+        for (int i = 0; i < 1000; ++i)
+            compact.put(i, i);
+        long largeBytes = compact.estimatedBytes();
+        for (int i = 0; i < 1000; ++i)
+            Assert.assertEquals(i, compact.get(i));
+
+        for (int i = 999; i > 0; --i)
+            Assert.assertEquals(i, compact.remove(i));
+        Assert.assertEquals(1, compact.size());
+        Assert.assertEquals(0, compact.get(0));
+        Assert.assertTrue(compact.estimatedBytes() < largeBytes / 100);
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        for (int count : new int[] {5, 100}) {
+            CompactMap compact = new CompactMap(count);
+            for (int i = 0; i < count; ++i)
+                compact.put(new Colliding(i), i);
+
+            Set<Object> seen = new HashSet<>();
+            Iterator<Map.Entry<Object, Object>> iterator = compact.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Object, Object> entry = iterator.next();
+                Assert.assertTrue(seen.add(entry.getKey()));
+                if ((Integer) entry.getValue() % 2 == 0)
+                    iterator.remove();
+                else
+                    entry.setValue(-1);
+            }
+            Assert.assertEquals(count, seen.size());
+            Assert.assertEquals(count / 2, compact.size());
+            compact.values().forEach(value -> Assert.assertEquals(-1, value));
+
+            compact.keySet().removeIf(key -> ((Colliding) key).id < count / 2);
+            for (Object key : compact.keySet())
+                Assert.assertTrue(((Colliding) key).id >= count / 2);
+        }
+    }
+
+    @Test
+    public void testMultiDMapLevels() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        for (int i = 0; i < 3000; ++i)
+            md3.put(i, i % 3, i % 2, i);
+        Assert.assertTrue(md3.data instanceof CompactMap);
+        Assert.assertTrue(md3.get(7).data instanceof CompactMap);
+
+        MultiDStatsSnapshot snapshot = md3.enableStats().snapshot();
+        // Held in HashMaps, each entry's two inner levels of one key would take about 400 bytes
+        Assert.assertTrue(snapshot.getEstimatedBytes() / md3.getSize() < 300);
+
+        for (int i = 0; i < 3000; ++i)
+            Assert.assertEquals(1, md3.remove(i, i % 3, i % 2));
+        Assert.assertEquals(0, md3.getSize());
+    }
+}
@@ -0,0 +1,74 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class ConcurrentMultiDMap3Test {
+
+    @Test
+    public void testGetAndRemove() {
+        ConcurrentMultiDMap3<Integer, Integer, Integer, Integer> md3 = new ConcurrentMultiDMap3<>();
+
+        md3.put(1, 1, 1, 111);
+        md3.put(1, 1, 2, 112);
+        md3.put(2, 1, 1, 211);
+        Assert.assertEquals(new Integer(111), md3.get(1, 1, 1));
+        Assert.assertEquals(new Integer(111), md3.put(1, 1, 1, 113));
+        Assert.assertEquals(3, md3.getSize());
+        Assert.assertEquals(2, md3.get(1).getSize());
+        Assert.assertEquals(3, md3.entries().count());
+
+        Assert.assertEquals(0, md3.remove(1, 3));
+        Assert.assertEquals(1, md3.remove(2));
+        Assert.assertEquals(1, md3.remove(1, 1, 1));
+        Assert.assertEquals(1, md3.getSize());
+        Assert.assertEquals(1, md3.remove(1, 1));
+        Assert.assertEquals(0, md3.getSize());
+        Assert.assertNull(md3.get(1));
+    }
+
+    @Test
+    public void testConcurrentPutRemove() throws InterruptedException {
+        // Writers put and remove in the same subtrees, so removes regularly prune submaps that
+        // other threads are putting into.  Every thread ends by putting its own keys back, so
+        // nothing may be missing once they are all done.
+        ConcurrentMultiDMap3<Integer, Integer, Integer, Integer> md3 = new ConcurrentMultiDMap3<>();
+        int threads = 8;
+        int rounds = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; ++t) {
+            int id = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < rounds; ++i) {
+                    md3.put(i % 4, id, i % 16, i);
+                    md3.remove(i % 4, id);
+                    md3.get(i % 4, id, i % 16);
+                }
+                for (int i = 0; i < 16; ++i)
+                    md3.put(i % 4, id, i, i);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+
+        Assert.assertEquals(threads * 16, md3.getSize());
+        Assert.assertEquals(threads * 16, md3.entries().count());
+        for (int t = 0; t < threads; ++t)
+            for (int i = 0; i < 16; ++i)
+                Assert.assertEquals(new Integer(i), md3.get(i % 4, t, i));
+    }
+}
@@ -0,0 +1,167 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class DictionaryMultiDMap3Test {
+
+    @Test
+    public void testDictionary() {
+        KeyDictionary<String> dictionary = new KeyDictionary<>();
+        for (int i = 0; i < 1000; ++i)
+            Assert.assertEquals(i, dictionary.encode("key" + i));
+        Assert.assertEquals(17, dictionary.encode("key17"));
+        Assert.assertEquals(1000, dictionary.encode(null));
+        Assert.assertEquals(1000, dictionary.find(null));
+        Assert.assertEquals(1001, dictionary.size());
+
+        Assert.assertEquals(-1, dictionary.find("missing"));
+        Assert.assertEquals(1001, dictionary.size());
+        Assert.assertEquals("key999", dictionary.decode(999));
+        Assert.assertNull(dictionary.decode(1000));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testUnknownId() {
+        new KeyDictionary<String>().decode(0);
+    }
+
+    @Test
+    public void testAgainstMultiDMap3() {
+        DictionaryMultiDMap3<String, String, Integer, Integer> dmd3 = new DictionaryMultiDMap3<>();
+        MultiDMap3<String, String, Integer, Integer> md3 = new MultiDMap3<>();
+        Random random = new Random(5);
+
+        for (int i = 0; i < 20000; ++i) {
+            String k1 = "a" + random.nextInt(50);
+            String k2 = "b" + random.nextInt(20);
+            Integer k3 = random.nextInt(10);
+            if (random.nextInt(4) == 0) {
+                Assert.assertEquals(md3.remove(k1, k2, k3), dmd3.remove(k1, k2, k3));
+            } else {
+                Assert.assertEquals(md3.get(k1, k2, k3), dmd3.put(k1, k2, k3, i));
+                md3.put(k1, k2, k3, i);
+            }
+        }
+        Assert.assertEquals(md3.getSize(), dmd3.getSize());
+        Assert.assertEquals(md3, dmd3.toMultiDMap());
+
+        // Every distinct key is held once per dimension, whatever the number of parents
+        Assert.assertEquals(50, dmd3.getDictionary(0).size());
+        Assert.assertEquals(20, dmd3.getDictionary(1).size());
+        Assert.assertEquals(10, dmd3.getDictionary(2).size());
+
+        List<List<Object>> expected = md3.entries().map(this::asList).sorted(this::compare).collect(Collectors.toList());
+        List<List<Object>> actual = dmd3.entries().map(this::asList).sorted(this::compare).collect(Collectors.toList());
+        Assert.assertEquals(expected, actual);
+
+        int size = dmd3.getSize();
+        Assert.assertEquals(md3.remove("a1", "b1"), dmd3.remove("a1", "b1"));
+        Assert.assertEquals(md3.remove("a2"), dmd3.remove("a2"));
+        Assert.assertTrue(dmd3.getSize() < size);
+        Assert.assertEquals(md3, dmd3.toMultiDMap());
+    }
+
+    @Test
+    public void testUnknownKeysAreNotInterned() {
+        DictionaryMultiDMap3<String, String, String, Integer> dmd3 = new DictionaryMultiDMap3<>();
+        dmd3.put("a", "b", "c", 1);
+
+        Assert.assertNull(dmd3.get("a", "x", "c"));
+        Assert.assertFalse(dmd3.containsKey("x", "b", "c"));
+        Assert.assertEquals(0, dmd3.remove("a", "b", "x"));
+        Assert.assertEquals(0, dmd3.remove("x"));
+        Assert.assertEquals(1, dmd3.getDictionary(0).size());
+        Assert.assertEquals(1, dmd3.getDictionary(1).size());
+        Assert.assertEquals(1, dmd3.getDictionary(2).size());
+    }
+
+    @Test
+    public void testSharedDictionaries() {
+        KeyDictionary<String> shared = new KeyDictionary<>();
+        DictionaryMultiDMap2<String, String, Integer> first = new DictionaryMultiDMap2<>(shared, shared);
+        DictionaryMultiDMap2<String, String, Integer> second = new DictionaryMultiDMap2<>(shared, new KeyDictionary<>());
+        first.put("x", "y", 1);
+        second.put("y", "x", 2);
+        first.put(null, "x", 3);
+
+        Assert.assertEquals(3, shared.size());
+        Assert.assertEquals(Integer.valueOf(2), second.get("y", "x"));
+        Assert.assertEquals(Integer.valueOf(3), first.get(null, "x"));
+
+        List<Object> visited = new ArrayList<>();
+        Assert.assertFalse(first.forEach((keys, value) -> {
+            visited.add(value);
+            return false;
+        }));
+        Assert.assertEquals(1, visited.size());
+
+        // Skipping a subtree, keys decoded as each level is entered
+        first.put("x", "z", 4);
+        List<String> calls = new ArrayList<>();
+        Assert.assertTrue(first.forEach(new EntryVisitor() {
+            @Override
+            public Action enterSubtree(Object[] keys, int level) {
+                calls.add("enter " + keys[0]);
+                return "x".equals(keys[0]) ? Action.SKIP : Action.CONTINUE;
+            }
+
+            @Override
+            public boolean visit(Object[] keys, Object value) {
+                calls.add("visit " + keys[0] + " " + keys[1] + " " + value);
+                return true;
+            }
+        }));
+        calls.sort(null);
+        Assert.assertEquals(Arrays.asList("enter null", "enter x", "visit null x 3"), calls);
+
+        // Nothing is called once the traversal is stopped, at any level
+        DictionaryMultiDMap3<String, String, String, Integer> dmd3 = new DictionaryMultiDMap3<>(shared, shared, shared);
+        for (int i = 0; i < 1000; ++i)
+            dmd3.put("a" + i % 10, "b" + i % 7, "c" + i, i);
+        for (int stopLevel = 0; stopLevel < 3; ++stopLevel) {
+            int[] stops = {0};
+            int[] callsAfterStop = {0};
+            int level = stopLevel;
+            Assert.assertFalse(dmd3.forEach(new EntryVisitor() {
+                @Override
+                public Action enterSubtree(Object[] keys, int at) {
+                    if (stops[0] > 0)
+                        ++callsAfterStop[0];
+                    if (at != level)
+                        return Action.CONTINUE;
+                    ++stops[0];
+                    return Action.STOP;
+                }
+
+                @Override
+                public boolean visit(Object[] keys, Object value) {
+                    if (stops[0] > 0)
+                        ++callsAfterStop[0];
+                    Assert.assertEquals(dmd3.get((String) keys[0], (String) keys[1], (String) keys[2]), value);
+                    ++stops[0];
+                    return false;
+                }
+            }));
+            Assert.assertEquals(1, stops[0]);
+            Assert.assertEquals(0, callsAfterStop[0]);
+        }
+    }
+
+    private List<Object> asList(Object[] entry) {
+        List<Object> list = new ArrayList<>();
+        for (Object o : entry)
+            list.add(o);
+        return list;
+    }
+
+    private int compare(List<Object> a, List<Object> b) {
+        return a.toString().compareTo(b.toString());
+    }
+}
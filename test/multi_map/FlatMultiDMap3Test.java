@@ -0,0 +1,94 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class FlatMultiDMap3Test {
+
+    @Test
+    public void testGet() {
+        FlatMultiDMap3<Integer, Integer, Integer, Integer> md3 = new FlatMultiDMap3<>();
+
+        md3.put(1, 1, 1, 111);
+        md3.put(1, 2, 1, 121);
+        Assert.assertEquals(new Integer(111), md3.get(1, 1, 1));
+        Assert.assertEquals(new Integer(121), md3.get(1, 2, 1));
+        Assert.assertNull(md3.get(1, 1, 2));
+        Assert.assertEquals(2, md3.getSize());
+
+        // Prefix gets return copies of the subtree
+        MultiDMap2<Integer, Integer, Integer> submap = md3.get(1);
+        Assert.assertEquals(2, submap.getSize());
+        Assert.assertEquals(new Integer(121), submap.get(2, 1));
+        Assert.assertEquals(1, md3.get(1, 2).getSize());
+        Assert.assertNull(md3.get(2));
+
+        // Overwriting does not change the size
+        md3.put(1, 1, 1, 112);
+        Assert.assertEquals(new Integer(112), md3.get(1, 1, 1));
+        Assert.assertEquals(2, md3.getSize());
+    }
+
+    @Test
+    public void testRemove() {
+        FlatMultiDMap3<Integer, Integer, Integer, Integer> md3 = new FlatMultiDMap3<>();
+
+        md3.put(1, 1, 1, 111);
+        md3.put(1, 1, 2, 112);
+        md3.put(2, 1, 1, 211);
+
+        Assert.assertEquals(0, md3.remove(1, 3));
+        Assert.assertEquals(3, md3.getSize());
+
+        Assert.assertEquals(1, md3.remove(2));
+        Assert.assertEquals(2, md3.getSize());
+        Assert.assertNull(md3.get(2, 1, 1));
+
+        Assert.assertEquals(1, md3.remove(1, 1, 1));
+        Assert.assertEquals(1, md3.getSize());
+        Assert.assertEquals(new Integer(112), md3.get(1, 1, 2));
+
+        Assert.assertEquals(1, md3.remove(1, 1));
+        Assert.assertEquals(0, md3.getSize());
+        Assert.assertNull(md3.get(1));
+    }
+
+    @Test
+    public void testManyEntries() {
+        // Enough entries to force several resizes and backward shifts on removal
+        FlatMultiDMap3<Integer, Integer, Integer, Integer> md3 = new FlatMultiDMap3<>();
+        MultiDMap3<Integer, Integer, Integer, Integer> expected = new MultiDMap3<>();
+        MultiDFiller.completeFill(expected, 9);
+        expected.entries().forEach(e -> md3.put((Integer) e[0], (Integer) e[1], (Integer) e[2], (Integer) e[3]));
+
+        Assert.assertEquals(expected.getSize(), md3.getSize());
+        Assert.assertEquals(new Integer(987), md3.get(9, 8, 7));
+
+        for (int k1 = 1; k1 <= 9; k1 += 2)
+            Assert.assertEquals(81, md3.remove(k1));
+        Assert.assertEquals(4 * 81, md3.getSize());
+
+        List<Object[]> entries = md3.entries().collect(Collectors.toList());
+        Assert.assertEquals(4 * 81, entries.size());
+        for (Object[] entry : entries) {
+            Assert.assertEquals(0, (Integer) entry[0] % 2);
+            Assert.assertEquals(entry[3], md3.get((Integer) entry[0], (Integer) entry[1], (Integer) entry[2]));
+        }
+    }
+
+    @Test
+    public void testSubmapOfManyDimensions() {
+        FlatMultiDMap md4 = new FlatMultiDMap(4) {};
+        md4.put(1, 2, 3, 4, "a");
+        md4.put(1, 5, 6, 7, "b");
+        md4.put(2, 2, 3, 4, "c");
+
+        MultiDMap submap = (MultiDMap) md4.get(1);
+        Assert.assertEquals(3, submap.getDimensions());
+        Assert.assertEquals(2, submap.getSize());
+        Assert.assertEquals("b", submap.get(5, 6, 7));
+    }
+}
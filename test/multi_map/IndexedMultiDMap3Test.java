@@ -0,0 +1,71 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class IndexedMultiDMap3Test {
+
+    private static Set<List<Object>> slice(IndexedMultiDMap3<?, ?, ?, ?> md3, int level, Object key) {
+        return md3.sliceBy(level, key).map(Arrays::asList).collect(Collectors.toSet());
+    }
+
+    private static Set<List<Object>> scan(MultiDMap md3, int level, Object key) {
+        return md3.entries().filter(e -> e[level].equals(key)).map(Arrays::asList).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testSlices() {
+        IndexedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new IndexedMultiDMap3<>(1, 2);
+        MultiDFiller.completeFill(md3, 4);
+        Assert.assertTrue(md3.isIndexed(1));
+
+        for (int level = 0; level < 3; ++level) {
+            for (int key = 1; key <= 4; ++key) {
+                Set<List<Object>> expected = scan(md3, level, key);
+                Assert.assertEquals(16, expected.size());
+                Assert.assertEquals(expected, slice(md3, level, key));
+            }
+        }
+        Assert.assertEquals(0, md3.sliceBy(1, 5).count());
+    }
+
+    @Test
+    public void testIndexesFollowRemovals() {
+        IndexedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new IndexedMultiDMap3<>(1, 2);
+        MultiDFiller.completeFill(md3, 3);
+
+        Assert.assertEquals(1, md3.remove(1, 2, 3));
+        Assert.assertEquals(3, md3.remove(2, 2));
+        Assert.assertEquals(9, md3.remove(3));
+        Assert.assertEquals(0, md3.remove(3));
+
+        for (int level = 1; level < 3; ++level)
+            for (int key = 1; key <= 3; ++key)
+                Assert.assertEquals(scan(md3, level, key), slice(md3, level, key));
+
+        // K2 == 2 is left only below K1 == 1, with K3 of 1 and 2
+        Assert.assertEquals(2, md3.sliceBy(1, 2).count());
+
+        Assert.assertEquals(8, md3.remove(1));
+        Assert.assertEquals(6, md3.remove(2));
+        Assert.assertEquals(0, md3.getSize());
+        Assert.assertEquals(0, md3.sliceBy(1, 1).count());
+        Assert.assertEquals(0, md3.sliceBy(2, 1).count());
+
+        md3.put(5, 6, 7, 567);
+        Assert.assertEquals(Arrays.asList(5, 6, 7, 567), Arrays.asList(md3.sliceBy(2, 7).findFirst().get()));
+    }
+
+    @Test
+    public void testUnindexedLevel() {
+        IndexedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new IndexedMultiDMap3<>(1);
+        MultiDFiller.completeFill(md3, 3);
+        Assert.assertFalse(md3.isIndexed(2));
+        Assert.assertEquals(scan(md3, 2, 3), slice(md3, 2, 3));
+    }
+}
@@ -0,0 +1,47 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntIntDoubleMapTest {
+
+    @Test
+    public void testPutGet() {
+        IntIntDoubleMap map = new IntIntDoubleMap();
+
+        map.put(1, 2, 1.5);
+        map.put(1, 0, -2.0);
+        map.put(3, 4, 0.0);
+        Assert.assertEquals(1.5, map.getOrDefault(1, 2, Double.NaN), 0.0);
+        Assert.assertEquals(-2.0, map.getOrDefault(1, 0, Double.NaN), 0.0);
+        Assert.assertTrue(Double.isNaN(map.getOrDefault(1, 3, Double.NaN)));
+        Assert.assertTrue(map.containsKey(3, 4));
+        Assert.assertEquals(3, map.getSize());
+
+        map.put(1, 2, 2.5);
+        Assert.assertEquals(3, map.getSize());
+        Assert.assertEquals(2.5, map.getOrDefault(1, 2, Double.NaN), 0.0);
+
+        double[] total = {0};
+        map.forEach((k1, k2, v) -> total[0] += v);
+        Assert.assertEquals(0.5, total[0], 0.0);
+    }
+
+    @Test
+    public void testRemove() {
+        IntIntDoubleMap map = new IntIntDoubleMap();
+
+        map.put(1, 1, 11);
+        map.put(1, 2, 12);
+        map.put(2, 1, 21);
+
+        Assert.assertEquals(0, map.remove(1, 3));
+        Assert.assertEquals(1, map.remove(1, 1));
+        Assert.assertEquals(2, map.getSize());
+        Assert.assertEquals(1, map.remove(1));
+        Assert.assertNull(map.get(1));
+        Assert.assertEquals(1, map.remove(2, 1));
+        Assert.assertEquals(0, map.getSize());
+        Assert.assertNull(map.get(2));
+    }
+}
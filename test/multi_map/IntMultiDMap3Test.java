@@ -0,0 +1,87 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntMultiDMap3Test {
+
+    @Test
+    public void testGet() {
+        IntMultiDMap3<Integer> md3 = new IntMultiDMap3<>();
+
+        md3.put(1, 1, 1, 111);
+        md3.put(0, 0, 0, 0);
+        Assert.assertEquals(new Integer(111), md3.get(1, 1, 1));
+        Assert.assertEquals(new Integer(0), md3.get(0, 0, 0));
+        Assert.assertNull(md3.get(1, 1, 0));
+        Assert.assertTrue(md3.containsKey(0, 0, 0));
+        Assert.assertEquals(2, md3.getSize());
+
+        // Overwriting does not change the size
+        Assert.assertEquals(new Integer(111), md3.put(1, 1, 1, 112));
+        Assert.assertEquals(2, md3.getSize());
+        Assert.assertEquals(1, md3.get(1).getSize());
+        Assert.assertEquals(new Integer(112), md3.get(1, 1).get(1));
+    }
+
+    @Test
+    public void testRemove() {
+        IntMultiDMap3<Integer> md3 = new IntMultiDMap3<>();
+
+        md3.put(1, 1, 1, 111);
+        md3.put(1, 1, 2, 112);
+        md3.put(2, 1, 1, 211);
+
+        Assert.assertEquals(0, md3.remove(1, 3));
+        Assert.assertEquals(3, md3.getSize());
+
+        Assert.assertEquals(1, md3.remove(2));
+        Assert.assertEquals(2, md3.getSize());
+
+        Assert.assertEquals(1, md3.remove(1, 1, 1));
+        Assert.assertEquals(1, md3.getSize());
+        Assert.assertEquals(1, md3.get(1).getSize());
+
+        Assert.assertEquals(1, md3.remove(1, 1));
+        Assert.assertEquals(0, md3.getSize());
+        Assert.assertNull(md3.get(1));
+    }
+
+    @Test
+    public void testManyKeys() {
+        // Enough keys to force resizes and backward shifts on removal, including negative keys
+        IntMultiDMap1<Integer> md1 = new IntMultiDMap1<>();
+        for (int k = -5000; k < 5000; ++k)
+            md1.put(k * 7, k);
+        Assert.assertEquals(10000, md1.getSize());
+
+        for (int k = -5000; k < 5000; k += 2)
+            Assert.assertEquals(1, md1.remove(k * 7));
+        Assert.assertEquals(5000, md1.getSize());
+
+        for (int k = -5000; k < 5000; ++k)
+            Assert.assertEquals(k % 2 == 0 ? null : new Integer(k), md1.get(k * 7));
+
+        int[] count = {0};
+        md1.forEach((k, v) -> {
+            Assert.assertEquals(k, v * 7);
+            ++count[0];
+        });
+        Assert.assertEquals(5000, count[0]);
+    }
+
+    @Test
+    public void testLongKeys() {
+        LongMultiDMap3<String> md3 = new LongMultiDMap3<>();
+
+        md3.put(1L << 40, 2L, 3L, "a");
+        md3.put(1L << 40, 2L, 4L, "b");
+        Assert.assertEquals("a", md3.get(1L << 40, 2L, 3L));
+        Assert.assertNull(md3.get(1L, 2L, 3L));
+        Assert.assertEquals(2, md3.getSize());
+        Assert.assertEquals(2, md3.entries().count());
+
+        Assert.assertEquals(2, md3.remove(1L << 40));
+        Assert.assertEquals(0, md3.getSize());
+    }
+}
@@ -0,0 +1,148 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class LongMultiDMap3Test {
+
+    @Test
+    public void testGet() {
+        LongMultiDMap3<Integer> md3 = new LongMultiDMap3<>();
+
+        md3.put(1, 1, 1, 111);
+        md3.put(0, 0, 0, 0);
+        Assert.assertEquals(new Integer(111), md3.get(1, 1, 1));
+        Assert.assertEquals(new Integer(0), md3.get(0, 0, 0));
+        Assert.assertNull(md3.get(1, 1, 0));
+        Assert.assertTrue(md3.containsKey(0, 0, 0));
+        Assert.assertEquals(2, md3.getSize());
+
+        // Overwriting does not change the size
+        Assert.assertEquals(new Integer(111), md3.put(1, 1, 1, 112));
+        Assert.assertEquals(2, md3.getSize());
+        Assert.assertEquals(1, md3.get(1).getSize());
+        Assert.assertEquals(new Integer(112), md3.get(1, 1).get(1));
+    }
+
+    @Test
+    public void testRemove() {
+        LongMultiDMap3<Integer> md3 = new LongMultiDMap3<>();
+
+        md3.put(1, 1, 1, 111);
+        md3.put(1, 1, 2, 112);
+        md3.put(2, 1, 1, 211);
+
+        Assert.assertEquals(0, md3.remove(1, 3));
+        Assert.assertEquals(3, md3.getSize());
+
+        Assert.assertEquals(1, md3.remove(2));
+        Assert.assertEquals(2, md3.getSize());
+
+        Assert.assertEquals(1, md3.remove(1, 1, 1));
+        Assert.assertEquals(1, md3.getSize());
+        Assert.assertEquals(1, md3.get(1).getSize());
+
+        Assert.assertEquals(1, md3.remove(1, 1));
+        Assert.assertEquals(0, md3.getSize());
+        Assert.assertNull(md3.get(1));
+    }
+
+    @Test
+    public void testManyKeys() {
+        // Enough keys to force resizes and backward shifts on removal, including negative keys
+        // and keys above 2^32
+        LongMultiDMap1<Integer> md1 = new LongMultiDMap1<>();
+        for (int k = -5000; k < 5000; ++k)
+            md1.put(k * 0x100000007L, k);
+        Assert.assertEquals(10000, md1.getSize());
+
+        for (int k = -5000; k < 5000; k += 2)
+            Assert.assertEquals(1, md1.remove(k * 0x100000007L));
+        Assert.assertEquals(5000, md1.getSize());
+
+        for (int k = -5000; k < 5000; ++k)
+            Assert.assertEquals(k % 2 == 0 ? null : new Integer(k), md1.get(k * 0x100000007L));
+
+        int[] count = {0};
+        md1.forEach((k, v) -> {
+            Assert.assertEquals(k, v * 0x100000007L);
+            ++count[0];
+        });
+        Assert.assertEquals(5000, count[0]);
+    }
+
+    @Test
+    public void testKeysCollidingInLowBits() {
+        // Keys differing only above bit 32, which must neither be confused nor all land on one slot
+        LongMultiDMap1<Integer> md1 = new LongMultiDMap1<>();
+        for (int high = 0; high < 1000; ++high) {
+            Assert.assertNull(md1.put(((long) high << 32) | 5, high));
+            Assert.assertNull(md1.put((long) high << 32, -high));
+        }
+        Assert.assertEquals(2000, md1.getSize());
+        Assert.assertEquals(new Integer(0), md1.get(0));
+        Assert.assertNull(md1.get(1L << 50));
+        for (int high = 0; high < 1000; ++high) {
+            Assert.assertEquals(new Integer(high), md1.get(((long) high << 32) | 5));
+            Assert.assertEquals(new Integer(-high), md1.get((long) high << 32));
+        }
+
+        for (int high = 0; high < 1000; high += 3)
+            Assert.assertEquals(1, md1.remove(((long) high << 32) | 5));
+        for (int high = 0; high < 1000; ++high)
+            Assert.assertEquals(high % 3 == 0 ? null : new Integer(high), md1.get(((long) high << 32) | 5));
+
+        Assert.assertNotEquals(PrimitiveHashing.mix(1L << 32), PrimitiveHashing.mix(2L << 32));
+        Assert.assertNotEquals(PrimitiveHashing.mix(5L), PrimitiveHashing.mix((1L << 32) | 5));
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        LongMultiDMap3<Integer> md3 = new LongMultiDMap3<>();
+        Map<List<Long>, Integer> expected = new HashMap<>();
+        Random random = new Random(3);
+        long[] spread = {0, 1, -1, 1L << 32, (1L << 32) + 1, Long.MIN_VALUE, Long.MAX_VALUE, 7L << 40};
+
+        for (int i = 0; i < 50000; ++i) {
+            long k1 = spread[random.nextInt(spread.length)];
+            long k2 = (long) random.nextInt(30) << 32 | random.nextInt(3);
+            long k3 = random.nextInt(4) == 0 ? spread[random.nextInt(spread.length)] : random.nextLong() % 200;
+            List<Long> keys = Arrays.asList(k1, k2, k3);
+            switch (random.nextInt(4)) {
+                case 0:
+                    Assert.assertEquals(expected.remove(keys) == null ? 0 : 1, md3.remove(k1, k2, k3));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.get(keys), md3.get(k1, k2, k3));
+                    Assert.assertEquals(expected.containsKey(keys), md3.containsKey(k1, k2, k3));
+                    break;
+                default:
+                    Assert.assertEquals(expected.put(keys, i), md3.put(k1, k2, k3, i));
+            }
+        }
+        Assert.assertEquals(expected.size(), md3.getSize());
+
+        Map<List<Long>, Integer> visited = new HashMap<>();
+        md3.forEach((k1, k2, k3, v) -> Assert.assertNull(visited.put(Arrays.asList(k1, k2, k3), v)));
+        Assert.assertEquals(expected, visited);
+
+        // entries() boxes the keys as Long
+        Map<List<Object>, Object> boxed = new HashMap<>();
+        md3.entries().forEach(entry -> boxed.put(Arrays.asList(entry[0], entry[1], entry[2]), entry[3]));
+        Assert.assertEquals(expected, boxed);
+
+        int size = md3.getSize();
+        int removed = md3.remove(1L << 32);
+        expected.keySet().removeIf(keys -> keys.get(0) == 1L << 32);
+        Assert.assertTrue(removed > 0);
+        Assert.assertEquals(size - removed, md3.getSize());
+        Assert.assertEquals(expected.size(), md3.getSize());
+        Assert.assertNull(md3.get(1L << 32));
+    }
+}
@@ -0,0 +1,179 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class MultiDBatchTest {
+
+    @Test
+    public void testAgainstOneByOne() {
+        Random random = new Random(11);
+        MultiDMap3<Integer, Integer, Integer, Integer> batched = new MultiDMap3<>();
+        MultiDMap3<Integer, Integer, Integer, Integer> expected = new MultiDMap3<>();
+
+        for (int round = 0; round < 50; ++round) {
+            MultiDMap.Batch batch = batched.batch();
+            for (int i = 0; i < 500; ++i) {
+                int k1 = random.nextInt(5);
+                int k2 = random.nextInt(6);
+                int k3 = random.nextInt(8);
+                switch (random.nextInt(10)) {
+                    case 0:
+                        batch.remove(k1);
+                        expected.remove(k1);
+                        break;
+                    case 1:
+                        batch.remove(k1, k2);
+                        expected.remove(k1, k2);
+                        break;
+                    case 2:
+                    case 3:
+                        batch.remove(k1, k2, k3);
+                        expected.remove(k1, k2, k3);
+                        break;
+                    default:
+                        batch.put(k1, k2, k3, i);
+                        expected.put(k1, k2, k3, i);
+                }
+            }
+            Assert.assertEquals(500, batch.size());
+            batch.apply();
+            Assert.assertEquals(0, batch.size());
+
+            Assert.assertEquals(expected.getSize(), batched.getSize());
+            Assert.assertEquals(expected, batched);
+            Assert.assertEquals(expected.hashCode(), batched.hashCode());
+        }
+    }
+
+    @Test
+    public void testPruning() {
+        MultiDMap3<String, String, String, Integer> md3 = new MultiDMap3<>();
+        md3.put("a", "b", "c", 1);
+        md3.put("a", "x", "y", 2);
+        MultiDStats stats = md3.enableStats();
+
+        md3.batch()
+                .put("a", "b", "d", 3)
+                .remove("a", "b", "c")
+                .remove("a", "b", "d")
+                .put("n", "e", "w", 4)      // created and left empty, so never added
+                .remove("n", "e", "w")
+                .apply();
+
+        Assert.assertEquals(1, md3.getSize());
+        Assert.assertNull(md3.get("a", "b"));
+        Assert.assertNull(md3.get("n"));
+        Assert.assertEquals(1, md3.get("a").getSize());
+        Assert.assertEquals(0, stats.getInnerMapsCreated());
+        Assert.assertEquals(1, stats.getInnerMapsPruned());
+        Assert.assertEquals(2, stats.getPuts());
+        Assert.assertEquals(3, stats.getRemoves());
+
+        // A prefix remove followed by puts below it
+        md3.batch().put("a", "x", "z", 5).remove("a").put("a", "q", "r", 6).apply();
+        Assert.assertEquals(1, md3.getSize());
+        Assert.assertEquals(Integer.valueOf(6), md3.get("a", "q", "r"));
+    }
+
+    @Test
+    public void testMultiDMap1AndN() {
+        MultiDMap1<Integer, String> md1 = new MultiDMap1<>();
+        md1.batch().put(1, "a").put(2, "b").remove(1).put(3, "c").apply();
+        Assert.assertEquals(2, md1.getSize());
+        Assert.assertNull(md1.get(1));
+
+        MultiDMapN<Integer> mdn = new MultiDMapN<>(4);
+        MultiDMapN<Integer> expected = new MultiDMapN<>(4);
+        MultiDMap.Batch batch = mdn.batch();
+        for (int i = 0; i < 200; ++i) {
+            batch.put(i % 2, i % 3, i % 5, i, i);
+            expected.put(i % 2, i % 3, i % 5, i, i);
+        }
+        batch.remove(0, 1, 2);
+        expected.remove(0, 1, 2);
+        batch.apply();
+        Assert.assertEquals(expected, mdn);
+    }
+
+    @Test
+    public void testIndexedAndListener() {
+        IndexedMultiDMap3<Integer, Integer, Integer, Integer> indexed = new IndexedMultiDMap3<>(1, 2);
+        List<String> changes = new ArrayList<>();
+        indexed.setMutationListener(new MultiDMutationListener() {
+            @Override
+            public void put(Object[] keys, Object value) { changes.add("put " + value); }
+
+            @Override
+            public void remove(Object[] keys, int length) { changes.add("remove " + length); }
+        });
+
+        indexed.batch().put(1, 2, 3, 4).put(5, 2, 6, 7).remove(1).apply();
+        Assert.assertEquals(1, indexed.getSize());
+        Assert.assertEquals(1, indexed.sliceBy(1, 2).count());
+        Assert.assertEquals(0, indexed.sliceBy(2, 3).count());
+        Assert.assertEquals("[put 4, put 7, remove 1]", changes.toString());
+
+        changes.clear();
+        MultiDMap2<Integer, Integer, Integer> md2 = new MultiDMap2<>();
+        md2.setMutationListener(indexed.getMutationListener());
+        md2.batch().put(1, 2, 3).remove(1, 2).apply();
+        Assert.assertEquals("[put 3, remove 2]", changes.toString());
+    }
+
+    @Test
+    public void testListenerReplay() {
+        Random random = new Random(5);
+        MultiDMap3<Integer, Integer, Integer, Integer> batched = new MultiDMap3<>();
+        MultiDMap3<Integer, Integer, Integer, Integer> replayed = new MultiDMap3<>();
+        int[] removes = {0};
+        batched.setMutationListener(new MultiDMutationListener() {
+            @Override
+            public void put(Object[] keys, Object value) { replayed.put(keys[0], keys[1], keys[2], value); }
+
+            @Override
+            public void remove(Object[] keys, int length) {
+                ++removes[0];
+                Assert.assertTrue(replayed.remove(Arrays.copyOf(keys, length)) > 0);
+            }
+        });
+
+        for (int round = 0; round < 50; ++round) {
+            MultiDMap.Batch batch = batched.batch();
+            for (int i = 0; i < 200; ++i) {
+                int k1 = random.nextInt(4);
+                switch (random.nextInt(6)) {
+                    case 0:
+                        batch.remove(k1);
+                        break;
+                    case 1:
+                        batch.remove(k1, random.nextInt(4));
+                        break;
+                    case 2:
+                        batch.remove(k1, random.nextInt(4), random.nextInt(6));
+                        break;
+                    default:
+                        batch.put(k1, random.nextInt(4), random.nextInt(6), i);
+                }
+            }
+            batch.apply();
+            Assert.assertEquals(batched, replayed);
+        }
+        Assert.assertTrue(removes[0] > 0);
+
+        // Removes of absent keys aren't reported
+        removes[0] = 0;
+        batched.batch().remove(9).remove(0, 9).remove(0, 0, 9).apply();
+        Assert.assertEquals(0, removes[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testArguments() {
+        new MultiDMap2<Integer, Integer, Integer>().batch().put(1, 2);
+    }
+}
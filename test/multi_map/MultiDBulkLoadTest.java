@@ -0,0 +1,123 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MultiDBulkLoadTest {
+
+    private static Set<String> contents(MultiDMap map) {
+        return map.entries().map(Arrays::toString).collect(Collectors.toSet());
+    }
+
+    private static List<Object[]> sortedEntries(MultiDMap map) {
+        Comparator<Object[]> byKeys = Comparator.comparing(e -> (Integer) e[0]);
+        for (int i = 1; i < map.getDimensions(); ++i) {
+            int level = i;
+            byKeys = byKeys.thenComparing(e -> (Integer) e[level]);
+        }
+        return map.entries().sorted(byKeys).collect(Collectors.toList());
+    }
+
+    private static Object[][] columns(List<Object[]> entries, int dimensions) {
+        Object[][] columns = new Object[dimensions + 1][entries.size()];
+        for (int row = 0; row < entries.size(); ++row)
+            for (int i = 0; i <= dimensions; ++i)
+                columns[i][row] = entries.get(row)[i];
+        return columns;
+    }
+
+    @Test
+    public void testColumns() {
+        MultiDMap3<Integer, Integer, Integer, Integer> expected = new MultiDMap3<>();
+        MultiDFiller.completeFill(expected, 6);
+        Object[][] columns = columns(sortedEntries(expected), 3);
+
+        for (boolean parallel : new boolean[] {false, true}) {
+            MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+            md3.put(9, 9, 9, 999);
+            md3.bulkLoad(columns, parallel);
+            Assert.assertEquals(expected.getSize(), md3.getSize());
+            Assert.assertEquals(36, md3.get(2).getSize());
+            Assert.assertNull(md3.get(9, 9, 9));
+            Assert.assertEquals(contents(expected), contents(md3));
+
+            // The loaded map behaves like any other
+            Assert.assertEquals(6, md3.remove(1, 1));
+            md3.put(1, 1, 1, 0);
+            Assert.assertEquals(expected.getSize() - 5, md3.getSize());
+        }
+    }
+
+    @Test
+    public void testIterator() {
+        MultiDMap2<Integer, Integer, Integer> expected = new MultiDMap2<>();
+        MultiDFiller.completeFill(expected, 7);
+
+        for (boolean parallel : new boolean[] {false, true}) {
+            SortedMultiDMap2<Integer, Integer, Integer> md2 = new SortedMultiDMap2<>();
+            md2.bulkLoad(sortedEntries(expected).stream(), parallel);
+            Assert.assertEquals(expected.getSize(), md2.getSize());
+            Assert.assertEquals(contents(expected), contents(md2));
+            Assert.assertArrayEquals(new Object[] {7, 7, 77}, md2.descendingEntries().findFirst().get());
+        }
+
+        MultiDMap1<Integer, Integer> md1 = new MultiDMap1<>();
+        md1.bulkLoad(Arrays.asList(new Object[] {1, 10}, new Object[] {2, 20}, new Object[] {1, 11}).iterator(), false);
+        Assert.assertEquals(2, md1.getSize());
+        Assert.assertEquals(Integer.valueOf(11), md1.get(1));
+    }
+
+    @Test
+    public void testGroupedNotSorted() {
+        // Groups may come in any order, and duplicated full keys keep the last value
+        List<Object[]> entries = Arrays.asList(
+                new Object[] {2, 1, 21}, new Object[] {2, 3, 23}, new Object[] {2, 3, 24},
+                new Object[] {1, 5, 15});
+        MultiDMap2<Integer, Integer, Integer> md2 = new MultiDMap2<>();
+        md2.bulkLoad(entries.iterator(), false);
+        Assert.assertEquals(3, md2.getSize());
+        Assert.assertEquals(Integer.valueOf(24), md2.get(2, 3));
+    }
+
+    @Test
+    public void testNotGrouped() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        md3.put(9, 9, 9, 999);
+
+        List<Object[]> topLevel = Arrays.asList(
+                new Object[] {1, 1, 1, 111}, new Object[] {2, 1, 1, 211}, new Object[] {1, 2, 1, 121});
+        List<Object[]> innerLevel = Arrays.asList(
+                new Object[] {1, 1, 1, 111}, new Object[] {1, 2, 1, 121}, new Object[] {1, 1, 2, 112});
+
+        for (List<Object[]> entries : Arrays.asList(topLevel, innerLevel)) {
+            for (boolean parallel : new boolean[] {false, true}) {
+                try {
+                    md3.bulkLoad(entries.iterator(), parallel);
+                    Assert.fail();
+                } catch (IllegalArgumentException e) {
+                    // The instance is left unchanged
+                    Assert.assertEquals(1, md3.getSize());
+                    Assert.assertEquals(Integer.valueOf(999), md3.get(9, 9, 9));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testIndexed() {
+        MultiDMap3<Integer, Integer, Integer, Integer> expected = new MultiDMap3<>();
+        MultiDFiller.completeFill(expected, 4);
+
+        IndexedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new IndexedMultiDMap3<>(1, 2);
+        md3.put(5, 5, 5, 555);
+        md3.bulkLoad(sortedEntries(expected).iterator(), false);
+        Assert.assertEquals(0, md3.sliceBy(1, 5).count());
+        Assert.assertEquals(16, md3.sliceBy(2, 3).count());
+    }
+}
@@ -0,0 +1,95 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MultiDColumnExportTest {
+
+    private static MultiDMap3<Integer, String, Long, Double> filled() {
+        MultiDMap3<Integer, String, Long, Double> md3 = new MultiDMap3<>();
+        for (int i = 0; i < 1000; ++i)
+            md3.put(i % 7, "k" + i % 11, (long) i, i / 2.0);
+        return md3;
+    }
+
+    private static Set<List<Object>> rows(MultiDMap map) {
+        return map.entries().map(Arrays::asList).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testSingleBatch() {
+        MultiDMap3<Integer, String, Long, Double> md3 = filled();
+        MultiDColumnExport export = new MultiDColumnExport(
+                new MultiDCodec<?>[] {MultiDCodecs.INT, MultiDCodecs.STRING, MultiDCodecs.LONG}, MultiDCodecs.DOUBLE, 64);
+
+        ColumnBatch batch = export.export(md3);
+        Assert.assertEquals(1000, batch.size());
+        Assert.assertEquals(4, batch.getColumnCount());
+        Assert.assertEquals(3, batch.getValueColumn());
+        Assert.assertEquals(int.class, batch.getColumnType(0));
+        Assert.assertEquals(Object.class, batch.getColumnType(1));
+
+        int[] k1 = batch.getIntColumn(0);
+        Object[] k2 = batch.getObjectColumn(1);
+        long[] k3 = batch.getLongColumn(2);
+        double[] values = batch.getDoubleColumn(3);
+        Set<List<Object>> exported = new HashSet<>();
+        for (int row = 0; row < batch.size(); ++row)
+            exported.add(Arrays.asList(k1[row], k2[row], k3[row], values[row]));
+        Assert.assertEquals(rows(md3), exported);
+    }
+
+    @Test
+    public void testStreamedBatches() {
+        MultiDMap3<Integer, String, Long, Double> md3 = filled();
+        // Null codecs give Object columns
+        MultiDColumnExport export = new MultiDColumnExport(new MultiDCodec<?>[] {MultiDCodecs.INT, null, null}, null, 300);
+
+        Set<List<Object>> exported = new HashSet<>();
+        int[] batches = {0};
+        ColumnBatch[] first = {null};
+        export.export(md3, batch -> {
+            if (first[0] == null)
+                first[0] = batch;
+            Assert.assertSame(first[0], batch);
+            Assert.assertEquals(++batches[0] < 4 ? 300 : 100, batch.size());
+            for (int row = 0; row < batch.size(); ++row)
+                exported.add(Arrays.asList(batch.getIntColumn(0)[row], batch.getObjectColumn(1)[row],
+                        batch.getObjectColumn(2)[row], batch.getObjectColumn(3)[row]));
+            if (batch.size() < batch.capacity())
+                Assert.assertNull(batch.getObjectColumn(3)[batch.size()]);
+        });
+        Assert.assertEquals(4, batches[0]);
+        Assert.assertEquals(rows(md3), exported);
+
+        batches[0] = 0;
+        export.export(new MultiDMap3<>(), batch -> ++batches[0]);
+        Assert.assertEquals(0, batches[0]);
+    }
+
+    @Test
+    public void testMultiDMapN() {
+        MultiDMapN<Double> mdn = new MultiDMapN<>(5);
+        MultiDFiller.completeFill(mdn, 3);
+        ColumnBatch batch = new MultiDColumnExport(new MultiDCodec<?>[5], null, 10).export(mdn);
+        Assert.assertEquals(243, batch.size());
+        for (int column = 0; column < 6; ++column)
+            Assert.assertNotNull(batch.getObjectColumn(column)[242]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testColumnType() {
+        new MultiDColumnExport(new MultiDCodec<?>[] {MultiDCodecs.INT}, null, 10).export(new MultiDMap1<>()).getLongColumn(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDimensions() {
+        new MultiDColumnExport(new MultiDCodec<?>[] {MultiDCodecs.INT}, null, 10).export(new MultiDMap2<>());
+    }
+}
@@ -0,0 +1,81 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MultiDComputeTest {
+
+    @Test
+    public void testMultiDMap3() {
+        MultiDMap3<String, String, String, Integer> md3 = new MultiDMap3<>();
+
+        Assert.assertEquals(Integer.valueOf(1), md3.merge("a", "b", "c", 1, Integer::sum));
+        Assert.assertEquals(Integer.valueOf(3), md3.merge("a", "b", "c", 2, Integer::sum));
+        Assert.assertEquals(1, md3.getSize());
+
+        Assert.assertEquals(Integer.valueOf(3), md3.computeIfAbsent("a", "b", "c", () -> 10));
+        Assert.assertEquals(Integer.valueOf(10), md3.computeIfAbsent("a", "x", "c", () -> 10));
+        Assert.assertEquals(2, md3.getSize());
+        Assert.assertEquals(2, md3.get("a").getSize());
+
+        Assert.assertNull(md3.computeIfPresent("z", "z", "z", v -> v + 1));
+        Assert.assertNull(md3.get("z"));
+        Assert.assertEquals(Integer.valueOf(4), md3.computeIfPresent("a", "b", "c", v -> v + 1));
+        Assert.assertEquals(Integer.valueOf(5), md3.compute("a", "b", "c", v -> v == null ? 0 : v + 1));
+        Assert.assertEquals(Integer.valueOf(0), md3.compute("b", "b", "c", v -> v == null ? 0 : v + 1));
+        Assert.assertEquals(3, md3.getSize());
+
+        // A function returning null removes the entry, and prunes the maps it leaves empty
+        Assert.assertNull(md3.computeIfAbsent("c", "c", "c", () -> null));
+        Assert.assertNull(md3.get("c"));
+        Assert.assertNull(md3.compute("b", "b", "c", v -> null));
+        Assert.assertNull(md3.get("b"));
+        Assert.assertNull(md3.computeIfPresent("a", "x", "c", v -> null));
+        Assert.assertNull(md3.get("a", "x"));
+        Assert.assertEquals(1, md3.getSize());
+        Assert.assertEquals(1, md3.get("a").getSize());
+        Assert.assertEquals(1, md3.entries().count());
+    }
+
+    @Test
+    public void testMultiDMap1And2() {
+        MultiDMap1<String, Integer> md1 = new MultiDMap1<>();
+        md1.merge("a", 1, Integer::sum);
+        md1.merge("a", 1, Integer::sum);
+        Assert.assertEquals(Integer.valueOf(2), md1.get("a"));
+        Assert.assertNull(md1.compute("a", v -> null));
+        Assert.assertEquals(0, md1.getSize());
+
+        MultiDMap2<Integer, Integer, Long> md2 = new MultiDMap2<>();
+        for (int i = 0; i < 100; ++i)
+            md2.merge(i % 3, i % 5, 1L, Long::sum);
+        Assert.assertEquals(15, md2.getSize());
+        Assert.assertEquals(Long.valueOf(7), md2.get(0, 0));
+    }
+
+    @Test
+    public void testMultiDMapN() {
+        MultiDMapN<Integer> md4 = new MultiDMapN<>(4);
+        KeyPath path = new KeyPath(4).setAll(1, 2, 3, 4);
+        md4.merge(path, 5, Integer::sum);
+        md4.merge(path, 5, Integer::sum);
+        Assert.assertEquals(Integer.valueOf(10), md4.get(path));
+        Assert.assertEquals(1, md4.getSize());
+        md4.computeIfPresent(path, v -> null);
+        Assert.assertEquals(0, md4.getSize());
+        Assert.assertFalse(md4.contains(path.setLength(1)));
+    }
+
+    @Test
+    public void testIndexesFollowComputes() {
+        IndexedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new IndexedMultiDMap3<>(1, 2);
+        md3.merge(1, 2, 3, 1, Integer::sum);
+        md3.merge(1, 2, 4, 1, Integer::sum);
+        Assert.assertEquals(1, md3.sliceBy(2, 3).count());
+        Assert.assertEquals(2, md3.sliceBy(1, 2).count());
+
+        md3.compute(1, 2, 3, v -> null);
+        Assert.assertEquals(0, md3.sliceBy(2, 3).count());
+        Assert.assertEquals(1, md3.sliceBy(1, 2).count());
+    }
+}
@@ -0,0 +1,132 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MultiDCursorTest {
+
+    private static Set<List<Object>> asSet(MultiDMap mdm) {
+        Set<List<Object>> result = new HashSet<>();
+        mdm.entries().forEach(entry -> result.add(Arrays.asList(entry)));
+        return result;
+    }
+
+    @Test
+    public void testCursor() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        MultiDFiller.completeFill(md3, 3);
+
+        Set<List<Object>> walked = new HashSet<>();
+        MultiDCursor cursor = md3.cursor();
+        while (cursor.next())
+            walked.add(Arrays.asList(cursor.key(0), cursor.key(1), cursor.key(2), cursor.value()));
+        Assert.assertEquals(asSet(md3), walked);
+
+        // A cursor can be reset and reused
+        walked.clear();
+        cursor.reset(md3);
+        while (cursor.next())
+            walked.add(Arrays.asList(cursor.key(0), cursor.key(1), cursor.key(2), cursor.value()));
+        Assert.assertEquals(27, walked.size());
+
+        Assert.assertFalse(new MultiDMap2<Integer, Integer, Integer>().cursor().next());
+    }
+
+    @Test
+    public void testCursorSkip() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        MultiDFiller.completeFill(md3, 3);
+
+        // Only the first value of every top level key is seen when skipping at level 0
+        List<Object> firsts = new ArrayList<>();
+        MultiDCursor cursor = md3.cursor();
+        while (cursor.next()) {
+            firsts.add(cursor.key(0));
+            cursor.skip(0);
+        }
+        Assert.assertEquals(Arrays.asList(1, 2, 3), firsts);
+    }
+
+    @Test
+    public void testForEach() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        MultiDFiller.completeFill(md3, 3);
+
+        Set<List<Object>> visited = new HashSet<>();
+        Assert.assertTrue(md3.forEach((keys, value) -> visited.add(Arrays.asList(keys[0], keys[1], keys[2], value))));
+        Assert.assertEquals(asSet(md3), visited);
+
+        // Pruning subtrees whose second key isn't 2
+        visited.clear();
+        md3.forEach(new EntryVisitor() {
+            @Override
+            public Action enterSubtree(Object[] keys, int level) {
+                return level == 1 && !keys[1].equals(2) ? Action.SKIP : Action.CONTINUE;
+            }
+
+            @Override
+            public boolean visit(Object[] keys, Object value) {
+                visited.add(Arrays.asList(keys[0], keys[1], keys[2], value));
+                return true;
+            }
+        });
+        Assert.assertEquals(9, visited.size());
+        for (List<Object> entry : visited)
+            Assert.assertEquals(2, entry.get(1));
+
+        // Stopping early
+        int[] count = {0};
+        Assert.assertFalse(md3.forEach((keys, value) -> ++count[0] < 5));
+        Assert.assertEquals(5, count[0]);
+    }
+
+    @Test
+    public void testNoAllocation() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+        long thread = Thread.currentThread().getId();
+
+        // Levels of 4 keys are scanned, levels of 30 keys are hashed
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        for (int i = 0; i < 30; ++i)
+            for (int j = 0; j < 4; ++j)
+                for (int k = 0; k < 30; ++k)
+                    md3.put(i, j, k, k);
+
+        long[] sum = {0};
+        EntryVisitor visitor = (keys, value) -> {
+            sum[0] += (Integer) value;
+            return true;
+        };
+        MultiDCursor cursor = md3.cursor();
+
+        // The least of a few rounds, as the JVM may allocate on its own during one of them
+        long cursorBytes = Long.MAX_VALUE;
+        long forEachBytes = Long.MAX_VALUE;
+        for (int round = 0; round < 5; ++round) {
+            long before = allocations.getThreadAllocatedBytes(thread);
+            cursor.reset(md3);
+            while (cursor.next())
+                sum[0] += (Integer) cursor.value();
+            cursorBytes = Math.min(cursorBytes, allocations.getThreadAllocatedBytes(thread) - before);
+
+            before = allocations.getThreadAllocatedBytes(thread);
+            md3.forEach(visitor);
+            forEachBytes = Math.min(forEachBytes, allocations.getThreadAllocatedBytes(thread) - before);
+        }
+        Assert.assertEquals(0, cursorBytes);
+        // Only the key buffer
+        Assert.assertTrue(forEachBytes <= 64);
+        Assert.assertEquals(10 * 4 * 30 * 29 * 15, sum[0]);
+    }
+}
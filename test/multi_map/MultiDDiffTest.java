@@ -0,0 +1,154 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class MultiDDiffTest {
+
+    private static MultiDMap3<Integer, Integer, Integer, Integer> filled(int n) {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        for (int i = 0; i < n; ++i)
+            md3.put(i % 7, i % 5, i, i * 10);
+        return md3;
+    }
+
+    @Test
+    public void testEqualsAndHashCode() {
+        MultiDMap3<Integer, Integer, Integer, Integer> a = filled(100);
+
+        // Same content inserted in the opposite order, into a different kind of map
+        SortedMultiDMap3<Integer, Integer, Integer, Integer> b = new SortedMultiDMap3<>();
+        for (int i = 99; i >= 0; --i)
+            b.put(i % 7, i % 5, i, i * 10);
+
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(b, a);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+
+        // Values are compared with equals, not by identity
+        a.put(1, 1, 1, new Integer(100000));
+        b.put(1, 1, 1, new Integer(100000));
+        Assert.assertEquals(a, b);
+
+        b.put(1, 1, 1, 5);
+        Assert.assertNotEquals(a, b);
+        Assert.assertNotEquals(a.hashCode(), b.hashCode());
+
+        MultiDMap2<Integer, Integer, Integer> md2 = new MultiDMap2<>();
+        Assert.assertNotEquals(new MultiDMap3<>(), md2);
+    }
+
+    @Test
+    public void testHashMaintained() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = filled(50);
+        int hash = md3.hashCode();
+
+        md3.put(100, 100, 100, 1);
+        md3.put(3, 3, 100, 1);
+        Assert.assertNotEquals(hash, md3.hashCode());
+        md3.remove(100, 100, 100);
+        md3.remove(3, 3, 100);
+        Assert.assertEquals(hash, md3.hashCode());
+
+        // Replacing a value and putting it back
+        md3.put(0, 0, 0, 42);
+        Assert.assertNotEquals(hash, md3.hashCode());
+        md3.put(0, 0, 0, 0);
+        Assert.assertEquals(hash, md3.hashCode());
+
+        md3.merge(0, 0, 0, 1, Integer::sum);
+        md3.compute(0, 0, 0, v -> v - 1);
+        md3.computeIfAbsent(9, 9, 9, () -> 1);
+        md3.computeIfPresent(9, 9, 9, v -> null);
+        Assert.assertEquals(hash, md3.hashCode());
+
+        // Removing a whole submap and putting its entries back
+        List<Object[]> submap = md3.get(2).entries().collect(Collectors.toList());
+        md3.remove(2);
+        Assert.assertNotEquals(hash, md3.hashCode());
+        for (Object[] entry : submap)
+            md3.put(2, (Integer) entry[0], (Integer) entry[1], (Integer) entry[2]);
+        Assert.assertEquals(hash, md3.hashCode());
+        Assert.assertEquals(filled(50), md3);
+    }
+
+    @Test
+    public void testBulkLoadAndSnapshot() throws IOException {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = filled(200);
+
+        MultiDMap3<Integer, Integer, Integer, Integer> loaded = new MultiDMap3<>();
+        loaded.bulkLoad(md3.entries(), true);
+        Assert.assertEquals(md3, loaded);
+        Assert.assertEquals(md3.hashCode(), loaded.hashCode());
+
+        MultiDSnapshot snapshot = new MultiDSnapshot(
+                new MultiDCodec<?>[] {MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.INT}, MultiDCodecs.INT);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(md3, Channels.newChannel(out));
+        MultiDMap3<Integer, Integer, Integer, Integer> read = snapshot.read(
+                Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), new MultiDMap3<>());
+        Assert.assertEquals(md3, read);
+        Assert.assertEquals(md3.hashCode(), read.hashCode());
+    }
+
+    @Test
+    public void testMultiDMapN() {
+        MultiDMapN<Integer> byPath = new MultiDMapN<>(4);
+        MultiDMapN<Integer> byArgs = new MultiDMapN<>(4);
+        KeyPath path = new KeyPath(4);
+        for (int i = 0; i < 60; ++i) {
+            byPath.put(path.setAll(i % 2, i % 3, i % 5, i), i);
+            byArgs.put(i % 2, i % 3, i % 5, i, i);
+        }
+        Assert.assertEquals(byArgs, byPath);
+        Assert.assertEquals(byArgs.hashCode(), byPath.hashCode());
+
+        byPath.remove(path.setAll(0, 0, 0, 0));
+        byPath.remove(path.set(0, 1).set(1, 1).setLength(2));
+        byArgs.remove(0, 0, 0, 0);
+        byArgs.remove(1, 1);
+        Assert.assertEquals(byArgs, byPath);
+        Assert.assertEquals(byArgs.hashCode(), byPath.hashCode());
+    }
+
+    @Test
+    public void testDiff() {
+        MultiDMap3<Integer, Integer, Integer, Integer> before = filled(100);
+        MultiDMap3<Integer, Integer, Integer, Integer> after = filled(100);
+        Assert.assertEquals(0, before.diff(after).count());
+
+        after.put(100, 0, 0, 1);
+        after.put(0, 0, 0, -1);
+        after.remove(1, 1, 1);
+        after.remove(2);
+        int removedSubmap = before.get(2).getSize();
+
+        List<MultiDDiff> diffs = before.diff(after).collect(Collectors.toList());
+        Assert.assertEquals(3 + removedSubmap, diffs.size());
+        Assert.assertTrue(diffs.contains(new MultiDDiff(MultiDDiff.Type.ADDED, new Object[] {100, 0, 0}, null, 1)));
+        Assert.assertTrue(diffs.contains(new MultiDDiff(MultiDDiff.Type.CHANGED, new Object[] {0, 0, 0}, 0, -1)));
+        Assert.assertTrue(diffs.contains(new MultiDDiff(MultiDDiff.Type.REMOVED, new Object[] {1, 1, 1}, 10, null)));
+        Assert.assertEquals(removedSubmap, diffs.stream()
+                .filter(d -> d.getType() == MultiDDiff.Type.REMOVED && d.getKeys()[0].equals(2))
+                .count());
+
+        // The reverse diff swaps additions and removals
+        List<MultiDDiff> reverse = after.diff(before).collect(Collectors.toList());
+        Assert.assertTrue(reverse.contains(new MultiDDiff(MultiDDiff.Type.REMOVED, new Object[] {100, 0, 0}, 1, null)));
+        Assert.assertEquals(Arrays.asList(0, 0, 0), Arrays.asList(
+                reverse.stream().filter(d -> d.getType() == MultiDDiff.Type.CHANGED).findFirst().get().getKeys()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDiffDimensions() {
+        new MultiDMap3<>().diff(new MultiDMap2<>());
+    }
+}
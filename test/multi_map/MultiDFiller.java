@@ -2,6 +2,7 @@ package multi_map;
 
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.Random;
 import java.util.stream.IntStream;
 
 /**
@@ -44,6 +45,38 @@ public class MultiDFiller {
         }
     }
 
+    /**
+     * Fills a {@link MultiDMap} with keys from the range [1, width] at each level, drawn from a
+     * Zipf distribution so that a few keys of each level hold most of the entries, as real data
+     * often does.  The value of each entry is the number of the put which made it, keys drawn
+     * again overwriting earlier values, so the map ends up with fewer than count entries.
+     *
+     * @param mdm       MultiDMap to be filled
+     * @param width     number of keys each level can have
+     * @param count     number of entries put
+     * @param exponent  skew of the distribution, 0 being uniform, around 1 for typical skews
+     * @param seed      seed of the random keys, the same seed giving the same map
+     */
+    public static void skewedFill(MultiDMap mdm, int width, int count, double exponent, long seed) {
+        double[] cumulative = new double[width];
+        double total = 0;
+        for (int rank = 1; rank <= width; ++rank) {
+            total += 1 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = total;
+        }
+
+        Random random = new Random(seed);
+        Object[] entry = new Object[mdm.getDimensions() + 1];
+        for (int i = 0; i < count; ++i) {
+            for (int level = 0; level < mdm.getDimensions(); ++level) {
+                int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                entry[level] = (index < 0 ? -index - 1 : index) + 1;
+            }
+            entry[mdm.getDimensions()] = i;
+            mdm.put(entry);
+        }
+    }
+
     public static Integer digitArrayToInteger(Integer[] digits) {
         StringBuilder builder = new StringBuilder();
         Arrays.stream(digits).forEach(builder::append);
@@ -27,4 +27,20 @@ public class MultiDFillerTest {
         Assert.assertEquals(new Integer(11), md2.get(1,1));
         Assert.assertEquals(new Integer(13), md2.get(1,3));
     }
+
+    @Test
+    public void skewedFillTest() {
+        MultiDMap2<Integer, Integer, Integer> md2 = new MultiDMap2<>();
+        MultiDFiller.skewedFill(md2, 50, 5000, 1.2, 7);
+
+        Assert.assertTrue(md2.getSize() > 0 && md2.getSize() < 2500);
+        Assert.assertTrue(md2.entries().allMatch(entry -> (Integer) entry[0] >= 1 && (Integer) entry[0] <= 50));
+        // The first key is the most frequent one
+        int last = md2.get(50) == null ? 0 : md2.get(50).getSize();
+        Assert.assertTrue(md2.get(1).getSize() > last);
+
+        MultiDMap2<Integer, Integer, Integer> again = new MultiDMap2<>();
+        MultiDFiller.skewedFill(again, 50, 5000, 1.2, 7);
+        Assert.assertEquals(md2, again);
+    }
 }
@@ -0,0 +1,249 @@
+package multi_map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class MultiDJournalTest {
+
+    private static final MultiDCodec<?>[] KEY_CODECS = {MultiDCodecs.INT, MultiDCodecs.STRING, MultiDCodecs.LONG};
+
+    private Path directory;
+
+    @Before
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @After
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(file);
+        }
+    }
+
+    private MultiDJournal journal(long segmentSize) {
+        return new MultiDJournal(directory, KEY_CODECS, MultiDCodecs.STRING, segmentSize, 1);
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testRecover() throws IOException {
+        MultiDMap3<Integer, String, Long, String> md3;
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            md3 = journal.recover(new MultiDMap3<>());
+            for (int i = 0; i < 100; ++i)
+                md3.put(i % 5, "k" + i % 7, (long) i, "v" + i);
+            md3.remove(1, "k1", 1L);
+            md3.remove(2, "k2");
+            md3.remove(3);
+            md3.remove(9);          // removes nothing, so isn't journaled
+            md3.merge(0, "k0", 0L, "+", String::concat);
+            md3.computeIfPresent(4, "k4", 4L, v -> null);
+            journal.sync();
+        }
+        Assert.assertNull(md3.getMutationListener());
+
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            MultiDMap3<Integer, String, Long, String> recovered = journal.recover(new MultiDMap3<>());
+            Assert.assertEquals(md3, recovered);
+            Assert.assertEquals("v0+", recovered.get(0, "k0", 0L));
+
+            recovered.put(7, "k7", 7L, "v7");
+            md3.put(7, "k7", 7L, "v7");
+        }
+        // Records are written on close
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            Assert.assertEquals(md3, journal.recover(new MultiDMap3<>()));
+        }
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        MultiDMap3<Integer, String, Long, String> md3;
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            md3 = journal.recover(new MultiDMap3<>());
+            md3.put(1, "a", 1L, "one");
+            md3.put(2, "b", 2L, "two");
+        }
+
+        // A crash in the middle of writing a record
+        List<Path> segments = files("segment-");
+        Path last = segments.get(segments.size() - 1);
+        long valid = Files.size(last);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 1, 0, 0}));
+        }
+
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            Assert.assertEquals(md3, journal.recover(new MultiDMap3<>()));
+        }
+        Assert.assertEquals(valid, Files.size(last));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptSegment() throws IOException {
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            journal.recover(new MultiDMap3<>()).put(1, "a", 1L, "one");
+        }
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            journal.recover(new MultiDMap3<>()).put(2, "b", 2L, "two");
+        }
+
+        // Damages the content of the record of the first segment, which isn't the last one
+        Path first = files("segment-").get(0);
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {9}), 10);
+        }
+        journal(MultiDJournal.DEFAULT_SEGMENT_SIZE).recover(new MultiDMap3<>());
+    }
+
+    @Test
+    public void testRotateAndCheckpoint() throws IOException {
+        MultiDMap3<Integer, String, Long, String> md3;
+        try (MultiDJournal journal = journal(1024)) {
+            md3 = journal.recover(new MultiDMap3<>());
+            for (int i = 0; i < 2000; ++i) {
+                md3.put(i % 10, "k" + i % 3, (long) i, "v" + i);
+                if (i % 100 == 0)
+                    journal.sync();
+            }
+            journal.sync();
+            Assert.assertTrue(files("segment-").size() > 5);
+
+            journal.checkpoint(md3);
+            Assert.assertEquals(1, files("segment-").size());
+            Assert.assertEquals(1, files("snapshot-").size());
+
+            md3.remove(0);
+            md3.put(42, "k", 42L, "after");
+        }
+
+        try (MultiDJournal journal = journal(1024)) {
+            MultiDMap3<Integer, String, Long, String> recovered = journal.recover(new MultiDMap3<>());
+            Assert.assertEquals(md3, recovered);
+
+            // A bulk load isn't journaled record by record but checkpointed
+            recovered.bulkLoad(IntStream.range(0, 50).mapToObj(i -> new Object[] {i, "b", (long) i, "bulk"}), false);
+            md3 = recovered;
+        }
+        try (MultiDJournal journal = journal(1024)) {
+            Assert.assertEquals(md3, journal.recover(new MultiDMap3<>()));
+        }
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        MultiDMap3<Integer, String, Long, String> md3;
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            md3 = journal.recover(new MultiDMap3<>());
+            MultiDMap3<Integer, String, Long, String> shared = md3;
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; ++t) {
+                int thread = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 200; ++i) {
+                        synchronized (shared) {
+                            shared.put(thread, "t", (long) i, "v" + i);
+                        }
+                        try {
+                            journal.sync();
+                        } catch (IOException e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                }));
+            }
+            for (Thread thread : threads)
+                thread.start();
+            for (Thread thread : threads)
+                thread.join();
+        }
+
+        try (MultiDJournal journal = journal(MultiDJournal.DEFAULT_SEGMENT_SIZE)) {
+            MultiDMap3<Integer, String, Long, String> recovered = journal.recover(new MultiDMap3<>());
+            Assert.assertEquals(800, recovered.getSize());
+            Assert.assertEquals(md3, recovered);
+        }
+    }
+
+    @Test
+    public void testMultiDMapN() throws IOException {
+        MultiDCodec<?>[] codecs = {MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.INT};
+        MultiDMapN<String> mdn;
+        try (MultiDJournal journal = new MultiDJournal(directory, codecs, MultiDCodecs.STRING)) {
+            mdn = journal.recover(new MultiDMapN<>(4));
+            KeyPath path = new KeyPath(4);
+            for (int i = 0; i < 20; ++i)
+                mdn.put(path.set(0, i % 2).set(1, i % 3).set(2, i % 4).set(3, i), "v" + i);
+            mdn.remove(path.clear().set(0, 1).set(1, 1).setLength(2));
+            mdn.compute(path.clear().set(0, 0).set(1, 0).set(2, 0).set(3, 0), v -> v + "!");
+        }
+
+        try (MultiDJournal journal = new MultiDJournal(directory, codecs, MultiDCodecs.STRING)) {
+            Assert.assertEquals(mdn, journal.recover(new MultiDMapN<>(4)));
+        }
+    }
+
+    @Test
+    public void testReportedChanges() {
+        List<String> changes = new ArrayList<>();
+        MultiDMutationListener listener = new MultiDMutationListener() {
+            @Override
+            public void put(Object[] keys, Object value) { changes.add("put " + value); }
+
+            @Override
+            public void remove(Object[] keys, int length) { changes.add("remove " + length); }
+        };
+
+        MultiDMap2<String, String, String> md2 = new MultiDMap2<>();
+        md2.setMutationListener(listener);
+        md2.put("a", "b", "v");
+        md2.put("a", "b", "v");                 // puts aren't compared
+        md2.computeIfAbsent("a", "b", () -> "w");   // finds a value, so changes nothing
+        md2.computeIfPresent("a", "c", v -> v);     // absent
+        md2.compute("a", "b", v -> v);              // the very same value
+        md2.merge("a", "b", "!", String::concat);
+        md2.remove("x");
+        md2.remove("a", "x");
+        md2.computeIfPresent("a", "b", v -> null);
+        Assert.assertEquals("[put v, put v, put v!, remove 2]", changes.toString());
+
+        changes.clear();
+        MultiDMap1<String, String> md1 = new MultiDMap1<>();
+        md1.setMutationListener(listener);
+        md1.computeIfAbsent("a", () -> "v");
+        md1.computeIfAbsent("a", () -> "w");
+        md1.remove("b");
+        Assert.assertEquals("[put v]", changes.toString());
+
+        changes.clear();
+        MultiDMapN<String> mdn = new MultiDMapN<>(3);
+        mdn.setMutationListener(listener);
+        KeyPath path = new KeyPath(3).set(0, 1).set(1, 2).set(2, 3);
+        mdn.computeIfAbsent(path, () -> "v");
+        mdn.computeIfAbsent(path, () -> "w");
+        Assert.assertEquals("[put v]", changes.toString());
+    }
+}
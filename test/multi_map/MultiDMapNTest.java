@@ -0,0 +1,68 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MultiDMapNTest {
+
+    @Test
+    public void testPutGet() {
+        MultiDMapN<String> md5 = new MultiDMapN<>(5);
+        KeyPath path = new KeyPath(5);
+
+        Assert.assertNull(md5.put(path.setAll(1, 2, 3, 4, 5), "12345"));
+        Assert.assertNull(md5.put(path.set(4, 6), "12346"));
+        Assert.assertEquals("12345", md5.put(path.set(4, 5), "changed"));
+        Assert.assertEquals(2, md5.getSize());
+
+        Assert.assertEquals("changed", md5.get(path));
+        Assert.assertEquals("12346", md5.get(1, 2, 3, 4, 6));
+        Assert.assertNull(md5.get(path.set(0, 9)));
+        Assert.assertFalse(md5.contains(path));
+
+        path.setAll(1, 2, 3, 4, 6);
+        Assert.assertTrue(md5.contains(path));
+        Assert.assertTrue(md5.contains(path.setLength(2)));
+        Assert.assertEquals(2, md5.getSubmap(path).getSize());
+        Assert.assertEquals(3, md5.getSubmap(path).getDimensions());
+        Assert.assertTrue(md5.getSubmap(path.setLength(4)) instanceof MultiDMap1);
+    }
+
+    @Test
+    public void testRemove() {
+        MultiDMapN<Integer> md4 = new MultiDMapN<>(4);
+        MultiDFiller.completeFill(md4, 3);
+        KeyPath path = new KeyPath(4);
+        Assert.assertEquals(81, md4.getSize());
+
+        Assert.assertEquals(1, md4.remove(path.setAll(1, 1, 1, 1)));
+        Assert.assertEquals(0, md4.remove(path));
+        Assert.assertEquals(80, md4.getSize());
+        Assert.assertEquals(26, md4.getSubmap(path.setLength(1)).getSize());
+
+        Assert.assertEquals(8, md4.remove(path.setAll(1, 1, 0, 0).setLength(2)));
+        Assert.assertEquals(72, md4.getSize());
+        Assert.assertEquals(18, md4.getSubmap(path.setLength(1)).getSize());
+
+        // Removing the last value of a subtree prunes it
+        for (int k4 = 1; k4 <= 3; ++k4)
+            md4.remove(path.setAll(2, 2, 2, k4));
+        Assert.assertFalse(md4.contains(path.setLength(3)));
+        Assert.assertEquals(6, ((MultiDMap) md4.get(2, 2)).getSize());
+        Assert.assertEquals(69, md4.getSize());
+
+        Assert.assertEquals(27, md4.remove(3));
+        Assert.assertEquals(42, md4.getSize());
+        Assert.assertEquals(42, md4.entries().count());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongDimensions() {
+        new MultiDMapN<Integer>(4).get(new KeyPath(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartialPut() {
+        new MultiDMapN<Integer>(4).put(new KeyPath(4).setLength(3), 1);
+    }
+}
@@ -0,0 +1,103 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class MultiDQueryTest {
+
+    private static <M extends MultiDMap> M fill(M map) {
+        for (int i = 0; i < 500; ++i)
+            map.put(i % 10, i % 7, i, i);
+        return map;
+    }
+
+    private static Set<List<Object>> asSet(Stream<Object[]> entries) {
+        return entries.map(Arrays::asList).collect(Collectors.toSet());
+    }
+
+    private static Set<List<Object>> expected(MultiDMap map, Predicate<Object[]> filter) {
+        return asSet(map.entries().filter(filter));
+    }
+
+    @Test
+    public void testConstraints() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = fill(new MultiDMap3<>());
+
+        Assert.assertEquals(asSet(md3.entries()), asSet(md3.query(new MultiDQuery())));
+
+        Assert.assertEquals(
+                expected(md3, entry -> entry[0].equals(3)),
+                asSet(md3.query(new MultiDQuery().eq(0, 3))));
+
+        Assert.assertEquals(
+                expected(md3, entry -> entry[1].equals(2) || entry[1].equals(5)),
+                asSet(md3.query(new MultiDQuery().in(1, Arrays.asList(2, 5, 100)))));
+
+        Assert.assertEquals(
+                expected(md3, entry -> (Integer) entry[2] >= 100 && (Integer) entry[2] < 120),
+                asSet(md3.query(new MultiDQuery().range(2, 100, 120))));
+
+        MultiDQuery combined = new MultiDQuery().eq(0, 4).in(1, Arrays.asList(1, 2)).where(2, k -> (Integer) k % 2 == 0);
+        Set<List<Object>> found = asSet(md3.query(combined));
+        Assert.assertFalse(found.isEmpty());
+        Assert.assertEquals(
+                expected(md3, entry ->
+                        entry[0].equals(4) && (entry[1].equals(1) || entry[1].equals(2)) && (Integer) entry[2] % 2 == 0),
+                found);
+
+        // Levels can be freed again, and missing keys match nothing
+        Assert.assertEquals(asSet(md3.entries()), asSet(md3.query(combined.any(0).any(1).any(2))));
+        Assert.assertEquals(0, md3.query(new MultiDQuery().eq(0, 42)).count());
+        Assert.assertEquals(0, md3.query(new MultiDQuery().eq(1, 3).eq(2, 4)).count());
+        Assert.assertEquals(1, md3.query(new MultiDQuery().eq(0, 3).eq(1, 3).eq(2, 73)).count());
+    }
+
+    @Test
+    public void testSortedRange() {
+        SortedMultiDMap3<Integer, Integer, Integer, Integer> sorted = fill(new SortedMultiDMap3<>());
+
+        List<Object> values = sorted.query(new MultiDQuery().range(0, 2, 4).eq(1, 0))
+                .map(entry -> entry[3])
+                .collect(Collectors.toList());
+        List<Object> expected = new ArrayList<>();
+        for (int k1 = 2; k1 < 4; ++k1) {
+            for (int i = 0; i < 500; ++i) {
+                if (i % 10 == k1 && i % 7 == 0)
+                    expected.add(i);
+            }
+        }
+        Assert.assertEquals(expected, values);
+    }
+
+    @Test
+    public void testForEach() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = fill(new MultiDMap3<>());
+        MultiDQuery query = new MultiDQuery().in(0, Arrays.asList(1, 2)).range(1, 3, null);
+
+        Set<List<Object>> visited = new HashSet<>();
+        Assert.assertTrue(md3.forEach(query, (keys, value) -> {
+            visited.add(Arrays.asList(keys[0], keys[1], keys[2], value));
+            return true;
+        }));
+        Assert.assertEquals(asSet(md3.query(query)), visited);
+
+        int[] count = {0};
+        Assert.assertFalse(md3.forEach(query, (keys, value) -> ++count[0] < 3));
+        Assert.assertEquals(3, count[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyLevels() {
+        new MultiDMap2<Integer, Integer, Integer>().query(new MultiDQuery().eq(2, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeLevel() {
+        new MultiDQuery().eq(-1, 1);
+    }
+}
@@ -0,0 +1,73 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class MultiDReduceTest {
+
+    // Large enough for the top levels to be split into tasks
+    private static MultiDMap3<Integer, Integer, Integer, Double> filled() {
+        MultiDMap3<Integer, Integer, Integer, Double> md3 = new MultiDMap3<>();
+        for (int i = 0; i < 50000; ++i)
+            md3.put(i % 13, i % 101, i, (double) (i % 1000));
+        return md3;
+    }
+
+    @Test
+    public void testWholeMap() {
+        MultiDMap3<Integer, Integer, Integer, Double> md3 = filled();
+        double expected = md3.entries().mapToDouble(entry -> (Double) entry[3]).sum();
+
+        Assert.assertEquals(expected, md3.sum(v -> (Double) v), 0);
+        Assert.assertEquals(0, md3.min(v -> (Double) v).getAsDouble(), 0);
+        Assert.assertEquals(999, md3.max(v -> (Double) v).getAsDouble(), 0);
+        Assert.assertEquals(Long.valueOf(50000), md3.reduce(0L, (count, v) -> count + 1, Long::sum));
+
+        MultiDMap3<Integer, Integer, Integer, Double> empty = new MultiDMap3<>();
+        Assert.assertEquals(0, empty.sum(v -> (Double) v), 0);
+        Assert.assertFalse(empty.min(v -> (Double) v).isPresent());
+        Assert.assertEquals("none", empty.reduce("none", (s, v) -> s + v, String::concat));
+    }
+
+    @Test
+    public void testToLevels() {
+        MultiDMap3<Integer, Integer, Integer, Double> md3 = filled();
+
+        Map<Integer, Double> perK1 = md3.entries().collect(
+                Collectors.groupingBy(entry -> (Integer) entry[0], Collectors.summingDouble(entry -> (Double) entry[3])));
+        MultiDMap sums = md3.sumTo(1, v -> (Double) v);
+        Assert.assertEquals(1, sums.getDimensions());
+        Assert.assertEquals(perK1.size(), sums.getSize());
+        for (Map.Entry<Integer, Double> entry : perK1.entrySet())
+            Assert.assertEquals(entry.getValue(), (Double) sums.get(entry.getKey()), 0);
+
+        Map<List<Object>, Long> perK1K2 = md3.entries().collect(
+                Collectors.groupingBy(entry -> Arrays.asList(entry[0], entry[1]), Collectors.counting()));
+        MultiDMap counts = md3.countTo(2);
+        MultiDMap reduced = md3.reduceTo(2, 0L, (count, v) -> count + 1, Long::sum);
+        Assert.assertEquals(perK1K2.size(), counts.getSize());
+        for (Map.Entry<List<Object>, Long> entry : perK1K2.entrySet()) {
+            Object[] keys = entry.getKey().toArray();
+            Assert.assertEquals(entry.getValue().intValue(), counts.get(keys));
+            Assert.assertEquals(entry.getValue(), reduced.get(keys));
+        }
+
+        MultiDMap maxima = md3.maxTo(2, v -> (Double) v);
+        MultiDMap minima = md3.minTo(2, v -> (Double) v);
+        md3.forEach((keys, value) -> {
+            Assert.assertTrue((Double) value <= (Double) maxima.get(keys[0], keys[1]));
+            Assert.assertTrue((Double) value >= (Double) minima.get(keys[0], keys[1]));
+            return true;
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLevels() {
+        filled().sumTo(3, v -> (Double) v);
+    }
+}
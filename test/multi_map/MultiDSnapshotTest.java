@@ -0,0 +1,113 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MultiDSnapshotTest {
+
+    private static final MultiDSnapshot INT_SNAPSHOT = new MultiDSnapshot(
+            new MultiDCodec<?>[] {MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.INT}, MultiDCodecs.INT);
+
+    private static byte[] write(MultiDSnapshot snapshot, MultiDMap map) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.write(map, Channels.newChannel(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static <M extends MultiDMap> M read(MultiDSnapshot snapshot, byte[] bytes, M target) throws IOException {
+        return snapshot.read(Channels.newChannel(new ByteArrayInputStream(bytes)), target);
+    }
+
+    private static Set<String> contents(MultiDMap map) {
+        return map.entries().map(Arrays::toString).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        MultiDSnapshot snapshot = new MultiDSnapshot(
+                new MultiDCodec<?>[] {MultiDCodecs.STRING, MultiDCodecs.LONG}, MultiDCodecs.STRING);
+        MultiDMap2<String, Long, String> md2 = new MultiDMap2<>();
+        md2.put("a", 1L, "a1");
+        md2.put("a", 2L, "a2");
+        md2.put("\u00e9t\u00e9", 1L, "");
+
+        MultiDMap2<String, Long, String> loaded = read(snapshot, write(snapshot, md2), new MultiDMap2<>());
+        Assert.assertEquals(3, loaded.getSize());
+        Assert.assertEquals("a2", loaded.get("a", 2L));
+        Assert.assertEquals("", loaded.get("\u00e9t\u00e9", 1L));
+        Assert.assertEquals(contents(md2), contents(loaded));
+
+        // Loaded maps behave like any other
+        loaded.put("b", 1L, "b1");
+        Assert.assertEquals(1, loaded.remove("\u00e9t\u00e9"));
+        Assert.assertEquals(3, loaded.getSize());
+    }
+
+    @Test
+    public void testPrefixesWrittenOnce() throws IOException {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        MultiDFiller.completeFill(md3, 4);
+
+        // Header of 36 bytes, 1 byte counts, 4 byte keys on each level and 4 byte values
+        int expected = 36 + (1 + 4 * (4 + 1 + 4 * (4 + 1 + 4 * (4 + 4))));
+        Assert.assertEquals(expected, write(INT_SNAPSHOT, md3).length);
+    }
+
+    @Test
+    public void testLargeMapThroughFile() throws IOException {
+        // Larger than the buffer, loaded into maps of other kinds
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        MultiDFiller.completeFill(md3, 30);
+
+        Path file = Files.createTempFile("snapshot", ".mds");
+        try {
+            INT_SNAPSHOT.save(md3, file);
+            Assert.assertTrue(Files.size(file) > MultiDSnapshot.BUFFER_SIZE);
+
+            SortedMultiDMap3<Integer, Integer, Integer, Integer> sorted = INT_SNAPSHOT.load(file, new SortedMultiDMap3<>());
+            Assert.assertEquals(md3.getSize(), sorted.getSize());
+            Assert.assertEquals(contents(md3), contents(sorted));
+            Assert.assertArrayEquals(new Object[] {1, 1, 1, 111}, sorted.entries().findFirst().get());
+
+            IndexedMultiDMap3<Integer, Integer, Integer, Integer> indexed = INT_SNAPSHOT.load(file, new IndexedMultiDMap3<>(2));
+            Assert.assertEquals(md3.getSize(), indexed.getSize());
+            Assert.assertEquals(900, indexed.sliceBy(2, 7).count());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOtherCodecs() throws IOException {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        md3.put(1, 2, 3, 123);
+        MultiDSnapshot longValues = new MultiDSnapshot(
+                new MultiDCodec<?>[] {MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.INT}, MultiDCodecs.LONG);
+        read(longValues, write(INT_SNAPSHOT, md3), new MultiDMap3<>());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        MultiDFiller.completeFill(md3, 3);
+        byte[] bytes = write(INT_SNAPSHOT, md3);
+        read(INT_SNAPSHOT, Arrays.copyOf(bytes, bytes.length - 1), new MultiDMap3<>());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonEmptyTarget() throws IOException {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        md3.put(1, 2, 3, 123);
+        read(INT_SNAPSHOT, write(INT_SNAPSHOT, md3), md3);
+    }
+}
@@ -0,0 +1,91 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class MultiDSpliteratorTest {
+
+    /**
+     * A single top level key holding nearly all the values, plus a few small subtrees.
+     */
+    private static MultiDMap3<Integer, Integer, Integer, Integer> skewed() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        for (int k2 = 0; k2 < 100; ++k2)
+            for (int k3 = 0; k3 < 100; ++k3)
+                md3.put(0, k2, k3, k2 * 100 + k3);
+        for (int k1 = 1; k1 <= 5; ++k1)
+            md3.put(k1, 0, 0, -k1);
+        return md3;
+    }
+
+    @Test
+    public void testSplitsEvenly() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = skewed();
+        Spliterator<Object[]> first = md3.spliterator();
+        Assert.assertEquals(10005, first.getExactSizeIfKnown());
+        Assert.assertTrue(first.hasCharacteristics(Spliterator.SUBSIZED));
+
+        // Split into 8 parts: each should hold about an eighth of the values even though one top
+        // level key holds almost all of them.
+        List<Spliterator<Object[]>> parts = new ArrayList<>(Collections.singletonList(first));
+        for (int round = 0; round < 3; ++round) {
+            List<Spliterator<Object[]>> next = new ArrayList<>();
+            for (Spliterator<Object[]> part : parts) {
+                Spliterator<Object[]> prefix = part.trySplit();
+                Assert.assertNotNull(prefix);
+                next.add(prefix);
+                next.add(part);
+            }
+            parts = next;
+        }
+
+        long total = 0;
+        Set<Integer> values = new HashSet<>();
+        for (Spliterator<Object[]> part : parts) {
+            long size = part.getExactSizeIfKnown();
+            Assert.assertTrue("unbalanced part of size " + size, size > 10005 / 16 && size < 10005 / 4);
+            long[] counted = {0};
+            part.forEachRemaining(entry -> {
+                ++counted[0];
+                values.add((Integer) entry[3]);
+            });
+            Assert.assertEquals(size, counted[0]);
+            total += size;
+        }
+        Assert.assertEquals(10005, total);
+        Assert.assertEquals(10005, values.size());
+    }
+
+    @Test
+    public void testParallelEntries() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = skewed();
+
+        Set<List<Object>> sequential = md3.entries().map(Arrays::asList).collect(Collectors.toSet());
+        Set<List<Object>> parallel = md3.entries().parallel().map(Arrays::asList).collect(Collectors.toSet());
+        Assert.assertEquals(10005, sequential.size());
+        Assert.assertEquals(sequential, parallel);
+        Assert.assertEquals(10005, md3.entries().parallel().count());
+    }
+
+    @Test
+    public void testTryAdvance() {
+        MultiDMap2<Integer, Integer, Integer> md2 = new MultiDMap2<>();
+        MultiDFiller.completeFill(md2, 4);
+
+        Spliterator<Object[]> spliterator = md2.spliterator();
+        List<Object[]> entries = new ArrayList<>();
+        for (int i = 0; i < 6; ++i)
+            Assert.assertTrue(spliterator.tryAdvance(entries::add));
+        Assert.assertEquals(10, spliterator.estimateSize());
+        spliterator.forEachRemaining(entries::add);
+        Assert.assertFalse(spliterator.tryAdvance(entries::add));
+
+        Set<List<Object>> seen = entries.stream().map(Arrays::asList).collect(Collectors.toSet());
+        Assert.assertEquals(StreamSupport.stream(md2.spliterator(), false).map(Arrays::asList).collect(Collectors.toSet()), seen);
+        Assert.assertEquals(16, seen.size());
+    }
+}
@@ -0,0 +1,136 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+public class MultiDStatsTest {
+
+    @Test
+    public void testCounters() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        md3.put(0, 0, 0, 0);
+        Assert.assertNull(md3.getStats());
+
+        MultiDStats stats = md3.enableStats();
+        Assert.assertSame(stats, md3.enableStats());
+
+        md3.put(1, 1, 1, 1);    // creates 2 inner maps
+        md3.put(1, 1, 2, 2);
+        md3.put(0, 1, 0, 3);    // creates 1, below an inner map which existed before
+        Assert.assertEquals(Integer.valueOf(1), md3.get(1, 1, 1));
+        Assert.assertNull(md3.get(5, 5, 5));
+        Assert.assertNotNull(md3.get(1));
+        md3.get(1, 1).get(2);   // submaps share the statistics
+        md3.computeIfAbsent(2, 2, 2, () -> null);   // nothing kept, nothing created
+
+        md3.remove(1, 1, 1);
+        md3.remove(1, 1, 2);    // prunes 2 inner maps
+        md3.remove(9);
+
+        MultiDStatsSnapshot snapshot = stats.snapshot();
+        Assert.assertEquals(5, snapshot.getGets());
+        Assert.assertEquals(4, snapshot.getHits());
+        Assert.assertEquals(1, snapshot.getMisses());
+        Assert.assertEquals(3, snapshot.getPuts());
+        Assert.assertEquals(3, snapshot.getRemoves());
+        Assert.assertEquals(3, snapshot.getInnerMapsCreated());
+        Assert.assertEquals(2, snapshot.getInnerMapsPruned());
+
+        stats.reset();
+        Assert.assertEquals(0, stats.getGets());
+
+        md3.disableStats();
+        md3.get(0, 0, 0);
+        Assert.assertNull(md3.getStats());
+        Assert.assertNull(md3.get(0).getStats());
+        Assert.assertEquals(0, stats.getGets());
+    }
+
+    @Test
+    public void testShape() {
+        MultiDMap3<Integer, Integer, Integer, Integer> md3 = new MultiDMap3<>();
+        MultiDFiller.completeFill(md3, 4);
+        md3.put(5, 1, 1, 0);
+
+        MultiDStatsSnapshot snapshot = md3.enableStats().snapshot();
+        Assert.assertEquals(65, snapshot.getSize());
+        Assert.assertEquals(3, snapshot.getDepth());
+        // 5 K2 maps and 4 * 4 + 1 K3 maps
+        Assert.assertEquals(5 + 17, snapshot.getInnerMaps());
+
+        // Fan-out 5 is in bucket 2 (4-7), 4 in bucket 2 and 1 in bucket 0
+        Assert.assertEquals(1, snapshot.getFanOutHistogram(0)[2]);
+        Assert.assertEquals(4, snapshot.getFanOutHistogram(1)[2]);
+        Assert.assertEquals(1, snapshot.getFanOutHistogram(1)[0]);
+        Assert.assertEquals(16, snapshot.getFanOutHistogram(2)[2]);
+        Assert.assertEquals(1, snapshot.getFanOutHistogram(2)[0]);
+
+        long bytes = snapshot.getEstimatedBytes();
+        Assert.assertTrue(bytes > 65 * 32);
+        md3.remove(5);
+        Assert.assertTrue(md3.getStats().snapshot().getEstimatedBytes() < bytes);
+    }
+
+    @Test
+    public void testBulkLoadAndConcurrentReads() {
+        MultiDMap2<Integer, Integer, Integer> md2 = new MultiDMap2<>();
+        MultiDStats stats = md2.enableStats();
+        md2.bulkLoad(IntStream.range(0, 1000).mapToObj(i -> new Object[] {i / 10, i % 10, i}), true);
+        Assert.assertEquals(100, stats.getInnerMapsCreated());
+        Assert.assertSame(stats, md2.get(5).getStats());
+
+        stats.reset();
+        IntStream.range(0, 10000).parallel().forEach(i -> md2.get(i % 200, i % 10));
+        Assert.assertEquals(10000, stats.getGets());
+        Assert.assertEquals(5000, stats.getHits());
+    }
+
+    @Test
+    public void testMBean() throws Exception {
+        MultiDMap2<Integer, Integer, Integer> md2 = new MultiDMap2<>();
+        MultiDFiller.completeFill(md2, 3);
+        MultiDStats stats = md2.enableStats();
+        md2.get(1, 1);
+
+        ObjectName name = stats.register("stats-test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals(1L, server.getAttribute(name, "Gets"));
+            Assert.assertEquals(9, server.getAttribute(name, "Size"));
+
+            // The shape isn't walked from the MBean server's threads
+            try {
+                server.getAttribute(name, "InnerMaps");
+                Assert.fail();
+            } catch (AttributeNotFoundException expected) {
+            }
+        } finally {
+            stats.unregister();
+        }
+        Assert.assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void testLastSnapshot() throws Exception {
+        MultiDMap2<Integer, Integer, Integer> md2 = new MultiDMap2<>();
+        MultiDFiller.completeFill(md2, 3);
+        MultiDStats stats = md2.enableStats();
+        Assert.assertNull(stats.getLastSnapshot());
+
+        MultiDStatsSnapshot taken = stats.snapshot();
+        md2.put(7, 7, 7);
+        // Read by another thread while the map has changed since
+        Assert.assertSame(taken, CompletableFuture.supplyAsync(stats::getLastSnapshot).get());
+        Assert.assertEquals(3, taken.getInnerMaps());
+        Assert.assertTrue(taken.toString(), taken.toString().contains("fanOut=[level 0: 2-3=1, level 1: 2-3=3]"));
+        Assert.assertEquals(4, stats.snapshot().getInnerMaps());
+        Assert.assertEquals(4, stats.getLastSnapshot().getInnerMaps());
+    }
+}
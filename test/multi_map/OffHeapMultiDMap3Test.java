@@ -0,0 +1,130 @@
+package multi_map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class OffHeapMultiDMap3Test {
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("offheap", ".mdm");
+        Files.delete(file);
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private OffHeapMultiDMap3<Integer, Integer, Integer, Long> open() throws IOException {
+        return new OffHeapMultiDMap3<>(file, MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.LONG);
+    }
+
+    @Test
+    public void testGetPutRemove() throws IOException {
+        try (OffHeapMultiDMap3<Integer, Integer, Integer, Long> md3 = open()) {
+            Assert.assertNull(md3.put(1, 1, 1, 111L));
+            md3.put(1, 1, 2, 112L);
+            md3.put(2, 1, 1, 211L);
+            Assert.assertEquals(Long.valueOf(111), md3.get(1, 1, 1));
+            Assert.assertNull(md3.get(1, 2, 1));
+            Assert.assertEquals(3, md3.getSize());
+
+            // Overwriting returns the old value and does not change the size
+            Assert.assertEquals(Long.valueOf(111), md3.put(1, 1, 1, 1111L));
+            Assert.assertEquals(3, md3.getSize());
+
+            // Prefix gets return copies
+            MultiDMap2<Integer, Integer, Long> submap = md3.get(1);
+            Assert.assertEquals(2, submap.getSize());
+            Assert.assertEquals(Long.valueOf(112), submap.get(1, 2));
+            Assert.assertEquals(2, md3.get(1, 1).getSize());
+            Assert.assertNull(md3.get(3));
+
+            Assert.assertEquals(0, md3.remove(1, 3));
+            Assert.assertEquals(2, md3.remove(1));
+            Assert.assertEquals(1, md3.remove(2, 1, 1));
+            Assert.assertEquals(0, md3.getSize());
+            Assert.assertNull(md3.get(2, 1, 1));
+        }
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        MultiDMap3<Integer, Integer, Integer, Integer> expected = new MultiDMap3<>();
+        MultiDFiller.completeFill(expected, 12);
+
+        // Enough entries to resize the table several times
+        try (OffHeapMultiDMap3<Integer, Integer, Integer, Long> md3 = open()) {
+            expected.entries().forEach(
+                    e -> md3.put((Integer) e[0], (Integer) e[1], (Integer) e[2], ((Integer) e[3]).longValue()));
+            for (int k1 = 1; k1 <= 12; k1 += 2)
+                Assert.assertEquals(144, md3.remove(k1));
+        }
+
+        try (OffHeapMultiDMap3<Integer, Integer, Integer, Long> md3 = open()) {
+            Assert.assertEquals(6 * 144, md3.getSize());
+            Assert.assertNull(md3.get(11, 1, 1));
+            Assert.assertEquals(Long.valueOf(expected.get(12, 11, 10)), md3.get(12, 11, 10));
+
+            List<Object[]> entries = md3.entries().collect(Collectors.toList());
+            Assert.assertEquals(6 * 144, entries.size());
+            for (Object[] entry : entries) {
+                Assert.assertEquals(0, (Integer) entry[0] % 2);
+                Assert.assertEquals(entry[3], md3.get((Integer) entry[0], (Integer) entry[1], (Integer) entry[2]));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testReopenWithOtherShape() throws IOException {
+        open().close();
+        new OffHeapMultiDMap2<>(file, MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.LONG);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testVariableWidthCodec() throws IOException {
+        new OffHeapMultiDMap2<>(file, MultiDCodecs.STRING, MultiDCodecs.INT, MultiDCodecs.LONG);
+    }
+
+    @Test
+    public void testStaleResizeFile() throws IOException {
+        // As left by a crash during a resize
+        Path stale = file.resolveSibling(file.getFileName() + ".resize");
+        Files.write(stale, new byte[] {1, 2, 3});
+
+        try (OffHeapMultiDMap3<Integer, Integer, Integer, Long> md3 = open()) {
+            Assert.assertFalse(Files.exists(stale));
+            for (int i = 0; i < 5000; ++i)
+                md3.put(i % 10, i % 7, i, (long) i);
+            Assert.assertEquals(5000, md3.getSize());
+            Assert.assertEquals(Long.valueOf(4999), md3.get(9, 1, 4999));
+        }
+        Assert.assertFalse(Files.exists(stale));
+    }
+
+    @Test
+    public void testSubmapOfManyDimensions() throws IOException {
+        MultiDCodec<?>[] codecs = {MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.INT, MultiDCodecs.INT};
+        try (OffHeapMultiDMap md4 = new OffHeapMultiDMap(file, codecs, MultiDCodecs.LONG) {}) {
+            md4.put(1, 2, 3, 4, 1234L);
+            md4.put(1, 5, 6, 7, 1567L);
+            md4.put(2, 2, 3, 4, 2234L);
+
+            MultiDMap submap = (MultiDMap) md4.get(1);
+            Assert.assertEquals(3, submap.getDimensions());
+            Assert.assertEquals(2, submap.getSize());
+            Assert.assertEquals(1567L, submap.get(5, 6, 7));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentMultiDMap3Test {
+
+    // Counts its comparisons with other keys
+    private static final class Counted {
+        static int comparisons;
+        final int value;
+
+        Counted(int value) { this.value = value; }
+
+        @Override
+        public boolean equals(Object o) {
+            ++comparisons;
+            return o instanceof Counted && ((Counted) o).value == value;
+        }
+
+        @Override
+        public int hashCode() { return value; }
+    }
+
+    @Test
+    public void testVersions() {
+        PersistentMultiDMap3<Integer, Integer, Integer, Integer> v0 = PersistentMultiDMap3.empty();
+        PersistentMultiDMap3<Integer, Integer, Integer, Integer> v1 = v0.put(1, 1, 1, 111);
+        PersistentMultiDMap3<Integer, Integer, Integer, Integer> v2 = v1.put(2, 1, 1, 211);
+
+        Assert.assertEquals(0, v0.getSize());
+        Assert.assertEquals(1, v1.getSize());
+        Assert.assertEquals(2, v2.getSize());
+        Assert.assertNull(v1.get(2, 1, 1));
+        Assert.assertEquals(new Integer(211), v2.get(2, 1, 1));
+
+        // Untouched subtrees are shared between versions
+        Assert.assertSame(v1.get(1), v2.get(1));
+
+        // Putting an identical value, or removing something absent, returns the same version
+        Assert.assertSame(v2, v2.put(1, 1, 1, v2.get(1, 1, 1)));
+        Assert.assertSame(v2, v2.remove(3));
+    }
+
+    @Test
+    public void testRemove() {
+        PersistentMultiDMap3<Integer, Integer, Integer, Integer> md3 = PersistentMultiDMap3.<Integer, Integer, Integer, Integer>empty()
+                .put(1, 1, 1, 111)
+                .put(1, 1, 2, 112)
+                .put(2, 1, 1, 211);
+
+        PersistentMultiDMap3<Integer, Integer, Integer, Integer> removed = md3.remove(1, 1, 1);
+        Assert.assertEquals(2, removed.getSize());
+        Assert.assertEquals(1, removed.get(1).getSize());
+        Assert.assertEquals(3, md3.getSize());
+
+        removed = removed.remove(1, 1);
+        Assert.assertEquals(1, removed.getSize());
+        Assert.assertNull(removed.get(1));
+
+        Assert.assertEquals(0, removed.remove(2).getSize());
+        Assert.assertEquals(3, md3.entries().count());
+    }
+
+    @Test
+    public void testEquality() {
+        MultiDMap3<Integer, Integer, Integer, Integer> source = new MultiDMap3<>();
+        MultiDFiller.completeFill(source, 8);
+
+        PersistentMultiDMap3<Integer, Integer, Integer, Integer> a = PersistentMultiDMap3.copyOf(source);
+        PersistentMultiDMap3<Integer, Integer, Integer, Integer> b = a.put(3, 3, 3, -1).put(3, 3, 3, 333);
+        Assert.assertEquals(source.getSize(), a.getSize());
+        Assert.assertNotSame(a, b);
+        Assert.assertEquals(a, b);
+        Assert.assertEquals(a.hashCode(), b.hashCode());
+
+        // Versions built in a different order hold the same mappings
+        PersistentMultiDMap3<Integer, Integer, Integer, Integer> c = PersistentMultiDMap3.empty();
+        for (int k1 = 8; k1 >= 1; --k1)
+            for (int k2 = 8; k2 >= 1; --k2)
+                for (int k3 = 8; k3 >= 1; --k3)
+                    c = c.put(k1, k2, k3, 100 * k1 + 10 * k2 + k3);
+        Assert.assertEquals(a, c);
+
+        Assert.assertNotEquals(a, b.put(8, 8, 8, 0));
+        Assert.assertNotEquals(a, b.remove(8, 8, 8));
+    }
+
+    @Test
+    public void testCollidingKeys() {
+        // "Aa" and "BB" have the same hash code
+        PersistentMultiDMap1<String, Integer> md1 = PersistentMultiDMap1.<String, Integer>empty()
+                .put("Aa", 1)
+                .put("BB", 2)
+                .put("C", 3);
+        Assert.assertEquals(new Integer(1), md1.get("Aa"));
+        Assert.assertEquals(new Integer(2), md1.get("BB"));
+        Assert.assertEquals(3, md1.getSize());
+
+        PersistentMultiDMap1<String, Integer> removed = md1.remove("Aa");
+        Assert.assertNull(removed.get("Aa"));
+        Assert.assertEquals(new Integer(2), removed.get("BB"));
+        Assert.assertEquals(PersistentMultiDMap1.<String, Integer>empty().put("C", 3).put("BB", 2), removed);
+    }
+
+    @Test
+    public void testUnequalVersionsExitEarly() {
+        PersistentMultiDMap1<Counted, Integer> a = PersistentMultiDMap1.empty();
+        for (int i = 0; i < 20000; ++i)
+            a = a.put(new Counted(i), i);
+
+        // Same size, one value or one key apart
+        PersistentMultiDMap1<Counted, Integer> changed = a.put(new Counted(12345), -1);
+        PersistentMultiDMap1<Counted, Integer> moved = a.remove(new Counted(12345)).put(new Counted(-1), 0);
+        Assert.assertEquals(a.getSize(), changed.getSize());
+        Assert.assertEquals(a.getSize(), moved.getSize());
+
+        Counted.comparisons = 0;
+        Assert.assertNotEquals(a, changed);
+        Assert.assertNotEquals(changed, a);
+        Assert.assertNotEquals(a, moved);
+        Assert.assertTrue("compared " + Counted.comparisons + " keys", Counted.comparisons <= 8);
+
+        // Nested levels exit early as well
+        PersistentMultiDMap3<Integer, Integer, Counted, Integer> b = PersistentMultiDMap3.empty();
+        for (int i = 0; i < 20000; ++i)
+            b = b.put(i % 10, i % 100, new Counted(i), i);
+        Counted.comparisons = 0;
+        Assert.assertNotEquals(b, b.put(5, 55, new Counted(12355), -1));
+        Assert.assertTrue("compared " + Counted.comparisons + " keys", Counted.comparisons <= 8);
+        Assert.assertEquals(b, b.put(5, 55, new Counted(12355), -1).put(5, 55, new Counted(12355), 12355));
+    }
+
+    @Test
+    public void testEqualityAgainstHashMap() {
+        // Keys of few distinct hashes, so that collision nodes and deep subtrees are compared
+        Random random = new Random(7);
+        String[] keys = {"Aa", "BB", "AaAa", "BBBB", "AaBB", "BBAa", "C", "D", "E"};
+        for (int round = 0; round < 2000; ++round) {
+            PersistentMultiDMap1<Object, Integer> a = PersistentMultiDMap1.empty();
+            Map<Object, Integer> expectedA = new HashMap<>();
+            for (int i = 0; i < 40; ++i) {
+                Object key = random.nextBoolean() ? keys[random.nextInt(keys.length)] : random.nextInt(64) * 32;
+                a = a.put(key, i % 3);
+                expectedA.put(key, i % 3);
+            }
+
+            PersistentMultiDMap1<Object, Integer> b = a;
+            Map<Object, Integer> expectedB = new HashMap<>(expectedA);
+            for (int i = 0; i < random.nextInt(4); ++i) {
+                Object key = random.nextBoolean() ? keys[random.nextInt(keys.length)] : random.nextInt(64) * 32;
+                if (random.nextBoolean()) {
+                    b = b.remove(key);
+                    expectedB.remove(key);
+                } else {
+                    b = b.put(key, i % 3);
+                    expectedB.put(key, i % 3);
+                }
+            }
+            Assert.assertEquals(expectedA.equals(expectedB), a.equals(b));
+            Assert.assertEquals(expectedA.equals(expectedB), b.equals(a));
+        }
+    }
+}
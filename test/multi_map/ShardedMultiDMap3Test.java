@@ -0,0 +1,116 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+public class ShardedMultiDMap3Test {
+
+    @Test
+    public void testPointOperations() {
+        try (ShardedMultiDMap3<Integer, String, Integer, Integer> smd3 = new ShardedMultiDMap3<>(4)) {
+            Assert.assertEquals(4, smd3.getShardCount());
+            Assert.assertNull(smd3.put(1, "a", 1, 11).join());
+            Assert.assertEquals(Integer.valueOf(11), smd3.put(1, "a", 1, 12).join());
+            smd3.put(1, "a", 2, 13);
+            smd3.put(2, "b", 1, 21);
+
+            Assert.assertEquals(Integer.valueOf(12), smd3.get(1, "a", 1).join());
+            Assert.assertNull(smd3.get(3, "a", 1).join());
+            Assert.assertEquals(Integer.valueOf(3), smd3.size().join());
+
+            Assert.assertEquals(Integer.valueOf(14), smd3.compute(1, "a", 2, v -> v + 1).join());
+            Assert.assertEquals(Integer.valueOf(2), smd3.remove(1).join());
+            Assert.assertEquals(Integer.valueOf(0), smd3.remove(1, "a", 1).join());
+            Assert.assertEquals(Integer.valueOf(1), smd3.size().join());
+        }
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        try (ShardedMultiDMap3<Integer, Integer, Integer, Long> smd3 = new ShardedMultiDMap3<>(3)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; ++t) {
+                threads.add(new Thread(() -> {
+                    List<CompletableFuture<Long>> futures = new ArrayList<>();
+                    for (int i = 0; i < 5000; ++i)
+                        futures.add(smd3.merge(i % 50, i % 7, i % 3, 1L, Long::sum));
+                    futures.forEach(CompletableFuture::join);
+                }));
+            }
+            for (Thread thread : threads)
+                thread.start();
+            for (Thread thread : threads)
+                thread.join();
+
+            // Single writer shards lose no increment
+            Assert.assertEquals(Long.valueOf(20000), smd3.reduce(0L, (sum, v) -> sum + (Long) v, Long::sum).join());
+            Assert.assertEquals(Integer.valueOf(50 * 21), smd3.size().join());
+        }
+    }
+
+    @Test
+    public void testScans() {
+        try (ShardedMultiDMap3<Integer, Integer, Integer, Integer> smd3 = new ShardedMultiDMap3<>(5)) {
+            MultiDMap3<Integer, Integer, Integer, Integer> expected = new MultiDMap3<>();
+            for (int i = 0; i < 1000; ++i) {
+                smd3.put(i % 20, i % 9, i, i);
+                expected.put(i % 20, i % 9, i, i);
+            }
+
+            Set<List<Object>> entries = smd3.entries().join().stream().map(Arrays::asList).collect(Collectors.toSet());
+            Assert.assertEquals(expected.entries().map(Arrays::asList).collect(Collectors.toSet()), entries);
+
+            MultiDQuery query = new MultiDQuery().in(0, Arrays.asList(1, 2)).eq(1, 4);
+            Set<List<Object>> selected = smd3.query(query).join().stream().map(Arrays::asList).collect(Collectors.toSet());
+            Assert.assertEquals(expected.query(query).map(Arrays::asList).collect(Collectors.toSet()), selected);
+
+            // Every shard holds part of the top level keys
+            Assert.assertEquals(Integer.valueOf(20), smd3.fanOut(shard -> shard.data.size(), Integer::sum).join());
+        }
+    }
+
+    @Test
+    public void testReduceStaysOnTheWorkers() {
+        try (ShardedMultiDMap3<Integer, Integer, Integer, Integer> smd3 = new ShardedMultiDMap3<>(2)) {
+            for (int i = 0; i < 20000; ++i)
+                smd3.put(i % 10, i % 100, i, 1);
+            Assert.assertTrue(smd3.fanOut(MultiDMap::getSize, Math::max).join() > MultiDReducer.SEQUENTIAL_THRESHOLD);
+
+            // Large shards aren't handed to other threads
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            int sum = smd3.reduce(0, (total, v) -> {
+                threads.add(Thread.currentThread().getName());
+                return total + (Integer) v;
+            }, Integer::sum).join();
+            Assert.assertEquals(20000, sum);
+            Assert.assertEquals(new HashSet<>(Arrays.asList("multi-d-shard-0", "multi-d-shard-1")), threads);
+        }
+    }
+
+    @Test
+    public void testMultiDMap2() {
+        try (ShardedMultiDMap2<String, String, String> smd2 = new ShardedMultiDMap2<>()) {
+            smd2.put("a", "b", "x");
+            Assert.assertEquals("xy", smd2.merge("a", "b", "y", String::concat).join());
+            Assert.assertEquals("xy", smd2.get("a", "b").join());
+            Assert.assertEquals(Integer.valueOf(1), smd2.remove("a").join());
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testClosed() {
+        ShardedMultiDMap2<String, String, String> smd2 = new ShardedMultiDMap2<>(2);
+        smd2.close();
+        smd2.put("a", "b", "c");
+    }
+}
@@ -0,0 +1,84 @@
+package multi_map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class SortedMultiDMap2Test {
+
+    private static List<Object> values(java.util.stream.Stream<Object[]> entries) {
+        return entries.map(entry -> entry[entry.length - 1]).collect(Collectors.toList());
+    }
+
+    private static SortedMultiDMap2<Long, String, Integer> buckets() {
+        SortedMultiDMap2<Long, String, Integer> md2 = new SortedMultiDMap2<>();
+        int value = 0;
+        for (long bucket = 100; bucket >= 0; bucket -= 10) {
+            md2.put(bucket, "b", value++);
+            md2.put(bucket, "a", value++);
+        }
+        return md2;
+    }
+
+    @Test
+    public void testOrderedEntries() {
+        SortedMultiDMap2<Long, String, Integer> md2 = buckets();
+        Assert.assertEquals(22, md2.getSize());
+
+        List<Object[]> entries = md2.entries().collect(Collectors.toList());
+        Assert.assertEquals(0L, entries.get(0)[0]);
+        Assert.assertEquals("a", entries.get(0)[1]);
+        Assert.assertEquals("b", entries.get(1)[1]);
+        Assert.assertEquals(100L, entries.get(21)[0]);
+
+        List<Object[]> descending = md2.descendingEntries().collect(Collectors.toList());
+        Assert.assertEquals(100L, descending.get(0)[0]);
+        Assert.assertEquals("b", descending.get(0)[1]);
+        Assert.assertEquals(0L, descending.get(21)[0]);
+        Assert.assertEquals("a", descending.get(21)[1]);
+    }
+
+    @Test
+    public void testRanges() {
+        SortedMultiDMap2<Long, String, Integer> md2 = buckets();
+
+        // Buckets 20 and 30 but not 40, the upper bound being exclusive
+        List<Object[]> window = md2.range(15L, 40L).collect(Collectors.toList());
+        Assert.assertEquals(4, window.size());
+        Assert.assertEquals(20L, window.get(0)[0]);
+        Assert.assertEquals(30L, window.get(3)[0]);
+
+        Assert.assertEquals(values(md2.range(15L, 40L)).size(), values(md2.descendingRange(15L, 40L)).size());
+        Assert.assertEquals(30L, md2.descendingRange(15L, 40L).findFirst().get()[0]);
+
+        // Open ended ranges
+        Assert.assertEquals(4, md2.range(90L, null).count());
+        Assert.assertEquals(2, md2.range(null, 10L).count());
+
+        // Ranges within a submap
+        List<Object[]> inner = md2.range(50L, "a", "b").collect(Collectors.toList());
+        Assert.assertEquals(1, inner.size());
+        Assert.assertEquals("a", inner.get(0)[1]);
+        Assert.assertEquals(0, md2.range(55L, "a", "z").count());
+    }
+
+    @Test
+    public void testComparators() {
+        SortedMultiDMap3<Integer, Integer, Integer, Integer> md3 = new SortedMultiDMap3<>(
+                Comparator.reverseOrder(), null, Comparator.reverseOrder());
+        MultiDFiller.completeFill(md3, 3);
+
+        List<Object> ordered = values(md3.entries());
+        // K1 and K3 descending, K2 ascending
+        Assert.assertEquals(313, ordered.get(0));
+        Assert.assertEquals(311, ordered.get(2));
+        Assert.assertEquals(323, ordered.get(3));
+
+        Assert.assertEquals(9, md3.range(2, 1).count());
+        Assert.assertEquals(2, md3.range(1, 2, 3, 1).count());
+        Assert.assertTrue(md3.get(1) instanceof SortedMultiDMap2);
+    }
+}